@@ -1,11 +1,16 @@
 package pw.mihou.akari;
 
 import ch.qos.logback.classic.Logger;
+import com.mongodb.reactivestreams.client.MongoClient;
+import com.mongodb.reactivestreams.client.MongoClients;
 import com.squareup.moshi.Moshi;
 import io.javalin.Javalin;
 import org.slf4j.LoggerFactory;
 import pw.mihou.akari.configuration.AkariConfiguration;
+import pw.mihou.alisa.AlisaGlobal;
 import pw.mihou.alisa.modules.database.AlisaDatabaseClient;
+import pw.mihou.alisa.modules.database.AlisaDatabaseClientSettings;
+import pw.mihou.alisa.modules.threadpools.AlisaDatabaseExecutor;
 import pw.mihou.dotenv.Dotenv;
 
 public class Akari {
@@ -15,10 +20,9 @@ public class Akari {
     }
 
     private static final Logger logger = (Logger) LoggerFactory.getLogger("Akari");
-    private static final Moshi moshi = new Moshi.Builder().build();
-    private static final AlisaDatabaseClient databaseClient = new AlisaDatabaseClient(
-            AkariConfiguration.MONGODB_URI
-    );
+    // The chapters carry dates which the default Moshi instance cannot encode, which is
+    // why this builds on top of the shared instance from Alisa.
+    private static final Moshi moshi = AlisaGlobal.MOSHI.newBuilder().build();
 
     /**
      * Executed during startup as the first entrypoint.
@@ -57,6 +61,61 @@ public class Akari {
      * @return  The {@link AlisaDatabaseClient} instance.
      */
     public static AlisaDatabaseClient getDatabaseClient() {
-        return databaseClient;
+        return DatabaseClientHolder.databaseClient;
+    }
+
+    /**
+     * Gets the Reactive Streams client for Akari-chan, this connects to the same deployment
+     * with the same settings as {@link #getDatabaseClient()}.
+     *
+     * @return  The Reactive Streams {@link MongoClient} instance.
+     */
+    public static MongoClient getReactiveDatabaseClient() {
+        return ReactiveDatabaseClientHolder.databaseClient;
+    }
+
+    /**
+     * Holds the {@link AlisaDatabaseClient} which is only connected once it is first needed,
+     * this keeps the websocket and its tools usable without a database.
+     */
+    private static class DatabaseClientHolder {
+
+        private static final AlisaDatabaseClient databaseClient = connect();
+
+        /**
+         * Connects to the database and sizes the database executor to the connection pool
+         * of the client unless the amount of threads was configured.
+         *
+         * @return  The {@link AlisaDatabaseClient} instance.
+         */
+        private static AlisaDatabaseClient connect() {
+            AlisaDatabaseClient client = new AlisaDatabaseClient(AkariConfiguration.MONGODB_URI, new AlisaDatabaseClientSettings(
+                    AkariConfiguration.DATABASE_POOL_MAX_SIZE,
+                    AkariConfiguration.DATABASE_POOL_MIN_SIZE,
+                    AkariConfiguration.DATABASE_POOL_MAX_WAIT_MILLIS,
+                    AkariConfiguration.DATABASE_POOL_MAX_IDLE_MILLIS,
+                    AkariConfiguration.DATABASE_CONNECT_TIMEOUT_MILLIS,
+                    AkariConfiguration.DATABASE_SOCKET_TIMEOUT_MILLIS,
+                    AkariConfiguration.DATABASE_SERVER_SELECTION_TIMEOUT_MILLIS
+            ));
+            AlisaDatabaseExecutor.configure(
+                    AkariConfiguration.DATABASE_EXECUTOR_THREADS > 0 ? AkariConfiguration.DATABASE_EXECUTOR_THREADS : client.poolSize(),
+                    AkariConfiguration.DATABASE_EXECUTOR_QUEUE_CAPACITY
+            );
+
+            return client;
+        }
+
+    }
+
+    /**
+     * Holds the Reactive Streams client which is only connected once it is first needed.
+     */
+    private static class ReactiveDatabaseClientHolder {
+
+        private static final MongoClient databaseClient = MongoClients.create(
+                getDatabaseClient().settings()
+        );
+
     }
 }
@@ -0,0 +1,96 @@
+package pw.mihou.akari.activities;
+
+import pw.mihou.akari.activities.modules.AkariFeedPayload;
+import pw.mihou.akari.configuration.AkariConfiguration;
+import pw.mihou.akari.pipeline.AkariPipelineItem;
+import pw.mihou.akari.pipeline.AkariPipelineStage;
+import pw.mihou.akari.websocket.facade.AkariWebsocket;
+import pw.mihou.alisa.modules.AlisaFeedPollView;
+import pw.mihou.alisa.modules.rss.properties.scribblehub.AlisaChapterItem;
+import pw.mihou.alisa.modules.subscriptions.AlisaTopic;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * {@link AkariFeedPipeline} connects the fetch, parse, diff and publish stages of the feeds
+ * together, each with their own bounded queue and workers.
+ */
+public class AkariFeedPipeline {
+
+    private final AkariPipelineStage<AlisaFeedPollView, AkariFeedPayload> fetch;
+    private final AkariPipelineStage<AkariFeedPayload, AkariFeedPayload> parse;
+    private final AkariPipelineStage<AkariFeedPayload, AkariFeedPayload> diff;
+    private final AkariPipelineStage<AkariFeedPayload, Void> publish;
+
+    /**
+     * Creates a new {@link AkariFeedPipeline} that publishes into the websocket specified.
+     *
+     * @param websocket The websocket to transport the data towards.
+     */
+    public AkariFeedPipeline(AkariWebsocket websocket) {
+        this.fetch = new AkariPipelineStage<>(
+                "fetch", AkariConfiguration.PIPELINE_FETCH_WORKERS, AkariConfiguration.PIPELINE_CAPACITY, AkariFeeds::fetch
+        );
+        this.parse = new AkariPipelineStage<>(
+                "parse", AkariConfiguration.PIPELINE_PARSE_WORKERS, AkariConfiguration.PIPELINE_CAPACITY, AkariFeeds::parse
+        );
+        this.diff = new AkariPipelineStage<>(
+                "diff", AkariConfiguration.PIPELINE_DIFF_WORKERS, AkariConfiguration.PIPELINE_CAPACITY, payload -> {
+                    List<AlisaChapterItem> chapters = AkariFeeds.diff(payload);
+                    return chapters == null ? null : payload.chapters(chapters);
+                }
+        );
+        this.publish = new AkariPipelineStage<>(
+                "publish", AkariConfiguration.PIPELINE_PUBLISH_WORKERS, AkariConfiguration.PIPELINE_CAPACITY, payload -> {
+                    // The chapters are routed by their feed which lets sharded clients receive
+                    // only the servers that they own.
+                    AlisaTopic topic = AlisaTopic.of(payload.feed());
+                    Objects.requireNonNull(payload.chapters()).forEach(chapter -> websocket.send(topic, chapter));
+                    return null;
+                }
+        );
+
+        fetch.to(parse).to(diff).to(publish);
+        stages().forEach(AkariPipelineStage::start);
+    }
+
+    /**
+     * Submits all the feeds into the pipeline, this blocks whenever the pipeline is full
+     * and the future returned completes once every feed has left the pipeline.
+     *
+     * @param feeds                     The feeds to submit.
+     * @return                          A future that completes once all feeds were processed.
+     * @throws InterruptedException     If the thread was interrupted while waiting.
+     */
+    public CompletableFuture<Void> cycle(List<AlisaFeedPollView> feeds) throws InterruptedException {
+        List<CompletableFuture<Void>> completions = new ArrayList<>(feeds.size());
+
+        for (AlisaFeedPollView feed : feeds) {
+            CompletableFuture<Void> completion = new CompletableFuture<>();
+            completions.add(completion);
+            fetch.submit(new AkariPipelineItem<>(feed, completion));
+        }
+
+        return CompletableFuture.allOf(completions.toArray(CompletableFuture[]::new));
+    }
+
+    /**
+     * Gets all the stages of this pipeline in order.
+     *
+     * @return  All the stages of this pipeline.
+     */
+    public List<AkariPipelineStage<?, ?>> stages() {
+        return List.of(fetch, parse, diff, publish);
+    }
+
+    /**
+     * Stops all the workers of this pipeline.
+     */
+    public void stop() {
+        stages().forEach(AkariPipelineStage::stop);
+    }
+
+}
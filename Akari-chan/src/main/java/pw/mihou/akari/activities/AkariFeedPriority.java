@@ -0,0 +1,173 @@
+package pw.mihou.akari.activities;
+
+import pw.mihou.akari.Akari;
+import pw.mihou.akari.configuration.AkariConfiguration;
+import pw.mihou.alisa.modules.AlisaFeed;
+import pw.mihou.alisa.modules.AlisaFeedPollView;
+import pw.mihou.alisa.modules.AlisaFeedSubscribers;
+import pw.mihou.alisa.modules.database.AlisaDatabase;
+import pw.mihou.alisa.modules.exceptions.handler.AlisaExceptionHandler;
+import pw.mihou.alisa.modules.threadpools.AlisaThreadPool;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * {@link AkariFeedPriority} decides the order in which feeds are polled during a cycle. Feeds are
+ * grouped by their URL and every group is scored by how many feeds subscribe to it and how recently
+ * it had a new chapter, which places the stories that notify the most servers first.
+ * <br><br>
+ * To keep the lower groups from always waiting behind the same higher groups, every group that is
+ * placed in the back half of a cycle gains a bonus that grows with each consecutive cycle it spends
+ * there, which bounds how many cycles in a row a group can be polled late.
+ * <br><br>
+ * The subscribers of every URL are counted by the database through {@link AlisaFeedSubscribers#PIPELINE}, which is
+ * read again every {@link AkariConfiguration#FEEDS_SUBSCRIBERS_REFRESH_SECONDS} seconds in the background rather than
+ * on every cycle. URLs that the last grouping has not seen yet, and every URL on storages that cannot aggregate, are
+ * counted from the feeds of the cycle instead.
+ */
+public class AkariFeedPriority {
+
+    private static final double SUBSCRIBER_WEIGHT = 1.0;
+    private static final double ACTIVITY_WEIGHT = 4.0;
+    private static final double DEFERRAL_WEIGHT = 2.0;
+    private static final Duration ACTIVITY_HALF_LIFE = Duration.ofHours(24);
+
+    private final Map<String, Long> activity = new ConcurrentHashMap<>();
+    private final Map<String, Integer> deferrals = new ConcurrentHashMap<>();
+
+    private final AlisaDatabase<AlisaFeed> database;
+    private final AtomicBoolean started = new AtomicBoolean(false);
+    private volatile Map<String, Integer> subscribers = Map.of();
+
+    /**
+     * Creates a new {@link AkariFeedPriority} that counts the subscribers of every
+     * URL from the feeds of the database provided.
+     *
+     * @param database  The database of the feeds.
+     */
+    public AkariFeedPriority(AlisaDatabase<AlisaFeed> database) {
+        this.database = database;
+    }
+
+    /**
+     * Reads the subscribers of every URL once and schedules the reads after it, this does nothing
+     * if the priority has already started or if the storage cannot aggregate.
+     */
+    public void start() {
+        if (!started.compareAndSet(false, true) || !refresh()) {
+            return;
+        }
+
+        long interval = AkariConfiguration.FEEDS_SUBSCRIBERS_REFRESH_SECONDS;
+        AlisaThreadPool.schedule(
+                () -> AlisaThreadPool.getExecutorService().submit(this::refresh),
+                interval,
+                interval,
+                TimeUnit.SECONDS
+        );
+    }
+
+    /**
+     * Replaces the subscribers of every URL with the grouping of the database, the previous
+     * grouping is kept when the grouping cannot be read.
+     *
+     * @return  Whether the storage of the feeds can aggregate.
+     */
+    public boolean refresh() {
+        try {
+            subscribers = database.aggregate(AlisaFeedSubscribers.PIPELINE, AlisaFeedSubscribers::from)
+                    .mapAndList()
+                    .stream()
+                    .filter(group -> group.url() != null)
+                    .collect(Collectors.toUnmodifiableMap(AlisaFeedSubscribers::url, group -> group.uniques().size()));
+        } catch (UnsupportedOperationException exception) {
+            Akari.getLogger().warn("The feeds cannot be grouped by the storage, the subscribers are counted from the cycles. [storage={}]",
+                    database.storage().name()
+            );
+            return false;
+        } catch (Exception exception) {
+            AlisaExceptionHandler.accept(exception);
+        }
+
+        return true;
+    }
+
+    /**
+     * Orders the feeds by the priority of their URL, feeds that share a URL are kept
+     * next to each other so that the URL is only fetched once.
+     *
+     * @param feeds The feeds to order.
+     * @return      The feeds in the order they should be polled.
+     */
+    public List<AlisaFeedPollView> order(List<AlisaFeedPollView> feeds) {
+        start();
+
+        Map<String, List<AlisaFeedPollView>> groups = new LinkedHashMap<>();
+        feeds.forEach(feed -> groups.computeIfAbsent(feed.url(), key -> new ArrayList<>()).add(feed));
+
+        long now = System.currentTimeMillis();
+        Map<String, Double> scores = new ConcurrentHashMap<>(groups.size());
+        Map<String, Integer> counted = subscribers;
+        groups.forEach((url, group) -> scores.put(url, score(url, counted.getOrDefault(url, group.size()), now)));
+
+        List<String> urls = new ArrayList<>(groups.keySet());
+        urls.sort(Comparator.comparingDouble(scores::get).reversed());
+
+        int half = urls.size() / 2;
+        for (int i = 0; i < urls.size(); i++) {
+            String url = urls.get(i);
+
+            if (i < half) {
+                deferrals.remove(url);
+            } else {
+                deferrals.merge(url, 1, Integer::sum);
+            }
+        }
+
+        deferrals.keySet().retainAll(groups.keySet());
+        activity.keySet().retainAll(groups.keySet());
+
+        List<AlisaFeedPollView> ordered = new ArrayList<>(feeds.size());
+        urls.forEach(url -> ordered.addAll(groups.get(url)));
+        return ordered;
+    }
+
+    /**
+     * Records that the URL had a new chapter just now.
+     *
+     * @param url   The URL that had a new chapter.
+     */
+    public void active(String url) {
+        activity.put(url, System.currentTimeMillis());
+    }
+
+    /**
+     * Scores the URL, a higher score is polled earlier.
+     *
+     * @param url           The URL to score.
+     * @param subscribers   The amount of feeds that subscribe to the URL.
+     * @param now           The current time in milliseconds.
+     * @return              The score of the URL.
+     */
+    private double score(String url, int subscribers, long now) {
+        double score = SUBSCRIBER_WEIGHT * Math.log(1 + subscribers) / Math.log(2);
+
+        Long lastActive = activity.get(url);
+        if (lastActive != null) {
+            double halfLives = (double) (now - lastActive) / ACTIVITY_HALF_LIFE.toMillis();
+            score += ACTIVITY_WEIGHT * Math.pow(0.5, halfLives);
+        }
+
+        return score + DEFERRAL_WEIGHT * deferrals.getOrDefault(url, 0);
+    }
+
+}
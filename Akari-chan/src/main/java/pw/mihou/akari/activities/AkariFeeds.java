@@ -2,65 +2,90 @@ package pw.mihou.akari.activities;
 
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import okhttp3.HttpUrl;
 import okhttp3.Request;
 import pw.mihou.akari.Akari;
+import pw.mihou.akari.activities.modules.AkariFeedPayload;
+import pw.mihou.akari.configuration.AkariConfiguration;
 import pw.mihou.akari.databases.AkariDatabases;
+import pw.mihou.akari.pipeline.AkariPipelineStage;
 import pw.mihou.akari.websocket.facade.AkariWebsocket;
-import pw.mihou.alisa.modules.AlisaFeed;
+import pw.mihou.alisa.modules.AlisaChapter;
+import pw.mihou.alisa.modules.AlisaFeedPollView;
+import pw.mihou.alisa.modules.database.modules.AlisaField;
 import pw.mihou.alisa.modules.exceptions.handler.AlisaExceptionHandler;
+import pw.mihou.alisa.modules.filters.AlisaSeenSet;
 import pw.mihou.alisa.modules.http.AlisaHttpCall;
+import pw.mihou.alisa.modules.metrics.AlisaMetrics;
 import pw.mihou.alisa.modules.rss.AlisaRssReader;
+import pw.mihou.alisa.modules.rss.properties.AlisaRssProperty;
 import pw.mihou.alisa.modules.rss.properties.scribblehub.AlisaChapterItem;
 
 import javax.annotation.Nonnull;
 import java.time.Duration;
+import java.util.Date;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
 
 public class AkariFeeds {
 
-    private static final int MAXIMUM_RATE = 2;
-    private static final Duration RATE_TIMER = Duration.ofSeconds(4);
-    private static final AtomicInteger RATE = new AtomicInteger();
-    private static final AtomicLong LAST_REQUEST = new AtomicLong(-1);
+    // The time at which the next request to a host may be made, every request reserves its own
+    // turn which spaces the requests to the same host apart regardless of how many workers fetch.
+    private static final Map<String, AtomicLong> NEXT_REQUEST = new ConcurrentHashMap<>();
     private static final Cache<String, List<AlisaChapterItem>> CACHE = Caffeine.newBuilder()
             .expireAfterWrite(Duration.ofMinutes(1))
             .build();
+    // The downloads that are in progress or waiting to be parsed by url, the feeds that share a url
+    // within the same cycle share one download instead of requesting the url again.
+    private static final Map<String, CompletableFuture<String>> DOWNLOADS = new ConcurrentHashMap<>();
+    private static final Map<AkariWebsocket, AkariFeedPipeline> PIPELINES = new ConcurrentHashMap<>();
+    private static final AkariFeedPriority PRIORITY = new AkariFeedPriority(AkariDatabases.FEEDS);
 
     /**
      * Starts reading through all the feeds and sending them a notification through the websocket
-     * if any of the published dates are newer than the current listed.
+     * if any of the published dates are newer than the current listed. The feeds are submitted in the
+     * order decided by {@link AkariFeedPriority} and this blocks until every feed has passed through
+     * the pipeline.
      *
      * @param websocket The websocket to transport the data towards.
      */
     public static void start(@Nonnull AkariWebsocket websocket) {
+        long start = System.nanoTime();
         try {
-            List<AlisaFeed> feeds = AkariDatabases.FEEDS.all().mapAndList();
+            List<AlisaFeedPollView> feeds = PRIORITY.order(AkariDatabases.FEEDS_REGISTRY.all());
+            AkariFeedPipeline pipeline = pipeline(websocket);
 
-            for (AlisaFeed feed : feeds) {
-                if (RATE.incrementAndGet() > MAXIMUM_RATE) {
-
-                    if (LAST_REQUEST.get() > System.nanoTime() + RATE_TIMER.toNanos()) {
-                        Thread.sleep(2000L);
-                    }
-
-                    RATE.set(0);
-                }
-
-                List<AlisaChapterItem> chapters = getAndUpdate(feed);
-                LAST_REQUEST.set(System.nanoTime());
-
-                Akari.getLogger().info("A feed has finished synchronization. [unique={}, url={}, count={}]",
-                        feed.unique(), feed.url(), chapters.size()
-                );
-                chapters.forEach(websocket::send);
-            }
+            pipeline.cycle(feeds).join();
+            AlisaMetrics.histogram("akari_feed_cycle_seconds", "The time taken by a complete cycle of the feeds.")
+                    .observeSince(start);
+            Akari.getLogger().info("A feed cycle has finished. [count={}, stages={}]",
+                    feeds.size(),
+                    pipeline.stages().stream().map(AkariPipelineStage::toString).collect(Collectors.joining(", "))
+            );
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
         } catch (Exception exception) {
             AlisaExceptionHandler.accept(exception);
         }
     }
 
+    /**
+     * Gets the pipeline that publishes into the websocket specified, creating one
+     * if there is none yet.
+     *
+     * @param websocket The websocket to transport the data towards.
+     * @return          The pipeline of the websocket.
+     */
+    public static AkariFeedPipeline pipeline(@Nonnull AkariWebsocket websocket) {
+        return PIPELINES.computeIfAbsent(websocket, AkariFeedPipeline::new);
+    }
+
     /**
      * Gets and update the feed with the data acquired before returning the chapters
      * that were newly added within that short timespan.
@@ -68,13 +93,8 @@ public class AkariFeeds {
      * @param feed  The feed to perform a lookup into.
      * @return      All the new chapters that were received from the feed.
      */
-    public static List<AlisaChapterItem> getAndUpdate(AlisaFeed feed) {
-        List<AlisaChapterItem> chapters =  peek(feed).stream()
-                .filter(chapter -> chapter.pubDate().after(feed.date()))
-                .toList();
-
-        chapters.stream().findFirst().ifPresent(chapter -> AkariDatabases.FEEDS.upsert(feed.date(chapter.pubDate())));
-        return chapters;
+    public static List<AlisaChapterItem> getAndUpdate(AlisaFeedPollView feed) {
+        return Objects.requireNonNullElse(diff(new AkariFeedPayload(feed, null, peek(feed))), List.of());
     }
 
     /**
@@ -84,20 +104,183 @@ public class AkariFeeds {
      * @param feed  The feed to peek into.
      * @return      All the chapters that were available in the feed.
      */
-    public static List<AlisaChapterItem> peek(AlisaFeed feed) {
+    public static List<AlisaChapterItem> peek(AlisaFeedPollView feed) {
         List<AlisaChapterItem> chapters = CACHE.getIfPresent(feed.url());
 
         if (chapters == null) {
-            chapters = new AlisaHttpCall(new Request.Builder()
+            chapters = parse(fetch(feed)).chapters();
+        }
+
+        return chapters;
+    }
+
+    /**
+     * Fetches the content of the feed while respecting the rate limits, this skips the
+     * request entirely if the chapters of the feed are still cached and waits for the
+     * download of another feed instead when the url is already being downloaded.
+     *
+     * @param feed  The feed to fetch.
+     * @return      The payload containing either the content or the cached chapters.
+     */
+    static AkariFeedPayload fetch(AlisaFeedPollView feed) {
+        List<AlisaChapterItem> chapters = CACHE.getIfPresent(feed.url());
+
+        if (chapters != null) {
+            return new AkariFeedPayload(feed, null, chapters);
+        }
+
+        CompletableFuture<String> download = new CompletableFuture<>();
+        CompletableFuture<String> existing = DOWNLOADS.putIfAbsent(feed.url(), download);
+
+        if (existing != null) {
+            return new AkariFeedPayload(feed, existing.join(), null);
+        }
+
+        try {
+            throttle(HttpUrl.get(feed.url()).host());
+            String content = new AlisaHttpCall(new Request.Builder()
                     .url(feed.url()))
                     .content()
-                    .thenApply(AlisaRssReader::fromContent)
-                    .join()
-                    .map(AlisaChapterItem::new)
-                    .toList();
+                    .join();
+
+            download.complete(content);
+            return new AkariFeedPayload(feed, content, null);
+        } catch (RuntimeException exception) {
+            DOWNLOADS.remove(feed.url(), download);
+            download.completeExceptionally(exception);
+            throw exception;
         }
+    }
 
-        return chapters;
+    /**
+     * Parses the content of the payload into chapters and caches them, payloads that
+     * already contain chapters are passed through as-is. Payloads of the same url that
+     * shared a download are parsed once.
+     *
+     * @param payload   The payload to parse.
+     * @return          The payload containing the chapters.
+     */
+    static AkariFeedPayload parse(AkariFeedPayload payload) {
+        if (payload.chapters() != null) {
+            return payload;
+        }
+
+        String url = payload.feed().url();
+        try {
+            return payload.chapters(CACHE.get(url, ignored -> {
+                long start = System.nanoTime();
+                AlisaRssProperty property = Objects.requireNonNull(AlisaRssReader.fromContent(payload.content()));
+                List<AlisaChapterItem> chapters = property.map(AlisaChapterItem::new).toList();
+                AlisaMetrics.histogram("akari_feed_parse_seconds", "The time taken to parse the content of a feed.")
+                        .observeSince(start);
+
+                return chapters;
+            }));
+        } finally {
+            // The chapters are cached from here on, later feeds of the url skip the download.
+            DOWNLOADS.remove(url);
+        }
+    }
+
+    /**
+     * Filters the chapters of the payload into the chapters that were never announced for the feed
+     * and updates the feed accordingly. The links of the chapters are checked against the seen set
+     * of the feed, the published date is only consulted for feeds without any history and for links
+     * that have fallen out of the persisted window.
+     *
+     * @param payload   The payload to filter.
+     * @return          All the new chapters, or null if there are none.
+     */
+    static List<AlisaChapterItem> diff(AkariFeedPayload payload) {
+        AlisaFeedPollView feed = payload.feed();
+        AlisaSeenSet seen = AkariDatabases.SEEN_REGISTRY.get(feed.unique());
+        List<AlisaChapterItem> available = Objects.requireNonNull(payload.chapters());
+
+        List<AlisaChapterItem> chapters = available.stream()
+                .filter(chapter -> {
+                    boolean older = !chapter.pubDate().after(feed.date());
+                    return seen.fresh() ? !older : !seen.contains(chapter.link(), older);
+                })
+                .toList();
+
+        // Feeds without any history store every available chapter so that the history of the
+        // url starts with the whole feed instead of only the chapters after its date.
+        store(feed, seen.fresh() ? available : chapters);
+
+        if (seen.fresh() || !chapters.isEmpty()) {
+            // The feed lists the newest chapters first, they are added in reverse to keep
+            // the window ordered from the oldest to the newest.
+            for (int i = available.size() - 1; i >= 0; i--) {
+                seen.add(available.get(i).link());
+            }
+
+            AkariDatabases.SEEN_REGISTRY.save(feed.unique());
+        }
+
+        if (!chapters.isEmpty()) {
+            PRIORITY.active(feed.url());
+        }
+
+        chapters.stream()
+                .map(AlisaChapterItem::pubDate)
+                .max(Date::compareTo)
+                .filter(date -> date.after(feed.date()))
+                // Only the watermark is written, the copy of the registry may be behind the collection and
+                // replacing the whole document would undo the changes that were made to the feed since. The
+                // registry picks the new watermark up from the change stream or the next scan.
+                .ifPresent(date -> AkariDatabases.FEEDS.updateField(feed.index(), new AlisaField("date", date))
+                        .exceptionally(AlisaExceptionHandler::exceptionally));
+
+        AlisaMetrics.counter("akari_feed_new_chapters_total", "The amount of new chapters that were found in the feeds.")
+                .increment(chapters.size());
+        Akari.getLogger().info("A feed has finished synchronization. [unique={}, url={}, count={}]",
+                feed.unique(), feed.url(), chapters.size()
+        );
+
+        return chapters.isEmpty() ? null : chapters;
+    }
+
+    /**
+     * Stores the chapters into the chapter history of their story in one bulk write, the
+     * chapters that are already in the history of the story are skipped.
+     *
+     * @param feed      The feed that the chapters were found in.
+     * @param chapters  The chapters to store.
+     */
+    private static void store(AlisaFeedPollView feed, List<AlisaChapterItem> chapters) {
+        if (chapters.isEmpty()) {
+            return;
+        }
+
+        AkariDatabases.CHAPTERS.insert(chapters.stream().map(chapter -> AlisaChapter.of(feed.url(), chapter)).toList())
+                .thenAccept(count -> AlisaMetrics.counter("akari_chapters_stored_total", "The amount of chapters that were stored into the chapter history.")
+                        .increment(count))
+                .exceptionally(AlisaExceptionHandler::exceptionally);
+    }
+
+    /**
+     * Waits until the turn of this request to the host, the requests to the same host are spaced
+     * apart by {@link AkariConfiguration#FEEDS_HOST_INTERVAL_MILLIS} while the requests to other hosts
+     * are not held back. The turn is reserved without any lock, only the caller waits for it.
+     *
+     * @param host                      The host that is requested.
+     * @throws IllegalStateException    If the thread was interrupted while waiting.
+     */
+    private static void throttle(String host) {
+        long interval = TimeUnit.MILLISECONDS.toNanos(AkariConfiguration.FEEDS_HOST_INTERVAL_MILLIS);
+        long now = System.nanoTime();
+        long turn = NEXT_REQUEST.computeIfAbsent(host, key -> new AtomicLong(now - interval))
+                .accumulateAndGet(now, (next, current) -> Math.max(next, current) + interval) - interval;
+
+        long delay = turn - System.nanoTime();
+        if (delay > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(delay);
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(exception);
+            }
+        }
     }
 
 }
@@ -0,0 +1,26 @@
+package pw.mihou.akari.activities.modules;
+
+import pw.mihou.alisa.modules.AlisaFeedPollView;
+import pw.mihou.alisa.modules.rss.properties.scribblehub.AlisaChapterItem;
+
+import javax.annotation.Nullable;
+import java.util.List;
+
+/**
+ * {@link AkariFeedPayload} is what travels between the fetching and parsing stages of
+ * the feed pipeline, the content is null whenever the chapters were already cached.
+ */
+public record AkariFeedPayload(AlisaFeedPollView feed, @Nullable String content, @Nullable List<AlisaChapterItem> chapters) {
+
+    /**
+     * Creates a new replica of this {@link AkariFeedPayload} instance but with
+     * the chapters parsed.
+     *
+     * @param chapters  The chapters parsed from the content.
+     * @return          The near-perfect replica of this payload.
+     */
+    public AkariFeedPayload chapters(List<AlisaChapterItem> chapters) {
+        return new AkariFeedPayload(feed, null, chapters);
+    }
+
+}
@@ -6,4 +6,45 @@ public class AkariConfiguration {
     public static int WEBSOCKET_PORT = 3201;
     public static String MONGODB_URI;
 
+    public static int WEBSOCKET_QUEUE_CAPACITY = 4096;
+    public static long WEBSOCKET_QUEUE_TIMEOUT_MILLIS = 100;
+    public static int WEBSOCKET_SESSION_QUEUE_CAPACITY = 1024;
+    public static long WEBSOCKET_SESSION_HIGH_WATER_BYTES = 4 * 1024 * 1024;
+    public static long WEBSOCKET_SESSION_LOW_WATER_BYTES = 1024 * 1024;
+    public static String WEBSOCKET_OVERLOAD_POLICY = "PAUSE";
+    public static boolean WEBSOCKET_BATCHING = false;
+    public static int WEBSOCKET_BATCH_SIZE = 50;
+    public static long WEBSOCKET_BATCH_WINDOW_MILLIS = 250;
+    public static boolean WEBSOCKET_COMPRESSION = true;
+    public static long WEBSOCKET_DRAIN_DEADLINE_MILLIS = 10000;
+    public static boolean WEBSOCKET_OUTBOX = false;
+    public static boolean WEBSOCKET_SPOOL = false;
+    public static long OUTBOX_FLUSH_MILLIS = 100;
+    public static int OUTBOX_FLUSH_SIZE = 256;
+    public static long OUTBOX_RETENTION_HOURS = 24;
+    public static long OUTBOX_REMEMBERED_CLIENTS = 10000;
+    public static long CHAPTERS_RETENTION_DAYS = 30;
+    public static int DATABASE_POOL_MAX_SIZE = 0;
+    public static int DATABASE_POOL_MIN_SIZE = 0;
+    public static long DATABASE_POOL_MAX_WAIT_MILLIS = 0;
+    public static long DATABASE_POOL_MAX_IDLE_MILLIS = 0;
+    public static long DATABASE_CONNECT_TIMEOUT_MILLIS = 0;
+    public static long DATABASE_SOCKET_TIMEOUT_MILLIS = 0;
+    public static long DATABASE_SERVER_SELECTION_TIMEOUT_MILLIS = 0;
+    public static int DATABASE_EXECUTOR_THREADS = 0;
+    public static int DATABASE_EXECUTOR_QUEUE_CAPACITY = 1024;
+    public static boolean DATABASE_REACTIVE = false;
+    public static boolean DATABASE_MEMORY = false;
+    public static int DATABASE_SCAN_BATCH_SIZE = 1000;
+    public static int DATABASE_SCAN_PARALLELISM = 0;
+    public static long DATABASE_CACHE_SIZE = 10000;
+    public static long DATABASE_CACHE_EXPIRY_SECONDS = 60;
+    public static long FEEDS_HOST_INTERVAL_MILLIS = 1000;
+    public static long FEEDS_SUBSCRIBERS_REFRESH_SECONDS = 300;
+    public static int PIPELINE_CAPACITY = 256;
+    public static int PIPELINE_FETCH_WORKERS = 1;
+    public static int PIPELINE_PARSE_WORKERS = 2;
+    public static int PIPELINE_DIFF_WORKERS = 1;
+    public static int PIPELINE_PUBLISH_WORKERS = 1;
+
 }
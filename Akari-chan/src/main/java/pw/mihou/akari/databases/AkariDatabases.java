@@ -1,10 +1,121 @@
 package pw.mihou.akari.databases;
 
+import com.mongodb.client.model.IndexModel;
+import org.bson.Document;
 import pw.mihou.akari.Akari;
+import pw.mihou.akari.configuration.AkariConfiguration;
+import pw.mihou.akari.databases.registry.AkariFeedRegistry;
+import pw.mihou.akari.databases.registry.AkariSeenRegistry;
+import pw.mihou.alisa.modules.AlisaChapter;
+import pw.mihou.alisa.modules.AlisaFeed;
+import pw.mihou.alisa.modules.AlisaOutboxCursor;
+import pw.mihou.alisa.modules.AlisaOutboxMessage;
+import pw.mihou.alisa.modules.AlisaSeenChapters;
+import pw.mihou.alisa.modules.database.AlisaDatabase;
+import pw.mihou.alisa.modules.database.cache.AlisaCachedDatabase;
+import pw.mihou.alisa.modules.database.reactive.AlisaReactiveDatabase;
+import pw.mihou.alisa.modules.database.storage.memory.AlisaMemoryDatabase;
+import pw.mihou.alisa.modules.database.types.AlisaChaptersDatabase;
 import pw.mihou.alisa.modules.database.types.AlisaFeedDatabase;
+import pw.mihou.alisa.modules.database.types.AlisaOutboxCursorDatabase;
+import pw.mihou.alisa.modules.database.types.AlisaOutboxDatabase;
+import pw.mihou.alisa.modules.database.types.AlisaSeenChaptersDatabase;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 public class AkariDatabases {
 
-    public static final AlisaFeedDatabase FEEDS = new AlisaFeedDatabase(Akari.getDatabaseClient().client());
+    public static final AlisaDatabase<AlisaFeed> FEEDS = cached(database(
+            AlisaFeedDatabase.COLLECTION, AlisaFeed::from, AlisaFeedDatabase.INDEXES,
+            () -> new AlisaFeedDatabase(Akari.getDatabaseClient().client())
+    ));
+    public static final AkariFeedRegistry FEEDS_REGISTRY = new AkariFeedRegistry(FEEDS);
+
+    public static final AlisaDatabase<AlisaSeenChapters> SEEN = database(
+            AlisaSeenChaptersDatabase.COLLECTION, AlisaSeenChapters::from, AlisaSeenChaptersDatabase.INDEXES,
+            () -> new AlisaSeenChaptersDatabase(Akari.getDatabaseClient().client())
+    );
+    public static final AkariSeenRegistry SEEN_REGISTRY = new AkariSeenRegistry(SEEN);
+
+    public static final AlisaDatabase<AlisaOutboxMessage> OUTBOX = database(
+            AlisaOutboxDatabase.COLLECTION, AlisaOutboxMessage::from, AlisaOutboxDatabase.INDEXES,
+            () -> new AlisaOutboxDatabase(Akari.getDatabaseClient().client())
+    );
+    public static final AlisaDatabase<AlisaOutboxCursor> OUTBOX_CURSORS = database(
+            AlisaOutboxCursorDatabase.COLLECTION, AlisaOutboxCursor::from, AlisaOutboxCursorDatabase.INDEXES,
+            () -> new AlisaOutboxCursorDatabase(Akari.getDatabaseClient().client())
+    );
+
+    private static final Duration CHAPTERS_RETENTION = Duration.ofDays(AkariConfiguration.CHAPTERS_RETENTION_DAYS);
+    public static final AlisaDatabase<AlisaChapter> CHAPTERS = database(
+            AlisaChaptersDatabase.COLLECTION, AlisaChapter::from, AlisaChaptersDatabase.indexes(CHAPTERS_RETENTION),
+            () -> new AlisaChaptersDatabase(Akari.getDatabaseClient().client(), CHAPTERS_RETENTION)
+    );
+
+    /**
+     * Keeps the documents of the collection in memory when {@link AkariConfiguration#DATABASE_MEMORY} is enabled,
+     * which runs Akari without a database and without keeping anything between restarts. Otherwise the collection
+     * is used, see {@link #database(AlisaDatabase)}.
+     *
+     * @param name          The name of the collection.
+     * @param translator    The translator of the documents into the models.
+     * @param indexes       The indexes of the collection.
+     * @param collection    The database over the collection, only created when the collection is used.
+     * @param <Type>        The type of the models of the database.
+     * @return              The database to use for the operations.
+     */
+    private static <Type> AlisaDatabase<Type> database(
+            String name,
+            Function<Document, Type> translator,
+            List<IndexModel> indexes,
+            Supplier<AlisaDatabase<Type>> collection
+    ) {
+        if (AkariConfiguration.DATABASE_MEMORY) {
+            return AlisaMemoryDatabase.of(name, translator, indexes);
+        }
+
+        return database(collection.get());
+    }
+
+    /**
+     * Creates the indexes of the database and performs its asynchronous operations through the
+     * Reactive Streams driver when it is enabled, otherwise the operations run on the database executor.
+     *
+     * @param database  The database to use.
+     * @param <Type>    The type of the models of the database.
+     * @return          The database to use for the operations.
+     */
+    private static <Type> AlisaDatabase<Type> database(AlisaDatabase<Type> database) {
+        database.provision();
+
+        if (AkariConfiguration.DATABASE_REACTIVE) {
+            return AlisaReactiveDatabase.of(database, Akari.getReactiveDatabaseClient());
+        }
+
+        return database;
+    }
+
+    /**
+     * Keeps the lookups of the database in memory for a while when the cache is enabled, the
+     * cache is disabled by setting its size to zero.
+     *
+     * @param database  The database to use.
+     * @param <Type>    The type of the models of the database.
+     * @return          The database to use for the lookups.
+     */
+    private static <Type> AlisaDatabase<Type> cached(AlisaDatabase<Type> database) {
+        if (AkariConfiguration.DATABASE_CACHE_SIZE <= 0) {
+            return database;
+        }
+
+        return AlisaCachedDatabase.of(
+                database,
+                AkariConfiguration.DATABASE_CACHE_SIZE,
+                Duration.ofSeconds(AkariConfiguration.DATABASE_CACHE_EXPIRY_SECONDS)
+        );
+    }
 
 }
@@ -0,0 +1,399 @@
+package pw.mihou.akari.databases.registry;
+
+import com.mongodb.MongoCommandException;
+import com.mongodb.client.ChangeStreamIterable;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.FullDocument;
+import com.mongodb.client.model.changestream.OperationType;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.Document;
+import pw.mihou.akari.Akari;
+import pw.mihou.alisa.modules.AlisaFeed;
+import pw.mihou.alisa.modules.AlisaFeedPollView;
+import pw.mihou.alisa.modules.database.AlisaDatabase;
+import pw.mihou.alisa.modules.database.cache.AlisaCachedDatabase;
+import pw.mihou.alisa.modules.database.modules.AlisaIndex;
+import pw.mihou.alisa.modules.database.modules.AlisaProjection;
+import pw.mihou.alisa.modules.exceptions.handler.AlisaExceptionHandler;
+import pw.mihou.alisa.modules.metrics.AlisaMetrics;
+import pw.mihou.alisa.modules.threadpools.AlisaThreadPool;
+
+import javax.annotation.Nullable;
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * {@link AkariFeedRegistry} holds an in-memory copy of the feeds collection which is loaded
+ * once and then kept current through a change stream. Only the {@link AlisaFeedPollView} of every feed
+ * is kept, the scans of the collection read the fields of the view alone. The change stream is always opened before
+ * the collection is loaded, the writes that are made while the collection is loaded are then delivered
+ * by the stream instead of being lost between the two.
+ * <br><br>
+ * Deployments that do not support change streams (standalone servers and the in-memory storage) fall back to periodic delta scans
+ * over the time of the last write of every feed, see {@link AlisaDatabase#modified()}, with a complete
+ * reconciliation every few scans to pick up deletions and feeds that were written without the time.
+ */
+public class AkariFeedRegistry {
+
+    private static final int CHANGE_STREAMS_UNSUPPORTED = 40573;
+    private static final int CHANGE_STREAM_HISTORY_LOST = 286;
+
+    private static final Duration DELTA_INTERVAL = Duration.ofMinutes(1);
+    private static final Duration DELTA_OVERLAP = Duration.ofSeconds(5);
+    private static final Duration WATCH_RETRY = Duration.ofSeconds(10);
+    private static final int RECONCILE_EVERY = 10;
+
+    private final AlisaDatabase<AlisaFeed> database;
+    private final AlisaProjection<AlisaFeedPollView> projection;
+
+    private final Map<Long, AlisaFeedPollView> feeds = new ConcurrentHashMap<>();
+    private final Map<Object, Long> identifiers = new ConcurrentHashMap<>();
+
+    private final AtomicBoolean started = new AtomicBoolean(false);
+    private final AtomicReference<Date> lastModified = new AtomicReference<>(null);
+    private final AtomicReference<BsonDocument> resumeToken = new AtomicReference<>(null);
+    private final AtomicInteger deltaScans = new AtomicInteger();
+
+    /**
+     * Creates a new {@link AkariFeedRegistry} that mirrors the collection of the
+     * database provided.
+     *
+     * @param database  The database to mirror.
+     */
+    public AkariFeedRegistry(AlisaDatabase<AlisaFeed> database) {
+        this.database = database;
+
+        // The identifier is read to follow the deletions of the change stream and the time of the
+        // last write is read to resume the delta scans from.
+        this.projection = database.modified() == null
+                ? AlisaFeedPollView.PROJECTION.with("_id")
+                : AlisaFeedPollView.PROJECTION.with("_id", database.modified());
+
+        AlisaMetrics.gauge("akari_feeds", "The amount of feeds in the feed registry.", feeds::size);
+    }
+
+    /**
+     * Gets all the feeds that are currently known to the registry, this will load the
+     * collection on the first call and read from memory afterwards.
+     *
+     * @return  A snapshot of all the feeds in the registry.
+     */
+    public List<AlisaFeedPollView> all() {
+        start();
+        return List.copyOf(feeds.values());
+    }
+
+    /**
+     * Opens the change stream, loads the collection into memory and starts following the changes,
+     * this does nothing if the registry has already started.
+     */
+    public void start() {
+        if (!started.compareAndSet(false, true)) {
+            return;
+        }
+
+        MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor;
+        try {
+            cursor = open(null);
+        } catch (Exception exception) {
+            if (exception instanceof MongoCommandException command && command.getErrorCode() == CHANGE_STREAMS_UNSUPPORTED) {
+                reload();
+                Akari.getLogger().warn("Change streams are not supported, falling back to delta scans. [interval={}]", DELTA_INTERVAL);
+                AlisaThreadPool.schedule(
+                        () -> AlisaThreadPool.getExecutorService().submit(this::scan),
+                        DELTA_INTERVAL.toSeconds(),
+                        DELTA_INTERVAL.toSeconds(),
+                        TimeUnit.SECONDS
+                );
+                return;
+            }
+
+            // The collection is loaded by the stream once it can be opened again.
+            AlisaExceptionHandler.accept(exception);
+            retry();
+            return;
+        }
+
+        reload();
+        AlisaThreadPool.getExecutorService().submit(() -> follow(cursor));
+    }
+
+    /**
+     * Replaces the contents of the registry with a complete scan of the collection.
+     */
+    public synchronized void reload() {
+        Map<Long, AlisaFeedPollView> loaded = new ConcurrentHashMap<>();
+        Map<Object, Long> loadedIdentifiers = new ConcurrentHashMap<>();
+        AtomicReference<Date> last = new AtomicReference<>(null);
+
+        database.storage().find(new Document()).projection(projection.projection()).forEach(document -> {
+            AlisaFeedPollView feed = translate(document);
+            Object identifier = identifier(document.get("_id"));
+            last.accumulateAndGet(modified(document), AkariFeedRegistry::latest);
+
+            if (feed != null) {
+                loaded.put(feed.unique(), feed);
+                loadedIdentifiers.put(identifier, feed.unique());
+            }
+        });
+
+        feeds.keySet().retainAll(loaded.keySet());
+        feeds.putAll(loaded);
+        identifiers.clear();
+        identifiers.putAll(loadedIdentifiers);
+        lastModified.set(last.get());
+
+        Akari.getLogger().info("The feed registry was loaded from the database. [count={}]", feeds.size());
+    }
+
+    /**
+     * Opens the change stream again, resuming from the last token when there is one. A stream that
+     * cannot resume starts from now which is why the collection is loaded again after it was opened.
+     */
+    private void watch() {
+        try {
+            BsonDocument token = resumeToken.get();
+            MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor = open(token);
+
+            if (token == null) {
+                reload();
+            }
+
+            follow(cursor);
+        } catch (Exception exception) {
+            failed(exception);
+        }
+    }
+
+    /**
+     * Opens the change stream of the collection, the cursor is opened right away so that the stream
+     * starts from the moment this returns.
+     *
+     * @param token The token to resume after, or null to start from now.
+     * @return      The cursor of the change stream.
+     */
+    private MongoChangeStreamCursor<ChangeStreamDocument<Document>> open(@Nullable BsonDocument token) {
+        ChangeStreamIterable<Document> stream = database.storage()
+                .watch()
+                .fullDocument(FullDocument.UPDATE_LOOKUP);
+
+        if (token != null) {
+            stream = stream.resumeAfter(token);
+        }
+
+        return stream.cursor();
+    }
+
+    /**
+     * Applies every change of the cursor into the registry until the stream ends. The stream ends once the
+     * collection was dropped or renamed, in which case the stream is opened again without any token since the
+     * token of the invalidation cannot be resumed after, and the collection is loaded again.
+     *
+     * @param cursor    The cursor of the change stream.
+     */
+    private void follow(MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor) {
+        try (cursor) {
+            while (cursor.hasNext()) {
+                ChangeStreamDocument<Document> change = cursor.next();
+
+                if (change.getOperationType() == OperationType.INVALIDATE) {
+                    resumeToken.set(null);
+                    break;
+                }
+
+                apply(change);
+                resumeToken.set(change.getResumeToken());
+            }
+        } catch (Exception exception) {
+            failed(exception);
+            return;
+        }
+
+        Akari.getLogger().info("The change stream of the feed registry has ended, the stream is opened again.");
+        AlisaThreadPool.getExecutorService().submit(this::watch);
+    }
+
+    /**
+     * Reports the failure of the change stream and follows the stream again after a short delay, streams
+     * that can no longer be resumed start over from a new load of the collection.
+     *
+     * @param exception The failure of the change stream.
+     */
+    private void failed(Exception exception) {
+        if (exception instanceof MongoCommandException command && command.getErrorCode() == CHANGE_STREAM_HISTORY_LOST) {
+            resumeToken.set(null);
+        }
+
+        AlisaExceptionHandler.accept(exception);
+        retry();
+    }
+
+    /**
+     * Schedules the change stream to be followed again after a short delay.
+     */
+    private void retry() {
+        AlisaThreadPool.schedule(
+                () -> AlisaThreadPool.getExecutorService().submit(this::watch),
+                WATCH_RETRY.toSeconds(),
+                TimeUnit.SECONDS
+        );
+    }
+
+    /**
+     * Applies a single change from the change stream into the registry.
+     *
+     * @param change    The change to apply.
+     */
+    private void apply(ChangeStreamDocument<Document> change) {
+        switch (change.getOperationType()) {
+            case INSERT, UPDATE, REPLACE -> {
+                Document document = change.getFullDocument();
+
+                if (document != null) {
+                    AlisaFeedPollView feed = translate(document);
+
+                    if (feed != null) {
+                        feeds.put(feed.unique(), feed);
+                        identifiers.put(identifier(document.get("_id")), feed.unique());
+                        evict(feed.unique());
+                    }
+                }
+            }
+            case DELETE -> {
+                BsonDocument key = change.getDocumentKey();
+
+                if (key != null) {
+                    remove(identifier(key.get("_id")));
+                }
+            }
+            default -> {}
+        }
+    }
+
+    /**
+     * Performs a delta scan over all the feeds that were written since the last known write and performs
+     * a complete reconciliation every few scans. The scan starts slightly before the last known write so that
+     * writes which were committed late, or stamped by a clock that is behind, are still picked up.
+     */
+    private synchronized void scan() {
+        try {
+            String field = database.modified();
+
+            if (field == null || deltaScans.incrementAndGet() % RECONCILE_EVERY == 0) {
+                reload();
+                return;
+            }
+
+            Date last = lastModified.get();
+            Date since = last == null ? new Date(0) : new Date(last.getTime() - DELTA_OVERLAP.toMillis());
+            database.storage().find(database.modifiedSince(since))
+                    .projection(projection.projection())
+                    .sort(database.modifiedOrder())
+                    .forEach(document -> {
+                        AlisaFeedPollView feed = translate(document);
+                        lastModified.accumulateAndGet(modified(document), AkariFeedRegistry::latest);
+
+                        if (feed != null) {
+                            feeds.put(feed.unique(), feed);
+                            identifiers.put(identifier(document.get("_id")), feed.unique());
+                            evict(feed.unique());
+                        }
+                    });
+        } catch (Exception exception) {
+            AlisaExceptionHandler.accept(exception);
+        }
+    }
+
+    /**
+     * Gets the time of the last write of the document.
+     *
+     * @param document  The raw document.
+     * @return          The time of the last write, or null if the document was written without one.
+     */
+    @Nullable
+    private Date modified(Document document) {
+        String field = database.modified();
+
+        if (field == null) {
+            return null;
+        }
+
+        return document.get(field) instanceof Date date ? date : null;
+    }
+
+    @Nullable
+    private static Date latest(@Nullable Date current, @Nullable Date candidate) {
+        if (current == null) {
+            return candidate;
+        }
+
+        return candidate != null && candidate.after(current) ? candidate : current;
+    }
+
+    /**
+     * Removes the feed that is associated with the document identifier.
+     *
+     * @param identifier    The identifier of the document that was deleted.
+     */
+    private void remove(Object identifier) {
+        Long unique = identifiers.remove(identifier);
+
+        if (unique != null) {
+            feeds.remove(unique);
+            evict(unique);
+        }
+    }
+
+    /**
+     * Removes the cached lookups of the feed when the database caches its lookups, the changes
+     * that are followed by the registry include the writes that Ame-chan makes.
+     *
+     * @param unique    The unique identifier of the feed.
+     */
+    private void evict(long unique) {
+        if (database instanceof AlisaCachedDatabase<AlisaFeed> cached) {
+            cached.invalidate(new AlisaIndex("unique", unique));
+        }
+    }
+
+    /**
+     * Translates the document into the view of a feed, documents that are malformed are reported
+     * and skipped instead of failing the entire load.
+     *
+     * @param document  The document to translate, either projected or complete.
+     * @return          The view of the feed of the document, or null if it was malformed.
+     */
+    private AlisaFeedPollView translate(Document document) {
+        try {
+            return projection.mapper().apply(document);
+        } catch (Exception exception) {
+            AlisaExceptionHandler.accept(exception);
+            return null;
+        }
+    }
+
+    /**
+     * Unwraps the identifier of a document into the same type regardless of whether it was
+     * read from a raw document, a decoded {@link Document} or the key of a change.
+     *
+     * @param value The value to unwrap.
+     * @return      The unwrapped identifier.
+     */
+    private static Object identifier(Object value) {
+        if (value instanceof BsonValue bson) {
+            return bson.isObjectId() ? bson.asObjectId().getValue() : bson;
+        }
+
+        return value;
+    }
+
+}
@@ -0,0 +1,93 @@
+package pw.mihou.akari.databases.registry;
+
+import org.bson.types.Binary;
+import pw.mihou.akari.Akari;
+import pw.mihou.akari.configuration.AkariConfiguration;
+import pw.mihou.alisa.modules.AlisaSeenChapters;
+import pw.mihou.alisa.modules.database.AlisaDatabase;
+import pw.mihou.alisa.modules.exceptions.handler.AlisaExceptionHandler;
+import pw.mihou.alisa.modules.filters.AlisaSeenSet;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * {@link AkariSeenRegistry} holds the {@link AlisaSeenSet} of every feed, the persisted windows
+ * and filters are loaded once and every change is written back through {@link AkariSeenRegistry#save(long)}.
+ */
+public class AkariSeenRegistry {
+
+    private final AlisaDatabase<AlisaSeenChapters> database;
+    private final Map<Long, AlisaSeenSet> sets = new ConcurrentHashMap<>();
+    private final AtomicBoolean loaded = new AtomicBoolean(false);
+
+    /**
+     * Creates a new {@link AkariSeenRegistry} that persists into the database specified.
+     *
+     * @param database  The database to persist into.
+     */
+    public AkariSeenRegistry(AlisaDatabase<AlisaSeenChapters> database) {
+        this.database = database;
+    }
+
+    /**
+     * Gets the {@link AlisaSeenSet} of the feed, feeds without a persisted window
+     * receive a fresh set.
+     *
+     * @param unique    The unique identifier of the feed.
+     * @return          The seen set of the feed.
+     */
+    public AlisaSeenSet get(long unique) {
+        load();
+        return sets.computeIfAbsent(unique, key -> new AlisaSeenSet(List.of(), true));
+    }
+
+    /**
+     * Persists the window and the filters of the feed onto the database.
+     *
+     * @param unique    The unique identifier of the feed.
+     */
+    public void save(long unique) {
+        AlisaSeenSet set = sets.get(unique);
+
+        if (set == null) {
+            return;
+        }
+
+        database.upsert(new AlisaSeenChapters(unique, set.window(), new Binary(set.filter()),
+                        new Binary(set.previous()), set.filtered()))
+                .exceptionally(AlisaExceptionHandler::exceptionally);
+    }
+
+    /**
+     * Loads all the persisted windows and filters once.
+     */
+    private void load() {
+        if (loaded.get()) {
+            return;
+        }
+
+        synchronized (this) {
+            if (loaded.get()) {
+                return;
+            }
+
+            // The windows are decoded on several threads while the cursor fetches the next batch.
+            int parallelism = AkariConfiguration.DATABASE_SCAN_PARALLELISM <= 0
+                    ? Runtime.getRuntime().availableProcessors()
+                    : AkariConfiguration.DATABASE_SCAN_PARALLELISM;
+
+            database.scan(null, AkariConfiguration.DATABASE_SCAN_BATCH_SIZE, parallelism,
+                    seen -> sets.put(seen.unique(), new AlisaSeenSet(seen.links(),
+                            seen.filter() == null ? null : seen.filter().getData(),
+                            seen.previous() == null ? null : seen.previous().getData(),
+                            seen.filtered(), false)));
+            loaded.set(true);
+
+            Akari.getLogger().info("The seen chapters were loaded from the database. [count={}]", sets.size());
+        }
+    }
+
+}
@@ -0,0 +1,27 @@
+package pw.mihou.akari.pipeline;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * {@link AkariPipelineItem} is a single unit of work that travels through the stages
+ * of a pipeline, carrying the future that completes once it leaves the pipeline.
+ *
+ * @param value         The value that the next stage will process.
+ * @param completion    The future to complete once this item leaves the pipeline.
+ * @param <Type>        The type of the value.
+ */
+public record AkariPipelineItem<Type>(Type value, CompletableFuture<Void> completion) {
+
+    /**
+     * Creates a new {@link AkariPipelineItem} that carries a different value
+     * but completes the same future.
+     *
+     * @param value     The new value to carry.
+     * @param <T>       The type of the new value.
+     * @return          The item for the next stage.
+     */
+    public <T> AkariPipelineItem<T> next(T value) {
+        return new AkariPipelineItem<>(value, completion);
+    }
+
+}
@@ -0,0 +1,225 @@
+package pw.mihou.akari.pipeline;
+
+import pw.mihou.akari.Akari;
+import pw.mihou.alisa.modules.exceptions.handler.AlisaExceptionHandler;
+import pw.mihou.alisa.modules.metrics.AlisaMetrics;
+import pw.mihou.alisa.modules.metrics.modules.AlisaCounter;
+import pw.mihou.alisa.modules.threadpools.AlisaThreadPool;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * {@link AkariPipelineStage} is a single stage of a pipeline which owns a bounded hand-off queue
+ * and a fixed number of workers. Submitting into a full stage blocks the caller which means that
+ * a slow stage slows down every stage before it instead of letting the queues grow.
+ *
+ * @param <Input>   The type that this stage accepts.
+ * @param <Output>  The type that this stage produces.
+ */
+public class AkariPipelineStage<Input, Output> {
+
+    private final String name;
+    private final int workers;
+    private final BlockingQueue<AkariPipelineItem<Input>> queue;
+    private final Function<Input, Output> operation;
+    private final AtomicReference<AkariPipelineStage<Output, ?>> downstream = new AtomicReference<>(null);
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private final AtomicLong processed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong busy = new AtomicLong();
+
+    private final AlisaCounter processedTotal;
+    private final AlisaCounter failedTotal;
+
+    /**
+     * Creates a new {@link AkariPipelineStage} with a bounded queue.
+     *
+     * @param name      The name of this stage, used for logging.
+     * @param workers   The amount of workers that will process this stage concurrently.
+     * @param capacity  The maximum amount of items that can wait in this stage.
+     * @param operation The operation to perform, returning null ends the pipeline for the item.
+     */
+    public AkariPipelineStage(String name, int workers, int capacity, Function<Input, Output> operation) {
+        this.name = name;
+        this.workers = Math.max(1, workers);
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, capacity));
+        this.operation = operation;
+
+        AlisaMetrics.gauge("akari_pipeline_queue_depth", "The amount of items waiting in a pipeline stage.", this::depth, "stage", name);
+        this.processedTotal = AlisaMetrics.counter("akari_pipeline_processed_total", "The amount of items processed by a pipeline stage.", "stage", name);
+        this.failedTotal = AlisaMetrics.counter("akari_pipeline_failed_total", "The amount of items that failed in a pipeline stage.", "stage", name);
+        AlisaMetrics.gauge("akari_pipeline_throughput", "The items processed per second of worker time in a pipeline stage.", this::throughput, "stage", name);
+    }
+
+    /**
+     * Connects the output of this stage into the stage specified.
+     *
+     * @param stage The stage that will receive the output of this stage.
+     * @param <T>   The output type of the next stage.
+     * @return      The next stage for chain-calling methods.
+     */
+    public <T> AkariPipelineStage<Output, T> to(AkariPipelineStage<Output, T> stage) {
+        downstream.set(stage);
+        return stage;
+    }
+
+    /**
+     * Submits an item into this stage, blocking until there is space in the queue.
+     *
+     * @param item                      The item to submit.
+     * @throws InterruptedException     If the thread was interrupted while waiting.
+     */
+    public void submit(AkariPipelineItem<Input> item) throws InterruptedException {
+        queue.put(item);
+    }
+
+    /**
+     * Starts all the workers of this stage, this does nothing if the stage is
+     * already running.
+     */
+    public void start() {
+        if (!running.compareAndSet(false, true)) {
+            return;
+        }
+
+        for (int i = 0; i < workers; i++) {
+            AlisaThreadPool.getExecutorService().submit(this::work);
+        }
+    }
+
+    /**
+     * Stops all the workers of this stage once they finish their current item.
+     */
+    public void stop() {
+        running.set(false);
+    }
+
+    /**
+     * Continuously takes items from the queue and hands their output to the next stage
+     * until this stage is stopped.
+     */
+    private void work() {
+        while (running.get()) {
+            AkariPipelineItem<Input> item;
+            try {
+                item = queue.poll(1, TimeUnit.SECONDS);
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+
+            if (item == null) {
+                continue;
+            }
+
+            long start = System.nanoTime();
+            try {
+                Output output = operation.apply(item.value());
+                busy.addAndGet(System.nanoTime() - start);
+                processed.incrementAndGet();
+                processedTotal.increment();
+
+                AkariPipelineStage<Output, ?> next = downstream.get();
+                if (output == null || next == null) {
+                    item.completion().complete(null);
+                    continue;
+                }
+
+                next.submit(item.next(output));
+            } catch (InterruptedException exception) {
+                item.completion().complete(null);
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception exception) {
+                failed.incrementAndGet();
+                failedTotal.increment();
+                Akari.getLogger().error("An item has failed in the pipeline. [stage={}]", name);
+                AlisaExceptionHandler.accept(exception);
+                item.completion().complete(null);
+            }
+        }
+    }
+
+    /**
+     * Gets the name of this stage.
+     *
+     * @return  The name of this stage.
+     */
+    public String name() {
+        return name;
+    }
+
+    /**
+     * Gets the amount of workers of this stage.
+     *
+     * @return  The amount of workers of this stage.
+     */
+    public int workers() {
+        return workers;
+    }
+
+    /**
+     * Gets the amount of items that are waiting in this stage.
+     *
+     * @return  The depth of the queue of this stage.
+     */
+    public int depth() {
+        return queue.size();
+    }
+
+    /**
+     * Gets the maximum amount of items that can wait in this stage.
+     *
+     * @return  The capacity of the queue of this stage.
+     */
+    public int capacity() {
+        return queue.size() + queue.remainingCapacity();
+    }
+
+    /**
+     * Gets the total amount of items that this stage has processed.
+     *
+     * @return  The amount of items processed.
+     */
+    public long processed() {
+        return processed.get();
+    }
+
+    /**
+     * Gets the total amount of items that this stage has failed to process.
+     *
+     * @return  The amount of items failed.
+     */
+    public long failed() {
+        return failed.get();
+    }
+
+    /**
+     * Gets the throughput of this stage as the amount of items processed for every
+     * second that the workers spent processing, the time of every worker is added up.
+     *
+     * @return  The throughput of this stage in items per second of worker time.
+     */
+    public double throughput() {
+        long nanos = busy.get();
+
+        if (nanos == 0) {
+            return 0;
+        }
+
+        return processed.get() / (nanos / 1_000_000_000.0);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s(depth=%d/%d, processed=%d, failed=%d, throughput=%.2f/s)",
+                name, depth(), capacity(), processed(), failed(), throughput());
+    }
+}
@@ -5,30 +5,103 @@ import io.javalin.core.util.JavalinException;
 import io.javalin.websocket.WsContext;
 import pw.mihou.akari.Akari;
 import pw.mihou.akari.configuration.AkariConfiguration;
+import pw.mihou.akari.databases.AkariDatabases;
 import pw.mihou.akari.websocket.defaults.AkariDefaultMessages;
 import pw.mihou.akari.websocket.facade.AkariWebsocket;
 import pw.mihou.akari.websocket.listeners.AkariWebsocketListener;
 import pw.mihou.akari.websocket.listeners.AkariWebsocketListenerRepository;
+import pw.mihou.akari.websocket.outbox.AkariOutbox;
+import pw.mihou.akari.websocket.routing.AkariWebsocketRouter;
 import pw.mihou.alisa.modules.AlisaMessage;
+import pw.mihou.alisa.modules.AlisaOutboxMessage;
+import pw.mihou.alisa.modules.broadcasts.AlisaBatch;
+import pw.mihou.alisa.modules.codec.AlisaEncoding;
 import pw.mihou.alisa.modules.exceptions.AlisaException;
 import pw.mihou.alisa.modules.exceptions.handler.AlisaExceptionHandler;
-
+import pw.mihou.alisa.modules.metrics.AlisaMetrics;
+import pw.mihou.alisa.modules.requests.AlisaSubscribeRequest;
+import pw.mihou.alisa.modules.subscriptions.AlisaTopic;
+import pw.mihou.alisa.modules.threadpools.AlisaThreadPool;
+
+import javax.annotation.Nullable;
+import javax.servlet.DispatcherType;
+import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 public class AkariWebsocketCore implements AkariWebsocket {
 
-    private final BlockingQueue<AlisaMessage> messages = new LinkedBlockingQueue<>();
-    private final Map<String, WsContext> sessions = new ConcurrentHashMap<>();
+    // Holds the broadcasts that were sent while there were no sessions connected, these are routed
+    // to the sessions of their topics once one connects.
+    private final BlockingQueue<AkariWebsocketRouted> messages = new LinkedBlockingQueue<>(AkariConfiguration.WEBSOCKET_QUEUE_CAPACITY);
+    private final Map<String, AkariWebsocketSession> sessions = new ConcurrentHashMap<>();
+
+    // Holds the broadcasts of the current batch window when batching is enabled, the window is numbered
+    // so that the timer of a window that was already flushed leaves the next window alone.
+    private final List<AkariWebsocketRouted> batch = new ArrayList<>();
+    private long window = 0;
+    @Nullable private ScheduledFuture<?> windowTimer = null;
+
+    private final AkariWebsocketRouter router = new AkariWebsocketRouter();
+
+    // Persists the broadcasts for the clients that resume, this is null when the outbox is disabled.
+    @Nullable private final AkariOutbox outbox = AkariConfiguration.WEBSOCKET_OUTBOX
+            ? new AkariOutbox(AkariDatabases.OUTBOX, AkariDatabases.OUTBOX_CURSORS)
+            : null;
 
     private final Javalin javalin;
 
-    private final AtomicBoolean open = new AtomicBoolean(false);
     private final AtomicBoolean closing = new AtomicBoolean(false);
 
+    // Publishers hold the read lock while they admit a broadcast, the drain takes the write lock to
+    // wait for the broadcasts that were admitted before it started and to collect the late ones.
+    private final ReadWriteLock admission = new ReentrantReadWriteLock();
+    private final List<AkariWebsocketRouted> late = new ArrayList<>();
+    private boolean collected = false;
+
+    // Counts the messages that were left undelivered by the drain, including the broadcasts
+    // that arrived after the websocket stopped accepting them.
+    private final AtomicLong persisted = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final CompletableFuture<AkariWebsocketDrain> drained = new CompletableFuture<>();
+
     public AkariWebsocketCore() {
-        this.javalin = Javalin.create(config -> config.showJavalinBanner = false)
+        this.javalin = Javalin.create(config -> {
+                    config.showJavalinBanner = false;
+
+                    // Jetty registers permessage-deflate by default, clients that offer it during the
+                    // handshake have every frame compressed and clients that do not are left as-is.
+                    if (AkariConfiguration.WEBSOCKET_COMPRESSION) {
+                        config.wsFactoryConfig(factory -> {
+                            if (!factory.getAvailableExtensionNames().contains("permessage-deflate")) {
+                                Akari.getLogger().warn("The websocket cannot compress frames since permessage-deflate is unavailable. [extensions={}]",
+                                        factory.getAvailableExtensionNames());
+                            }
+                        });
+                    } else {
+                        config.configureServletContextHandler(handler -> handler.addFilter(
+                                AkariWebsocketExtensionFilter.class, "/*", EnumSet.of(DispatcherType.REQUEST)
+                        ));
+                    }
+                })
+                .get("/metrics", context -> {
+                    String authorization = context.header("Authorization");
+
+                    // Scrapers such as Prometheus send the scheme as "Bearer", which is why the
+                    // scheme is compared without minding the case.
+                    if (authorization == null
+                            || !authorization.regionMatches(true, 0, "BEARER ", 0, 7)
+                            || !authorization.substring(7).equals(AkariConfiguration.SECRET)) {
+                        context.status(401).result(AkariDefaultMessages.INVALID_AUTHORIZATION);
+                        return;
+                    }
+
+                    context.contentType(AlisaMetrics.CONTENT_TYPE).result(AlisaMetrics.scrape());
+                })
                 .ws("/", config -> {
                     config.onConnect(connection -> {
                         if (closing.get()) {
@@ -48,20 +121,64 @@ public class AkariWebsocketCore implements AkariWebsocket {
                             return;
                         }
 
-                        sessions.put(connection.getSessionId(), connection);
+                        AlisaEncoding encoding = AlisaEncoding.of(parameter(connection, AlisaEncoding.HEADER));
+
+                        String client = outbox == null ? null : parameter(connection, AkariOutbox.CLIENT_HEADER);
+
+                        if (AkariOutbox.SEQUENCE_CURSOR.equals(client)) {
+                            client = null;
+                        }
+
+                        AkariWebsocketSession session = new AkariWebsocketSession(
+                                connection, encoding, client, AkariWebsocketLimits.configured()
+                        );
+
+                        // Paused sessions that resume from the outbox receive what they missed
+                        // while they were paused once they have drained.
+                        if (client != null) {
+                            session.onResume(after -> AlisaThreadPool.getExecutorService().submit(() -> replay(session, after)));
+                        }
+
+                        synchronized (sessions) {
+                            router.restore(session);
+                            sessions.put(connection.getSessionId(), session);
+                            router.rebuild(sessions.values());
+                        }
+
+                        // Sessions that resume hold back the broadcasts that they receive until the backlog
+                        // is replayed, which keeps the replayed messages ahead of anything newer without
+                        // reading the outbox while every broadcast waits on the sessions.
+                        if (client != null) {
+                            long after = resume(connection, client);
+                            Objects.requireNonNull(outbox).register(client, after);
+                            replay(session, after);
+                        }
+
                         Akari.getLogger().info(
-                                "A connection was established. [session={}, address={}]",
+                                "A connection was established. [session={}, address={}, encoding={}, client={}, replayed={}]",
                                 connection.getSessionId(),
-                                connection.session.getRemoteAddress().toString()
+                                connection.session.getRemoteAddress().toString(),
+                                encoding,
+                                client,
+                                session.depth()
                         );
 
-                        // This is to ensure that for every session added, the queue is
-                        // started.
-                        startQueue();
+                        // This is to ensure that the messages that were held back while there
+                        // were no sessions are sent once a session is available.
+                        flushPending();
                     });
 
                     config.onClose(connection -> {
-                        sessions.remove(connection.getSessionId());
+                        synchronized (sessions) {
+                            AkariWebsocketSession session = sessions.remove(connection.getSessionId());
+
+                            if (session != null) {
+                                session.close();
+                                router.remove(session);
+                                router.rebuild(sessions.values());
+                            }
+                        }
+
                         Akari.getLogger().info(
                                 "A connection was closed. [session={}, address={}]",
                                 connection.getSessionId(),
@@ -80,7 +197,17 @@ public class AkariWebsocketCore implements AkariWebsocket {
                             return;
                         }
 
-                        AkariWebsocketListenerRepository.send(this, connection);
+                        AkariWebsocketListenerRepository.send(this, connection, connection.message());
+                    });
+
+                    config.onBinaryMessage(connection -> {
+                        // Binary clients are rejected with the same raw text frame as text clients.
+                        if (closing.get()) {
+                            connection.send(AkariDefaultMessages.UNACCEPTED_CLOSING);
+                            return;
+                        }
+
+                        AkariWebsocketListenerRepository.send(this, connection, connection.data(), connection.offset(), connection.length());
                     });
 
                     config.onError(connection -> {
@@ -100,12 +227,319 @@ public class AkariWebsocketCore implements AkariWebsocket {
                     });
                 });
 
+        AlisaMetrics.gauge("akari_websocket_queue_depth", "The amount of messages waiting to be broadcast.", this::depth);
+        AlisaMetrics.gauge("akari_websocket_sessions", "The amount of sessions connected to the websocket.", sessions::size);
+
+        // The hook blocks until the drain has finished, the JVM would otherwise exit with
+        // the queues of the sessions still full.
         Runtime.getRuntime().addShutdownHook(new Thread(this::stop));
     }
 
     @Override
     public void send(Object object) {
-        messages.add(new AlisaMessage(object, object.getClass().getName()));
+        publish(null, object);
+    }
+
+    @Override
+    public void send(AlisaTopic topic, Object object) {
+        publish(topic, object);
+    }
+
+    /**
+     * Persists the data into the outbox and broadcasts it to the sessions of the topic.
+     *
+     * @param topic     The topic of the data, or null to broadcast to every session.
+     * @param object    The data to broadcast.
+     */
+    private void publish(@Nullable AlisaTopic topic, Object object) {
+        admission.readLock().lock();
+        try {
+            AlisaMessage message = new AlisaMessage(object, object.getClass().getName());
+
+            if (outbox != null) {
+                message = outbox.append(message, topic);
+            }
+
+            // Broadcasts that arrive while the websocket is draining are kept for the next start,
+            // either by the outbox or by the drain when the outbox is disabled.
+            if (closing.get()) {
+                keep(new AkariWebsocketRouted(message, topic));
+                return;
+            }
+
+            if (AkariConfiguration.WEBSOCKET_BATCHING) {
+                batch(new AkariWebsocketRouted(message, topic));
+                return;
+            }
+
+            broadcast(message, topic);
+        } finally {
+            admission.readLock().unlock();
+        }
+    }
+
+    /**
+     * Adds the message into the current batch, the batch is flushed once it reaches the size
+     * threshold or once the batch window that started with its first message has passed.
+     *
+     * @param message   The message to add into the batch.
+     */
+    private void batch(AkariWebsocketRouted message) {
+        boolean full;
+        synchronized (batch) {
+            batch.add(message);
+            full = batch.size() >= AkariConfiguration.WEBSOCKET_BATCH_SIZE;
+
+            if (batch.size() == 1 && !full) {
+                long opened = window;
+                windowTimer = AlisaThreadPool.schedule(
+                        () -> AlisaThreadPool.getExecutorService().submit(() -> flushBatch(opened)),
+                        AkariConfiguration.WEBSOCKET_BATCH_WINDOW_MILLIS,
+                        TimeUnit.MILLISECONDS
+                );
+            }
+        }
+
+        if (full) {
+            flushBatch();
+        }
+    }
+
+    /**
+     * Broadcasts all the messages of the current batch as a single {@link AlisaBatch}, a batch
+     * with only one message is broadcast as the message itself. Every session receives only the
+     * messages of its topics, sessions that receive the same messages share the same frame.
+     */
+    private void flushBatch() {
+        flushBatch(null);
+    }
+
+    /**
+     * Broadcasts the current batch when it still belongs to the window specified, see {@link AkariWebsocketCore#flushBatch()}.
+     *
+     * @param opened    The window that the batch must belong to, or null to flush any batch.
+     */
+    private void flushBatch(@Nullable Long opened) {
+        admission.readLock().lock();
+        try {
+            flushBatchAdmitted(opened);
+        } finally {
+            admission.readLock().unlock();
+        }
+    }
+
+    /**
+     * Broadcasts the current batch, see {@link AkariWebsocketCore#flushBatch()}. The timer of the window is cancelled
+     * since the batch that it was meant for is gone, the next batch starts a window of its own. This must be called
+     * while holding the read lock of the admission.
+     *
+     * @param opened    The window that the batch must belong to, or null to flush any batch.
+     */
+    private void flushBatchAdmitted(@Nullable Long opened) {
+        List<AkariWebsocketRouted> messages;
+        synchronized (batch) {
+            if (batch.isEmpty() || (opened != null && opened != window)) {
+                return;
+            }
+
+            messages = List.copyOf(batch);
+            batch.clear();
+            window++;
+
+            if (windowTimer != null) {
+                windowTimer.cancel(false);
+                windowTimer = null;
+            }
+        }
+
+        if (messages.size() == 1) {
+            broadcast(messages.get(0).message(), messages.get(0).topic());
+            return;
+        }
+
+        synchronized (sessions) {
+            if (!sessions.isEmpty()) {
+                Map<List<Integer>, AkariWebsocketFrame> frames = new HashMap<>();
+
+                for (AkariWebsocketSession session : sessions.values()) {
+                    List<Integer> selected = new ArrayList<>();
+                    for (int i = 0; i < messages.size(); i++) {
+                        if (router.matches(session, messages.get(i).topic())) {
+                            selected.add(i);
+                        }
+                    }
+
+                    if (selected.isEmpty()) {
+                        continue;
+                    }
+
+                    enqueue(session, frames.computeIfAbsent(selected, key -> AkariWebsocketFrame.of(
+                            key.stream().map(messages::get).toList()
+                    )));
+                }
+
+                return;
+            }
+        }
+
+        // Held messages keep their own topics, which is why a batch is held message by message.
+        messages.forEach(this::hold);
+    }
+
+    /**
+     * Broadcasts the message to every session of the topic.
+     *
+     * @param message   The message to broadcast.
+     * @param topic     The topic of the message, or null to broadcast to every session.
+     */
+    private void broadcast(AlisaMessage message, @Nullable AlisaTopic topic) {
+        synchronized (sessions) {
+            if (!sessions.isEmpty()) {
+                // The message is encoded once here and the same frame is shared by every session.
+                AkariWebsocketFrame frame = AkariWebsocketFrame.of(message, topic);
+                router.route(topic).forEach(session -> enqueue(session, frame));
+                return;
+            }
+        }
+
+        hold(new AkariWebsocketRouted(message, topic));
+    }
+
+    /**
+     * Holds the message along with its topic until a session connects. The queue is bounded and the
+     * publishers wait for room when it is full, which slows the feed pipeline down instead of dropping
+     * the message or growing the heap. The wait ends once a session connects and takes the held
+     * messages, or once the websocket starts draining, in which case the message is kept the same way
+     * as the broadcasts that arrive while draining.
+     *
+     * @param message   The message to hold.
+     */
+    private void hold(AkariWebsocketRouted message) {
+        try {
+            while (!messages.offer(message, AkariConfiguration.WEBSOCKET_QUEUE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                if (closing.get()) {
+                    keep(message);
+                    return;
+                }
+
+                AlisaMetrics.counter("akari_websocket_held_waits_total", "The amount of times a publisher waited for room while no session was connected.")
+                        .increment();
+            }
+
+            // A session may have connected while this message was being held back.
+            flushPending();
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            keep(message);
+        }
+    }
+
+    /**
+     * Keeps the broadcast that can no longer be delivered because the websocket is draining, the broadcast
+     * is either already in the outbox or is collected by the drain and spooled when the outbox is disabled.
+     * This must be called while holding the read lock of the admission.
+     *
+     * @param message   The broadcast to keep.
+     */
+    private void keep(AkariWebsocketRouted message) {
+        if (message.message().sequence() != null) {
+            persisted.incrementAndGet();
+        } else if (outbox == null && AkariConfiguration.WEBSOCKET_SPOOL && !collected) {
+            synchronized (late) {
+                late.add(message);
+            }
+        } else {
+            dropped.incrementAndGet();
+        }
+    }
+
+    @Override
+    public void subscribe(String session, AlisaSubscribeRequest subscription) {
+        synchronized (sessions) {
+            AkariWebsocketSession target = sessions.get(session);
+
+            if (target == null) {
+                return;
+            }
+
+            router.subscribe(target, subscription);
+            router.rebuild(sessions.values());
+        }
+
+        Akari.getLogger().info("A session has subscribed to topics. [session={}, feeds={}, servers={}]",
+                session,
+                subscription.feeds(),
+                subscription.servers()
+        );
+    }
+
+    /**
+     * Replays every message in the outbox after the sequence number that the session is
+     * subscribed to, this ends the replay of the session even if the outbox fails.
+     *
+     * @param session   The session to replay to.
+     * @param after     The sequence number to replay after.
+     */
+    private void replay(AkariWebsocketSession session, long after) {
+        List<AkariWebsocketFrame> frames = List.of();
+        try {
+            frames = Objects.requireNonNull(outbox).replay(after).stream()
+                    .filter(message -> router.matches(session, message.topic()))
+                    .map(message -> AkariWebsocketFrame.of(message.message(), message.topic()))
+                    .toList();
+        } catch (Exception exception) {
+            AlisaExceptionHandler.accept(exception);
+        } finally {
+            session.replay(frames);
+        }
+    }
+
+    /**
+     * Gets the sequence number that the client resumes after, this is the sequence number
+     * that the client sent during the handshake or the last one it acknowledged. Clients that
+     * were never seen before receive everything that is still in the outbox.
+     *
+     * @param connection    The connection of the client.
+     * @param client        The identifier of the client.
+     * @return              The sequence number to resume after.
+     */
+    private long resume(WsContext connection, String client) {
+        String resume = parameter(connection, AkariOutbox.RESUME_HEADER);
+
+        try {
+            if (resume != null && !resume.isBlank()) {
+                return Long.parseLong(resume);
+            }
+        } catch (NumberFormatException exception) {
+            AlisaExceptionHandler.accept(exception);
+        }
+
+        return Objects.requireNonNullElse(Objects.requireNonNull(outbox).acknowledged(client), 0L);
+    }
+
+    /**
+     * Gets the value that the client sent during the handshake either as a header or,
+     * for clients that cannot set headers, as a query parameter of the same name.
+     *
+     * @param connection    The connection of the client.
+     * @param name          The name of the header.
+     * @return              The value of the header, if present.
+     */
+    @Nullable
+    private static String parameter(WsContext connection, String name) {
+        String header = connection.header(name);
+        return header != null ? header : connection.queryParam(name);
+    }
+
+    @Override
+    public void acknowledge(String session, long sequence) {
+        AkariWebsocketSession target = sessions.get(session);
+
+        if (outbox == null || target == null || target.client() == null) {
+            return;
+        }
+
+        outbox.acknowledge(target.client(), sequence);
     }
 
     @Override
@@ -117,11 +551,66 @@ public class AkariWebsocketCore implements AkariWebsocket {
             return;
         }
 
-        sessions.get(session).send(new AlisaMessage(object, object.getClass().getName()));
+        enqueue(sessions.get(session), AkariWebsocketFrame.of(new AlisaMessage(object, object.getClass().getName())));
+    }
+
+    /**
+     * Gets the amount of messages that are waiting to be sent, including the messages
+     * that are waiting for a session to connect.
+     *
+     * @return  The amount of messages waiting to be sent.
+     */
+    public int depth() {
+        return messages.size() + sessions.values().stream().mapToInt(AkariWebsocketSession::depth).sum();
+    }
+
+    /**
+     * Queues the frame onto the session, frames that the session does not accept because
+     * of its overload policy are dropped for that session alone.
+     *
+     * @param session   The session to queue the frame onto.
+     * @param message   The frame to queue.
+     */
+    private void enqueue(AkariWebsocketSession session, AkariWebsocketFrame message) {
+        if (!session.enqueue(message)) {
+            AlisaMetrics.counter("akari_websocket_messages_dropped_total", "The amount of messages dropped for slow sessions.")
+                    .increment();
+            Akari.getLogger().debug("A message was not queued for a slow session. [session={}, depth={}, bytes={}, paused={}]",
+                    session.id(),
+                    session.depth(),
+                    session.bytes(),
+                    session.paused()
+            );
+        }
+    }
+
+    /**
+     * Routes all the messages that were held back while there were no sessions to the sessions
+     * of their topics. Sessions that resume from the outbox have already received the messages
+     * that are in the outbox through their replay and only receive the messages that the outbox
+     * does not hold. This does nothing while there are still no sessions.
+     */
+    private void flushPending() {
+        synchronized (sessions) {
+            if (sessions.isEmpty()) {
+                return;
+            }
+
+            AkariWebsocketRouted routed;
+            while ((routed = messages.poll()) != null) {
+                AkariWebsocketFrame frame = AkariWebsocketFrame.of(routed.message(), routed.topic());
+                boolean replayed = routed.message().sequence() != null;
+                router.route(routed.topic()).stream()
+                        .filter(session -> session.client() == null || !replayed)
+                        .forEach(session -> enqueue(session, frame));
+            }
+        }
     }
 
     @Override
     public void start() {
+        unspool();
+
         try {
             javalin.start("0.0.0.0", AkariConfiguration.WEBSOCKET_PORT);
         } catch (JavalinException exception) {
@@ -131,83 +620,189 @@ public class AkariWebsocketCore implements AkariWebsocket {
 
     @Override
     public void stop() {
+        drain();
+    }
+
+    /**
+     * Stops accepting connections and messages, then waits for every session to write what is left
+     * in its queue until the drain deadline passes. The sessions write their queues concurrently, the
+     * deadline is shared by all of them instead of being given to each session. Messages that are still
+     * undelivered once the deadline passes remain in the outbox for the clients that resume on the next
+     * start. While the outbox is disabled the undelivered broadcasts are written into it by the drain and
+     * are held back for the first sessions of the next start, unless {@link AkariConfiguration#WEBSOCKET_SPOOL}
+     * is disabled as well, only frames that are not broadcasts are dropped.
+     * <br><br>
+     * This blocks until the drain has finished, calling this again returns the report of the first drain.
+     *
+     * @return  The report of the drain.
+     */
+    public AkariWebsocketDrain drain() {
+        if (!closing.compareAndSet(false, true)) {
+            return drained.join();
+        }
+
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(AkariConfiguration.WEBSOCKET_DRAIN_DEADLINE_MILLIS);
         try {
-            if (closing.get()) {
-                return;
+            Akari.getLogger().info("The websocket is now performing graceful message sending... [sessions={}, depth={}, deadline={}ms]",
+                    sessions.size(),
+                    depth(),
+                    AkariConfiguration.WEBSOCKET_DRAIN_DEADLINE_MILLIS
+            );
+            flushBatch();
+
+            // Waits for the publishers that were admitted before the drain started, nothing is
+            // held or queued for the sessions from here on.
+            admission.writeLock().lock();
+            admission.writeLock().unlock();
+
+            List<AkariWebsocketSession> targets = List.copyOf(sessions.values());
+            long before = targets.stream().mapToLong(AkariWebsocketSession::sent).sum();
+
+            while (System.nanoTime() < deadline && !targets.stream().allMatch(AkariWebsocketSession::idle)) {
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException exception) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
             }
 
-            closing.set(true);
-            Akari.getLogger().info("The websocket is now performing graceful message sending...");
-            if (open.get()) {
-                return;
+            long flushed = targets.stream().mapToLong(AkariWebsocketSession::sent).sum() - before;
+
+            // The same frame, and the same message within different batches, is shared by every
+            // session that it was routed to which is why the undelivered messages are counted once.
+            Set<AkariWebsocketFrame> undelivered = Collections.newSetFromMap(new IdentityHashMap<>());
+            targets.forEach(session -> undelivered.addAll(session.pending()));
+
+            Set<AlisaMessage> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+            List<AkariWebsocketRouted> leftovers = new ArrayList<>();
+            messages.drainTo(leftovers);
+
+            for (AkariWebsocketFrame frame : undelivered) {
+                if (frame.routed().isEmpty()) {
+                    dropped.incrementAndGet();
+                    continue;
+                }
+
+                frame.routed().stream()
+                        .filter(routed -> seen.add(routed.message()))
+                        .forEach(leftovers::add);
             }
 
-            if (!messages.isEmpty()) {
-                startQueue();
+            admission.writeLock().lock();
+            try {
+                synchronized (late) {
+                    leftovers.addAll(late);
+                    late.clear();
+                }
+
+                collected = true;
+            } finally {
+                admission.writeLock().unlock();
             }
-        } catch (JavalinException exception) {
+
+            if (outbox == null && AkariConfiguration.WEBSOCKET_SPOOL) {
+                spool(leftovers);
+            } else {
+                for (AkariWebsocketRouted message : leftovers) {
+                    (outbox != null && message.message().sequence() != null ? persisted : dropped).incrementAndGet();
+                }
+            }
+
+            finishedQueueOnClosing();
+
+            AkariWebsocketDrain report = new AkariWebsocketDrain(flushed, persisted.get(), dropped.get(),
+                    Duration.ofNanos(System.nanoTime() - start));
+            Akari.getLogger().info("The websocket has finished draining. [flushed={}, persisted={}, dropped={}, elapsed={}ms]",
+                    report.flushed(),
+                    report.persisted(),
+                    report.dropped(),
+                    report.elapsed().toMillis()
+            );
+
+            drained.complete(report);
+            return report;
+        } catch (Exception exception) {
             AlisaExceptionHandler.accept(exception);
+
+            AkariWebsocketDrain report = new AkariWebsocketDrain(0, persisted.get(), dropped.get(),
+                    Duration.ofNanos(System.nanoTime() - start));
+            drained.complete(report);
+            return report;
         }
     }
 
     /**
-     * Pushes the stop execution after confirming that all messages were sent
-     * to their respective clients without an issue.
+     * Writes the undelivered broadcasts into the outbox while the outbox is disabled, the next
+     * start then holds them back for the first sessions through {@link AkariWebsocketCore#unspool()}.
+     *
+     * @param leftovers The undelivered broadcasts.
      */
-    public void finishedQueueOnClosing() {
-        try {
-            Akari.getLogger().info("Closing websocket connection....");
-            javalin.stop();
-        } catch (JavalinException exception) {
-            AlisaExceptionHandler.accept(exception);
+    private void spool(List<AkariWebsocketRouted> leftovers) {
+        if (leftovers.isEmpty()) {
+            return;
         }
+
+        AkariOutbox spool = new AkariOutbox(AkariDatabases.OUTBOX, AkariDatabases.OUTBOX_CURSORS);
+
+        int appended = 0;
+        for (AkariWebsocketRouted message : leftovers) {
+            if (spool.append(message.message(), message.topic()).sequence() != null) {
+                appended++;
+            }
+        }
+
+        spool.flush();
+
+        // Messages that failed to be written remain pending in the spool.
+        int written = appended - spool.pending();
+        persisted.addAndGet(written);
+        dropped.addAndGet(leftovers.size() - written);
     }
 
     /**
-     * Pushes the queue active to start broadcasting messages onto the global
-     * broadcast channels.
+     * Holds back the broadcasts that the last drain has left in the outbox while the outbox was
+     * disabled, this does nothing while the outbox is enabled since the outbox replays them to the
+     * clients that resume, or while the spool is disabled to keep the websocket usable without a database.
      */
-    private void startQueue() {
-        CompletableFuture.runAsync(() -> {
-            if (open.get()) {
-                return;
-            }
-
-            if (sessions.isEmpty()) {
-                Akari.getLogger().error("There are no sessions active on the socket, pushing all messages back until a session opens.");
-                return;
-            }
+    private void unspool() {
+        if (outbox != null || !AkariConfiguration.WEBSOCKET_SPOOL) {
+            return;
+        }
 
-            open.set(true);
-            while (!messages.isEmpty()) {
-                AlisaMessage message = messages.poll();
+        try {
+            List<AlisaOutboxMessage> spooled = new AkariOutbox(AkariDatabases.OUTBOX, AkariDatabases.OUTBOX_CURSORS).unspool();
 
-                if (message != null) {
-                    sessions.values().forEach(connection -> {
-                        try {
-                            String messageable = message.toMessageable(Akari.getMoshi());
+            // The sequence numbers of the spool mean nothing to clients while the outbox is disabled.
+            spooled.forEach(message -> hold(new AkariWebsocketRouted(
+                    new AlisaMessage(message.data(), message.className()), message.topic()
+            )));
 
-                            connection.send(messageable).get();
-                            Akari.getLogger().debug("A message was sent to a client. [session={}, message={}]",
-                                    connection.getSessionId(),
-                                    messageable
-                            );
-                        } catch (InterruptedException | ExecutionException e) {
-                            // Don't queue the message again since another client might have received it already.
-                            AlisaExceptionHandler.accept(e);
-                        }
-                    });
-                } else {
-                    AlisaExceptionHandler.accept(
-                            new NoSuchElementException("A message polled has returned null, what does that mean?")
-                    );
-                }
+            if (!spooled.isEmpty()) {
+                Akari.getLogger().info("The broadcasts left undelivered by the last drain are held back. [count={}]", spooled.size());
             }
-            open.set(false);
+        } catch (Exception exception) {
+            AlisaExceptionHandler.accept(exception);
+        }
+    }
 
-            if (closing.get()) {
-                finishedQueueOnClosing();
+    /**
+     * Pushes the stop execution after confirming that all messages were sent
+     * to their respective clients without an issue.
+     */
+    public void finishedQueueOnClosing() {
+        try {
+            Akari.getLogger().info("Closing websocket connection....");
+
+            if (outbox != null) {
+                outbox.flush();
             }
-        });
+
+            javalin.stop();
+        } catch (JavalinException exception) {
+            AlisaExceptionHandler.accept(exception);
+        }
     }
+
 }
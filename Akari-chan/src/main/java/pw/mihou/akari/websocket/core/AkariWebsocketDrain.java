@@ -0,0 +1,24 @@
+package pw.mihou.akari.websocket.core;
+
+import java.time.Duration;
+
+/**
+ * {@link AkariWebsocketDrain} is the report of a graceful shutdown of the websocket.
+ *
+ * @param flushed   The amount of messages that were written to the sessions during the drain.
+ * @param persisted The amount of undelivered messages that remain in the outbox for the next start.
+ * @param dropped   The amount of undelivered messages that could not be kept.
+ * @param elapsed   The time that the drain took.
+ */
+public record AkariWebsocketDrain(long flushed, long persisted, long dropped, Duration elapsed) {
+
+    /**
+     * Checks whether every message was delivered before the deadline.
+     *
+     * @return  Whether nothing was left undelivered.
+     */
+    public boolean complete() {
+        return persisted == 0 && dropped == 0;
+    }
+
+}
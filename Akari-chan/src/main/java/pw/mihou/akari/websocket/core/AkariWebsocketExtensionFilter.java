@@ -0,0 +1,55 @@
+package pw.mihou.akari.websocket.core;
+
+import javax.servlet.*;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Enumeration;
+
+/**
+ * {@link AkariWebsocketExtensionFilter} hides the extensions that the client offers during the handshake,
+ * which leaves every connection without extensions such as permessage-deflate. Jetty registers the
+ * extensions that it ships with by default and only negotiates the ones that the client offers, this
+ * is how compression is turned off without touching the registry of extensions.
+ */
+public class AkariWebsocketExtensionFilter implements Filter {
+
+    private static final String HEADER = "Sec-WebSocket-Extensions";
+
+    @Override
+    public void init(FilterConfig config) {
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException, ServletException {
+        if (!(request instanceof HttpServletRequest http) || http.getHeader(HEADER) == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        chain.doFilter(new HttpServletRequestWrapper(http) {
+            @Override
+            public String getHeader(String name) {
+                return HEADER.equalsIgnoreCase(name) ? null : super.getHeader(name);
+            }
+
+            @Override
+            public Enumeration<String> getHeaders(String name) {
+                return HEADER.equalsIgnoreCase(name) ? Collections.emptyEnumeration() : super.getHeaders(name);
+            }
+
+            @Override
+            public Enumeration<String> getHeaderNames() {
+                return Collections.enumeration(Collections.list(super.getHeaderNames()).stream()
+                        .filter(name -> !HEADER.equalsIgnoreCase(name))
+                        .toList());
+            }
+        }, response);
+    }
+
+    @Override
+    public void destroy() {
+    }
+
+}
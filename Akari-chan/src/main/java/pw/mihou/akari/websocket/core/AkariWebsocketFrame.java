@@ -0,0 +1,190 @@
+package pw.mihou.akari.websocket.core;
+
+import com.squareup.moshi.JsonAdapter;
+import pw.mihou.akari.Akari;
+import pw.mihou.alisa.modules.AlisaMessage;
+import pw.mihou.alisa.modules.broadcasts.AlisaBatch;
+import pw.mihou.alisa.modules.codec.AlisaBinaryCodec;
+import pw.mihou.alisa.modules.codec.AlisaEncoding;
+import pw.mihou.alisa.modules.subscriptions.AlisaTopic;
+
+import javax.annotation.Nullable;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * {@link AkariWebsocketFrame} is the encoded form of an {@link AlisaMessage} that is shared
+ * between every session it is sent to. Each encoding is produced at most once, on the first
+ * session that asks for it, which means that a broadcast is only encoded once per encoding
+ * regardless of the amount of sessions connected.
+ * <br><br>
+ * Frames of broadcasts also keep the messages along with their topics, which is what lets the
+ * frames that are left undelivered be routed again on the next start.
+ */
+public class AkariWebsocketFrame {
+
+    private static final JsonAdapter<AlisaMessage> ADAPTER = Akari.getMoshi().adapter(AlisaMessage.class);
+
+    @Nullable
+    private final AlisaMessage message;
+    private final List<AkariWebsocketRouted> routed;
+
+    private volatile String text;
+    private volatile byte[] binary;
+    private volatile int textSize = -1;
+
+    private AkariWebsocketFrame(@Nullable AlisaMessage message, @Nullable String text, List<AkariWebsocketRouted> routed) {
+        this.message = message;
+        this.text = text;
+        this.routed = routed;
+    }
+
+    /**
+     * Creates a frame of the message, this follows the same rules as
+     * {@link AlisaMessage#toMessageable(com.squareup.moshi.Moshi)}.
+     *
+     * @param message   The message to encode.
+     * @return          The frame of the message.
+     */
+    public static AkariWebsocketFrame of(AlisaMessage message) {
+        if (message.data() instanceof String text) {
+            return of(text);
+        }
+
+        return new AkariWebsocketFrame(message, null, List.of());
+    }
+
+    /**
+     * Creates a frame of a broadcast, this follows the same rules as {@link AkariWebsocketFrame#of(AlisaMessage)}.
+     *
+     * @param message   The message to encode.
+     * @param topic     The topic of the message, if any.
+     * @return          The frame of the broadcast.
+     */
+    public static AkariWebsocketFrame of(AlisaMessage message, @Nullable AlisaTopic topic) {
+        if (message.data() instanceof String text) {
+            return of(text);
+        }
+
+        return new AkariWebsocketFrame(message, null, List.of(new AkariWebsocketRouted(message, topic)));
+    }
+
+    /**
+     * Creates a single frame of several broadcasts, more than one broadcast is wrapped into
+     * a single {@link AlisaBatch}.
+     *
+     * @param messages  The broadcasts of the frame.
+     * @return          The frame of the broadcasts.
+     */
+    public static AkariWebsocketFrame of(List<AkariWebsocketRouted> messages) {
+        if (messages.size() == 1) {
+            return of(messages.get(0).message(), messages.get(0).topic());
+        }
+
+        AlisaBatch batch = new AlisaBatch(messages.stream().map(AkariWebsocketRouted::message).toList());
+        return new AkariWebsocketFrame(new AlisaMessage(batch, AlisaBatch.class.getName()), null, List.copyOf(messages));
+    }
+
+    /**
+     * Creates a frame out of text that is already encoded, these frames are always
+     * sent as text regardless of the encoding of the session.
+     *
+     * @param text  The encoded text.
+     * @return      The frame of the text.
+     */
+    public static AkariWebsocketFrame of(String text) {
+        return new AkariWebsocketFrame(null, text, List.of());
+    }
+
+    /**
+     * Gets the JSON text of this frame.
+     *
+     * @return  The JSON text of this frame.
+     */
+    public String text() {
+        // Two sessions may race to encode the same frame, both produce the same text
+        // which is why this does not need to lock.
+        String encoded = text;
+        if (encoded == null) {
+            encoded = ADAPTER.toJson(message);
+            text = encoded;
+        }
+
+        return encoded;
+    }
+
+    /**
+     * Gets the MessagePack bytes of this frame.
+     *
+     * @return  The MessagePack bytes of this frame, or null if this frame can only be sent as text.
+     */
+    @Nullable
+    public byte[] binary() {
+        if (message == null) {
+            return null;
+        }
+
+        byte[] encoded = binary;
+        if (encoded == null) {
+            encoded = AlisaBinaryCodec.encode(message);
+            binary = encoded;
+        }
+
+        return encoded;
+    }
+
+    /**
+     * Gets the size of this frame in bytes when sent with the encoding specified.
+     *
+     * @param encoding  The encoding of the session.
+     * @return          The size of this frame in bytes.
+     */
+    public int size(AlisaEncoding encoding) {
+        byte[] bytes = encoding == AlisaEncoding.MSGPACK ? binary() : null;
+
+        if (bytes != null) {
+            return bytes.length;
+        }
+
+        int size = textSize;
+        if (size < 0) {
+            size = text().getBytes(StandardCharsets.UTF_8).length;
+            textSize = size;
+        }
+
+        return size;
+    }
+
+    /**
+     * Gets the broadcasts of this frame along with their topics.
+     *
+     * @return  The broadcasts of this frame, this is empty for frames that are not broadcasts.
+     */
+    public List<AkariWebsocketRouted> routed() {
+        return routed;
+    }
+
+    /**
+     * Gets the highest sequence number of the messages in this frame.
+     *
+     * @return  The highest sequence number in this frame, or null if none of the messages were persisted.
+     */
+    @Nullable
+    public Long sequence() {
+        if (message == null) {
+            return null;
+        }
+
+        if (message.data() instanceof AlisaBatch batch) {
+            return batch.messages().stream()
+                    .map(AlisaMessage::sequence)
+                    .filter(Objects::nonNull)
+                    .max(Long::compare)
+                    .orElse(null);
+        }
+
+        return message.sequence();
+    }
+
+}
@@ -0,0 +1,30 @@
+package pw.mihou.akari.websocket.core;
+
+import pw.mihou.akari.configuration.AkariConfiguration;
+
+/**
+ * {@link AkariWebsocketLimits} is how much a single session is allowed to hold before it is
+ * considered to be a slow consumer.
+ *
+ * @param capacity      The maximum amount of messages that can wait for the session.
+ * @param highWater     The amount of bytes waiting for the session at which the policy is applied.
+ * @param lowWater      The amount of bytes waiting for the session at which a paused session resumes.
+ * @param policy        The policy that is applied to sessions past the high water mark.
+ */
+public record AkariWebsocketLimits(int capacity, long highWater, long lowWater, AkariWebsocketOverloadPolicy policy) {
+
+    /**
+     * Creates the limits out of the configuration.
+     *
+     * @return  The limits from the configuration.
+     */
+    public static AkariWebsocketLimits configured() {
+        return new AkariWebsocketLimits(
+                AkariConfiguration.WEBSOCKET_SESSION_QUEUE_CAPACITY,
+                AkariConfiguration.WEBSOCKET_SESSION_HIGH_WATER_BYTES,
+                Math.min(AkariConfiguration.WEBSOCKET_SESSION_LOW_WATER_BYTES, AkariConfiguration.WEBSOCKET_SESSION_HIGH_WATER_BYTES),
+                AkariWebsocketOverloadPolicy.of(AkariConfiguration.WEBSOCKET_OVERLOAD_POLICY)
+        );
+    }
+
+}
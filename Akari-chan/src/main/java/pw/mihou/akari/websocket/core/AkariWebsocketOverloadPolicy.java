@@ -0,0 +1,42 @@
+package pw.mihou.akari.websocket.core;
+
+/**
+ * {@link AkariWebsocketOverloadPolicy} decides what happens to a session once the messages that
+ * are waiting for it pass the high water mark.
+ */
+public enum AkariWebsocketOverloadPolicy {
+
+    /**
+     * Stops queueing messages for the session until it drains below the low water mark, the session
+     * then receives the messages it missed from the outbox. Sessions that do not resume from the outbox
+     * fall back to {@link AkariWebsocketOverloadPolicy#DROP_OLDEST}.
+     */
+    PAUSE,
+
+    /**
+     * Drops the oldest messages of the session to make room for the newer ones.
+     */
+    DROP_OLDEST,
+
+    /**
+     * Closes the session with the code 1013 (Try Again Later).
+     */
+    DISCONNECT;
+
+    /**
+     * Gets the policy that matches the name, anything unknown falls back to {@link AkariWebsocketOverloadPolicy#PAUSE}.
+     *
+     * @param name  The name of the policy.
+     * @return      The policy that matches the name.
+     */
+    public static AkariWebsocketOverloadPolicy of(String name) {
+        for (AkariWebsocketOverloadPolicy policy : values()) {
+            if (policy.name().equalsIgnoreCase(name)) {
+                return policy;
+            }
+        }
+
+        return PAUSE;
+    }
+
+}
@@ -0,0 +1,14 @@
+package pw.mihou.akari.websocket.core;
+
+import pw.mihou.alisa.modules.AlisaMessage;
+import pw.mihou.alisa.modules.subscriptions.AlisaTopic;
+
+import javax.annotation.Nullable;
+
+/**
+ * {@link AkariWebsocketRouted} is a broadcast along with the topic that it is routed by.
+ *
+ * @param message   The message to broadcast.
+ * @param topic     The topic of the message, or null if it goes to every session.
+ */
+public record AkariWebsocketRouted(AlisaMessage message, @Nullable AlisaTopic topic) {}
@@ -0,0 +1,478 @@
+package pw.mihou.akari.websocket.core;
+
+import io.javalin.websocket.WsContext;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import pw.mihou.akari.Akari;
+import pw.mihou.akari.websocket.defaults.AkariDefaultMessages;
+import pw.mihou.alisa.modules.codec.AlisaEncoding;
+import pw.mihou.alisa.modules.exceptions.handler.AlisaExceptionHandler;
+import pw.mihou.alisa.modules.metrics.AlisaMetrics;
+
+import javax.annotation.Nullable;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongConsumer;
+
+/**
+ * {@link AkariWebsocketSession} is a single client of the websocket with its own bounded outbound
+ * queue. Messages are written one at a time through Jetty's asynchronous writes, the next message
+ * is written once the callback of the previous one fires, which means that a slow client only ever
+ * holds back its own queue.
+ * <br><br>
+ * The bytes that are waiting for the client are tracked against the water marks of its {@link AkariWebsocketLimits},
+ * once the high water mark is passed the {@link AkariWebsocketOverloadPolicy} decides whether the session
+ * is paused, loses its oldest messages or is disconnected. Sessions that resume from the outbox write the
+ * replayed messages before anything in their queue.
+ * <br><br>
+ * Sessions that resume from the outbox start out replaying, and go back to replaying once they resume from
+ * a pause. The frames that are broadcast to them in the meantime are held back until {@link AkariWebsocketSession#replay(List)}
+ * has queued the replayed frames, held frames that the replay already contains are then skipped. A replay never
+ * takes the session past its high water mark, the session is paused again at the last replayed frame instead.
+ * <br><br>
+ * Only sessions that resume from the outbox can be paused since the others have nothing to replay the missed
+ * messages from, those sessions lose their oldest messages instead.
+ */
+public class AkariWebsocketSession {
+
+    private final WsContext context;
+    private final AlisaEncoding encoding;
+    @Nullable private final String client;
+    private final AkariWebsocketLimits limits;
+    private final AkariWebsocketOverloadPolicy policy;
+    private final BlockingQueue<AkariWebsocketFrame> queue;
+    private final Queue<AkariWebsocketFrame> backlog = new ConcurrentLinkedQueue<>();
+    private final List<AkariWebsocketFrame> held = new ArrayList<>();
+    private boolean replaying;
+
+    private final AtomicBoolean writing = new AtomicBoolean(false);
+    private final AtomicBoolean paused = new AtomicBoolean(false);
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+    private final AtomicLong bytes = new AtomicLong();
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    private volatile LongConsumer onResume = ignored -> {};
+
+    /**
+     * Creates a new {@link AkariWebsocketSession} for the connection specified.
+     *
+     * @param context   The connection of the client.
+     * @param encoding  The encoding that the client negotiated.
+     * @param client    The identifier that the client resumes with, if it identified itself.
+     * @param limits    The limits of the messages that can wait for this client.
+     */
+    public AkariWebsocketSession(WsContext context, AlisaEncoding encoding, @Nullable String client, AkariWebsocketLimits limits) {
+        this.context = context;
+        this.encoding = encoding;
+        this.client = client;
+        this.limits = limits;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, limits.capacity()));
+        this.replaying = client != null;
+        this.policy = limits.policy() == AkariWebsocketOverloadPolicy.PAUSE && client == null
+                ? AkariWebsocketOverloadPolicy.DROP_OLDEST
+                : limits.policy();
+
+        AlisaMetrics.gauge("akari_websocket_session_lag_messages", "The amount of messages waiting for a session.",
+                this::depth, "session", id());
+        AlisaMetrics.gauge("akari_websocket_session_lag_bytes", "The amount of bytes waiting for a session.",
+                bytes::get, "session", id());
+    }
+
+    /**
+     * Sets the callback that is executed once a paused session has drained below its low water
+     * mark, the callback receives the highest sequence number that was queued before the pause.
+     * The session is replaying from then on, the callback is expected to end the replay through
+     * {@link AkariWebsocketSession#replay(List)} even if there is nothing to replay.
+     *
+     * @param onResume  The callback to execute.
+     */
+    public void onResume(LongConsumer onResume) {
+        this.onResume = onResume;
+    }
+
+    /**
+     * Queues the frame to be written to this client, this never blocks. Frames that arrive
+     * while the session is past its high water mark are handled by the overload policy and
+     * frames that arrive while the session is replaying are held back.
+     *
+     * @param frame     The frame to queue.
+     * @return          False if the frame was not queued.
+     */
+    public synchronized boolean enqueue(AkariWebsocketFrame frame) {
+        if (closed.get() || paused.get()) {
+            dropped.incrementAndGet();
+            return false;
+        }
+
+        if (replaying) {
+            if (held.size() >= limits.capacity()) {
+                dropped.incrementAndGet();
+                return false;
+            }
+
+            held.add(frame);
+            return true;
+        }
+
+        int size = frame.size(encoding);
+        if (bytes.get() + size > limits.highWater() || queue.remainingCapacity() == 0) {
+            if (!overloaded(size)) {
+                dropped.incrementAndGet();
+                return false;
+            }
+        }
+
+        if (!queue.offer(frame)) {
+            dropped.incrementAndGet();
+            return false;
+        }
+
+        bytes.addAndGet(size);
+
+        Long last = frame.sequence();
+        if (last != null) {
+            sequence.accumulateAndGet(last, Math::max);
+        }
+
+        flush();
+        return true;
+    }
+
+    /**
+     * Applies the overload policy to this session.
+     *
+     * @param size  The size of the frame that did not fit.
+     * @return      Whether the frame can still be queued.
+     */
+    private boolean overloaded(int size) {
+        AlisaMetrics.counter("akari_websocket_session_overloads_total", "The amount of times a session passed its high water mark.",
+                "policy", policy.name().toLowerCase()).increment();
+
+        switch (policy) {
+            case DROP_OLDEST -> {
+                while ((bytes.get() + size > limits.highWater() || queue.remainingCapacity() == 0) && !queue.isEmpty()) {
+                    AkariWebsocketFrame oldest = queue.poll();
+
+                    if (oldest != null) {
+                        bytes.addAndGet(-oldest.size(encoding));
+                        dropped.incrementAndGet();
+                        AlisaMetrics.counter("akari_websocket_messages_dropped_total", "The amount of messages dropped for slow sessions.")
+                                .increment();
+                    }
+                }
+
+                return true;
+            }
+            case DISCONNECT -> {
+                if (closed.compareAndSet(false, true)) {
+                    Akari.getLogger().warn("A session was disconnected for being a slow consumer. [session={}, depth={}, bytes={}]",
+                            id(), depth(), bytes.get()
+                    );
+                    context.closeSession(1013, AkariDefaultMessages.SLOW_CONSUMER);
+
+                    dropped.addAndGet(queue.size());
+                    queue.clear();
+                }
+
+                return false;
+            }
+            default -> {
+                if (paused.compareAndSet(false, true)) {
+                    Akari.getLogger().warn("A session was paused for being a slow consumer. [session={}, depth={}, bytes={}, sequence={}]",
+                            id(), depth(), bytes.get(), sequence.get()
+                    );
+                }
+
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Queues the frames that were replayed from the outbox to be written before anything else and
+     * ends the replay. The frames are queued until the next one would pass the high water mark, the
+     * session is then paused at the last queued frame and the rest is replayed once it drains again.
+     * <br><br>
+     * The frames that were held back during the replay are queued afterwards, except for those
+     * that the replay already contains. A replay that stops early drops the held frames instead
+     * since they come after the frames that were left out.
+     *
+     * @param frames    The frames to replay, from the oldest to the newest.
+     */
+    public synchronized void replay(List<AkariWebsocketFrame> frames) {
+        long replayed = 0;
+        int queued = 0;
+
+        for (AkariWebsocketFrame frame : frames) {
+            int size = frame.size(encoding);
+
+            if (queued > 0 && bytes.get() + size > limits.highWater()) {
+                break;
+            }
+
+            bytes.addAndGet(size);
+            backlog.add(frame);
+            queued++;
+
+            Long last = frame.sequence();
+            if (last != null) {
+                replayed = Math.max(replayed, last);
+            }
+        }
+
+        replaying = false;
+
+        if (queued < frames.size()) {
+            sequence.set(replayed);
+            dropped.addAndGet(held.size());
+            held.clear();
+
+            paused.set(true);
+            Akari.getLogger().info("A session has paused its replay at the high water mark. [session={}, sequence={}, remaining={}]",
+                    id(), replayed, frames.size() - queued
+            );
+
+            flush();
+            return;
+        }
+
+        sequence.accumulateAndGet(replayed, Math::max);
+
+        for (AkariWebsocketFrame frame : held) {
+            if (frame.sequence() != null && frame.sequence() <= replayed) {
+                continue;
+            }
+
+            enqueue(frame);
+        }
+
+        held.clear();
+        flush();
+    }
+
+    /**
+     * Writes the messages in the queue one at a time until the queue is empty or a write is
+     * still pending. Writes that complete inline are continued by this loop instead of the
+     * callback to keep the stack from growing with the queue.
+     */
+    private void flush() {
+        while ((!backlog.isEmpty() || !queue.isEmpty()) && writing.compareAndSet(false, true)) {
+            AkariWebsocketFrame frame = backlog.isEmpty() ? queue.poll() : backlog.poll();
+
+            if (frame == null) {
+                writing.set(false);
+                continue;
+            }
+
+            AtomicBoolean returned = new AtomicBoolean(false);
+            WriteCallback callback = new WriteCallback() {
+                @Override
+                public void writeFailed(Throwable throwable) {
+                    failed.incrementAndGet();
+
+                    // Writes that were pending when the session was closed are expected to fail.
+                    if (!closed.get()) {
+                        AlisaExceptionHandler.accept(throwable);
+                    }
+
+                    complete();
+                }
+
+                @Override
+                public void writeSuccess() {
+                    sent.incrementAndGet();
+                    AlisaMetrics.counter("akari_websocket_messages_sent_total", "The amount of messages sent to clients.")
+                            .increment();
+                    Akari.getLogger().debug("A message was sent to a client. [session={}, encoding={}, size={}]",
+                            id(),
+                            encoding,
+                            frame.size(encoding)
+                    );
+                    complete();
+                }
+
+                private void complete() {
+                    writing.set(false);
+                    drained(frame.size(encoding));
+
+                    if (returned.get()) {
+                        flush();
+                    }
+                }
+            };
+
+            byte[] binary = encoding == AlisaEncoding.MSGPACK ? frame.binary() : null;
+            if (binary != null) {
+                context.session.getRemote().sendBytes(ByteBuffer.wrap(binary), callback);
+            } else {
+                context.session.getRemote().sendString(frame.text(), callback);
+            }
+
+            returned.set(true);
+        }
+    }
+
+    /**
+     * Releases the bytes of a frame that has left the session and resumes the session
+     * once it is below its low water mark.
+     *
+     * @param size  The size of the frame that left.
+     */
+    private void drained(int size) {
+        long remaining = bytes.addAndGet(-size);
+
+        if (remaining <= limits.lowWater() && paused.get()) {
+            resume();
+        }
+    }
+
+    /**
+     * Resumes the paused session into a replay of what it missed, the frames that are broadcast
+     * until the replay ends are held back instead of being written ahead of it.
+     */
+    private synchronized void resume() {
+        if (closed.get() || !paused.compareAndSet(true, false)) {
+            return;
+        }
+
+        replaying = true;
+        Akari.getLogger().info("A paused session has drained and is resumed. [session={}, sequence={}, dropped={}]",
+                id(), sequence.get(), dropped.get()
+        );
+        onResume.accept(sequence.get());
+    }
+
+    /**
+     * Removes the metrics of this session, this should be called once the session has closed.
+     */
+    public void close() {
+        closed.set(true);
+        AlisaMetrics.remove("akari_websocket_session_lag_messages", "session", id());
+        AlisaMetrics.remove("akari_websocket_session_lag_bytes", "session", id());
+    }
+
+    /**
+     * Checks whether this session has nothing left to write.
+     *
+     * @return  Whether the queue is empty and no write is pending.
+     */
+    public boolean idle() {
+        return backlog.isEmpty() && queue.isEmpty() && !writing.get();
+    }
+
+    /**
+     * Gets the frames that are still waiting to be written to this client, the frame that
+     * is being written is not included.
+     *
+     * @return  The frames that are waiting to be written.
+     */
+    public synchronized List<AkariWebsocketFrame> pending() {
+        List<AkariWebsocketFrame> frames = new ArrayList<>(backlog);
+        frames.addAll(queue);
+        frames.addAll(held);
+        return frames;
+    }
+
+    /**
+     * Checks whether this session is paused for being a slow consumer.
+     *
+     * @return  Whether this session is paused.
+     */
+    public boolean paused() {
+        return paused.get();
+    }
+
+    /**
+     * Gets the amount of messages that are waiting to be written to this client.
+     *
+     * @return  The depth of the queue of this session.
+     */
+    public int depth() {
+        return backlog.size() + queue.size();
+    }
+
+    /**
+     * Gets the amount of bytes that are waiting to be written to this client, including
+     * the message that is being written.
+     *
+     * @return  The amount of bytes waiting to be written.
+     */
+    public long bytes() {
+        return bytes.get();
+    }
+
+    /**
+     * Gets the amount of messages that were written to this client.
+     *
+     * @return  The amount of messages written.
+     */
+    public long sent() {
+        return sent.get();
+    }
+
+    /**
+     * Gets the amount of messages that failed to be written to this client.
+     *
+     * @return  The amount of messages that failed.
+     */
+    public long failed() {
+        return failed.get();
+    }
+
+    /**
+     * Gets the amount of messages that were never queued or were dropped from the queue
+     * of this client.
+     *
+     * @return  The amount of messages dropped.
+     */
+    public long dropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Gets the encoding that this client negotiated.
+     *
+     * @return  The encoding of this client.
+     */
+    public AlisaEncoding encoding() {
+        return encoding;
+    }
+
+    /**
+     * Gets the identifier that this client resumes with.
+     *
+     * @return  The identifier of this client, or null if this client is not resumable.
+     */
+    @Nullable
+    public String client() {
+        return client;
+    }
+
+    /**
+     * Gets the session identifier of this client.
+     *
+     * @return  The session identifier of this client.
+     */
+    public String id() {
+        return context.getSessionId();
+    }
+
+    /**
+     * Gets the connection of this client.
+     *
+     * @return  The connection of this client.
+     */
+    public WsContext context() {
+        return context;
+    }
+
+}
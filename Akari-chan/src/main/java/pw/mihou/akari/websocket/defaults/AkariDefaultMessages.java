@@ -5,6 +5,7 @@ public class AkariDefaultMessages {
     public static String INVALID_AUTHORIZATION = "Your connection was closed: Missing, or invalid Authorization header.";
     public static String UNKNOWN_EXCEPTION = "An unknown exception had occurred.";
     public static String CLOSING_TIME = "Your connection was closed: The socket is about to close.";
+    public static String SLOW_CONSUMER = "Your connection was closed: Too many messages are waiting to be sent to you.";
     public static String UNACCEPTED_CLOSING = "Your message was not accepted: The socket is about to close.";
 
 }
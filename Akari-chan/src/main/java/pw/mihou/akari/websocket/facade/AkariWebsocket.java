@@ -1,5 +1,8 @@
 package pw.mihou.akari.websocket.facade;
 
+import pw.mihou.alisa.modules.requests.AlisaSubscribeRequest;
+import pw.mihou.alisa.modules.subscriptions.AlisaTopic;
+
 public interface AkariWebsocket {
 
     /**
@@ -8,6 +11,15 @@ public interface AkariWebsocket {
      */
     void send(Object object);
 
+    /**
+     * Queues the data to be broadcast to the clients that subscribed to the topic
+     * and to the clients that never subscribed to anything.
+     *
+     * @param topic     The topic of the data.
+     * @param object    The data to be queued.
+     */
+    void send(AlisaTopic topic, Object object);
+
     /**
      * Queues the data to be broadcasted towards a specific client.
      *
@@ -16,6 +28,23 @@ public interface AkariWebsocket {
      */
     void send(String session, Object object);
 
+    /**
+     * Replaces the topics that the client of the session receives.
+     *
+     * @param session       The session identifier of the client.
+     * @param subscription  The topics to receive.
+     */
+    void subscribe(String session, AlisaSubscribeRequest subscription);
+
+    /**
+     * Acknowledges every message up to and including the sequence number for the client
+     * of the session, this does nothing for sessions that did not identify themselves.
+     *
+     * @param session   The session identifier of the client.
+     * @param sequence  The sequence number that was acknowledged.
+     */
+    void acknowledge(String session, long sequence);
+
     /**
      * Starts the websocket server.
      */
@@ -24,6 +53,7 @@ public interface AkariWebsocket {
     /**
      * Gracefully stops the websocket server, allowing it to push all
      * the remaining messages that are in queue before closing the server.
+     * This blocks until the messages were pushed or the drain deadline has passed.
      */
     void stop();
 
@@ -1,24 +1,25 @@
 package pw.mihou.akari.websocket.listeners;
 
-import io.javalin.websocket.WsMessageContext;
+import io.javalin.websocket.WsContext;
 import pw.mihou.akari.websocket.facade.AkariWebsocket;
 
-public interface AkariWebsocketListener {
+public interface AkariWebsocketListener<Type> {
 
     /**
      * Executed whenever the connection received has a type that
      * matches the message.
      *
+     * @param websocket     The websocket that received this event.
      * @param connection    The connection that this event came from.
-     * @param data          The data received from this event.
+     * @param data          The data received from this event, already decoded into its type.
      */
-    void onMessage(AkariWebsocket websocket, WsMessageContext connection, String data);
+    void onMessage(AkariWebsocket websocket, WsContext connection, Type data);
 
     /**
      * Gets the class type that this listener accepts.
      *
      * @return  The generic class type that this listener accepts.
      */
-    String accepts();
+    Class<Type> accepts();
 
 }
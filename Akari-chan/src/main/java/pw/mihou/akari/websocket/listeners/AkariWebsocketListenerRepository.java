@@ -1,40 +1,271 @@
 package pw.mihou.akari.websocket.listeners;
 
-import io.javalin.websocket.WsMessageContext;
-import org.json.JSONObject;
+import com.squareup.moshi.JsonAdapter;
+import com.squareup.moshi.JsonReader;
+import io.javalin.websocket.WsContext;
+import okio.Buffer;
+import okio.BufferedSource;
+import pw.mihou.akari.Akari;
 import pw.mihou.akari.websocket.facade.AkariWebsocket;
+import pw.mihou.akari.websocket.listeners.modules.AkariOnAcknowledgement;
+import pw.mihou.akari.websocket.listeners.modules.AkariOnSubscribeRequest;
 import pw.mihou.akari.websocket.listeners.modules.AkariOnTestRequest;
 import pw.mihou.alisa.modules.AlisaMessage;
+import pw.mihou.alisa.modules.codec.AlisaBinaryCodec;
 import pw.mihou.alisa.modules.exceptions.AlisaException;
+import pw.mihou.alisa.modules.exceptions.handler.AlisaExceptionHandler;
 import pw.mihou.alisa.modules.threadpools.AlisaThreadPool;
 
-import java.util.ArrayList;
+import javax.annotation.Nullable;
+import java.io.IOException;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
 
+/**
+ * {@link AkariWebsocketListenerRepository} dispatches the requests that clients send to the listeners
+ * of their type. Listeners are grouped by the class name of the type they accept, which means that a
+ * request is matched with a single lookup and its data is decoded once, with an adapter that is cached
+ * alongside the listeners, regardless of how many listeners accept it. Text requests are read without
+ * decoding the data into an intermediate structure, the data is only decoded by the adapter of its type.
+ * <br><br>
+ * Listeners are executed on the executor of {@link AlisaThreadPool} since a slow listener would otherwise
+ * hold back the scheduler that every periodic task shares.
+ * <br><br>
+ * Listeners can be registered and removed at any time, every change replaces the route of the type
+ * as a whole which leaves the requests that are being dispatched with the route they started with.
+ */
 public class AkariWebsocketListenerRepository {
 
-    public static final List<AkariWebsocketListener> listeners = new ArrayList<>();
+    private static final Map<String, Route<?>> routes = new ConcurrentHashMap<>();
 
     static {
-        listeners.add(new AkariOnTestRequest());
+        register(new AkariOnTestRequest());
+        register(new AkariOnAcknowledgement());
+        register(new AkariOnSubscribeRequest());
     }
 
     /**
-     * Gets all the listener that matches the message that was received.
+     * Registers the listener to receive every request of the type it accepts.
      *
-     * @param connection   The connection that was received on the server.
+     * @param listener  The listener to register.
+     * @param <Type>    The type that the listener accepts.
      */
-    public static void send(AkariWebsocket websocket, WsMessageContext connection) {
+    @SuppressWarnings("unchecked")
+    public static <Type> void register(AkariWebsocketListener<Type> listener) {
+        routes.compute(listener.accepts().getName(), (key, route) -> route == null
+                ? new Route<>(listener.accepts(), Akari.getMoshi().adapter(listener.accepts()), List.of(listener))
+                : ((Route<Type>) route).with(listener));
+    }
+
+    /**
+     * Removes the listener from the requests of the type it accepts.
+     *
+     * @param listener  The listener to remove.
+     * @param <Type>    The type that the listener accepts.
+     */
+    @SuppressWarnings("unchecked")
+    public static <Type> void unregister(AkariWebsocketListener<Type> listener) {
+        routes.computeIfPresent(listener.accepts().getName(), (key, route) -> ((Route<Type>) route).without(listener));
+    }
+
+    /**
+     * Dispatches a text request to the listeners that accept its type.
+     *
+     * @param websocket     The websocket that received the request.
+     * @param connection    The connection that the request came from.
+     * @param text          The text of the request.
+     */
+    public static void send(AkariWebsocket websocket, WsContext connection, String text) {
+        try (JsonReader reader = JsonReader.of(new Buffer().writeUtf8(text))) {
+            String className = null;
+            Buffer data = null;
+
+            // The fields of the envelope can come in any order, which is why the data is only copied
+            // as it is until the class name that decides its type is known.
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "className" -> className = reader.nextString();
+                    case "data" -> {
+                        data = new Buffer();
+                        try (BufferedSource source = reader.nextSource()) {
+                            data.writeAll(source);
+                        }
+                    }
+                    default -> reader.skipValue();
+                }
+            }
+            reader.endObject();
+
+            if (className == null) {
+                throw new IOException("The request did not contain its class name.");
+            }
+
+            Route<?> route = route(connection, className);
+
+            if (route == null) {
+                return;
+            }
+
+            if (data == null) {
+                throw new IOException("The request of type " + className + " did not contain any data.");
+            }
+
+            try (JsonReader source = JsonReader.of(data)) {
+                route.dispatch(websocket, connection, source);
+            }
+        } catch (Exception exception) {
+            websocket.send(connection.getSessionId(), new AlisaException(exception.getMessage()));
+        }
+    }
+
+    /**
+     * Dispatches a MessagePack request to the listeners that accept its type, the data of
+     * these requests is already decoded by {@link AlisaBinaryCodec}.
+     *
+     * @param websocket     The websocket that received the request.
+     * @param connection    The connection that the request came from.
+     * @param bytes         The bytes of the request.
+     * @param offset        The offset of the request within the bytes.
+     * @param length        The length of the request.
+     */
+    public static void send(AkariWebsocket websocket, WsContext connection, byte[] bytes, int offset, int length) {
         try {
-            JSONObject raw = new JSONObject(connection.message());
-            AlisaMessage message = new AlisaMessage(raw.getString("data"), raw.getString("className"));
+            AlisaMessage message = AlisaBinaryCodec.decode(bytes, offset, length);
+            Route<?> route = route(connection, message.className());
+
+            if (route == null) {
+                return;
+            }
+
+            route.dispatch(websocket, connection, message.data());
+        } catch (Exception exception) {
+            websocket.send(connection.getSessionId(), new AlisaException(exception.getMessage()));
+        }
+    }
 
-            listeners.stream()
-                    .filter(listener -> listener.accepts().equals(message.className()))
-                    .forEach(listener -> AlisaThreadPool.submitTask(() -> listener.onMessage(websocket, connection, connection.message())));
-        } catch (Exception e) {
-            connection.send(new AlisaMessage(new AlisaException(e.getMessage()), AlisaException.class.getName()));
+    /**
+     * Gets the route of the type, requests without a route are ignored.
+     *
+     * @param connection    The connection that the request came from.
+     * @param className     The class name of the type of the request.
+     * @return              The route of the type, if any listener accepts it.
+     */
+    @Nullable
+    private static Route<?> route(WsContext connection, String className) {
+        Route<?> route = routes.get(className);
+
+        if (route == null) {
+            Akari.getLogger().debug("A request was ignored because no listener accepts it. [session={}, type={}]",
+                    connection.getSessionId(),
+                    className
+            );
+        }
+
+        return route;
+    }
+
+    /**
+     * {@link Route} is the immutable set of listeners of a single type along with the
+     * adapter that decodes the type.
+     *
+     * @param type      The type of the route.
+     * @param adapter   The adapter that decodes the type.
+     * @param listeners The listeners of the type.
+     * @param <Type>    The type of the route.
+     */
+    private record Route<Type>(Class<Type> type, JsonAdapter<Type> adapter, List<AkariWebsocketListener<Type>> listeners) {
+
+        /**
+         * Creates a copy of this route with the listener added.
+         *
+         * @param listener  The listener to add.
+         * @return          The copy of this route.
+         */
+        Route<Type> with(AkariWebsocketListener<Type> listener) {
+            return new Route<>(type, adapter, Stream.concat(listeners.stream(), Stream.of(listener)).toList());
+        }
+
+        /**
+         * Creates a copy of this route with the listener removed, routes without any
+         * listener left are removed entirely.
+         *
+         * @param listener  The listener to remove.
+         * @return          The copy of this route, or null if no listener is left.
+         */
+        Route<Type> without(AkariWebsocketListener<Type> listener) {
+            List<AkariWebsocketListener<Type>> remaining = listeners.stream()
+                    .filter(existing -> existing != listener)
+                    .toList();
+
+            return remaining.isEmpty() ? null : new Route<>(type, adapter, remaining);
         }
+
+        /**
+         * Decodes the data of a text request once and hands it to every listener. Clients send
+         * the data either as its own JSON text or as a nested object.
+         *
+         * @param websocket     The websocket that received the request.
+         * @param connection    The connection that the request came from.
+         * @param reader        The reader that is positioned at the data.
+         * @throws IOException  If the data does not match the structure of the type.
+         */
+        void dispatch(AkariWebsocket websocket, WsContext connection, JsonReader reader) throws IOException {
+            if (reader.peek() == JsonReader.Token.STRING) {
+                deliver(websocket, connection, adapter.fromJson(reader.nextString()));
+                return;
+            }
+
+            deliver(websocket, connection, adapter.fromJson(reader));
+        }
+
+        /**
+         * Decodes the data of a binary request once and hands it to every listener, the data of
+         * the types that the binary codec knows of is already decoded.
+         *
+         * @param websocket     The websocket that received the request.
+         * @param connection    The connection that the request came from.
+         * @param data          The data of the request.
+         * @throws IOException  If the data does not match the structure of the type.
+         */
+        void dispatch(AkariWebsocket websocket, WsContext connection, @Nullable Object data) throws IOException {
+            if (type.isInstance(data)) {
+                deliver(websocket, connection, type.cast(data));
+                return;
+            }
+
+            if (data instanceof String text) {
+                deliver(websocket, connection, adapter.fromJson(text));
+                return;
+            }
+
+            deliver(websocket, connection, adapter.fromJsonValue(data));
+        }
+
+        /**
+         * Hands the decoded data to every listener on the executor.
+         *
+         * @param websocket     The websocket that received the request.
+         * @param connection    The connection that the request came from.
+         * @param data          The decoded data of the request.
+         * @throws IOException  If the request did not contain any data.
+         */
+        private void deliver(AkariWebsocket websocket, WsContext connection, @Nullable Type data) throws IOException {
+            if (data == null) {
+                throw new IOException("The request of type " + type.getName() + " did not contain any data.");
+            }
+
+            listeners.forEach(listener -> AlisaThreadPool.getExecutorService().submit(() -> {
+                try {
+                    listener.onMessage(websocket, connection, data);
+                } catch (Exception exception) {
+                    AlisaExceptionHandler.accept(exception);
+                }
+            }));
+        }
+
     }
 
 }
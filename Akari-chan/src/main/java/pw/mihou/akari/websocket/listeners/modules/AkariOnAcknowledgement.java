@@ -0,0 +1,19 @@
+package pw.mihou.akari.websocket.listeners.modules;
+
+import io.javalin.websocket.WsContext;
+import pw.mihou.akari.websocket.facade.AkariWebsocket;
+import pw.mihou.akari.websocket.listeners.AkariWebsocketListener;
+import pw.mihou.alisa.modules.requests.AlisaAcknowledgement;
+
+public class AkariOnAcknowledgement implements AkariWebsocketListener<AlisaAcknowledgement> {
+
+    @Override
+    public void onMessage(AkariWebsocket websocket, WsContext connection, AlisaAcknowledgement acknowledgement) {
+        websocket.acknowledge(connection.getSessionId(), acknowledgement.sequence());
+    }
+
+    @Override
+    public Class<AlisaAcknowledgement> accepts() {
+        return AlisaAcknowledgement.class;
+    }
+}
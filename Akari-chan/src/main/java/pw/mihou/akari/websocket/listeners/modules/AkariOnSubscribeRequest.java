@@ -0,0 +1,19 @@
+package pw.mihou.akari.websocket.listeners.modules;
+
+import io.javalin.websocket.WsContext;
+import pw.mihou.akari.websocket.facade.AkariWebsocket;
+import pw.mihou.akari.websocket.listeners.AkariWebsocketListener;
+import pw.mihou.alisa.modules.requests.AlisaSubscribeRequest;
+
+public class AkariOnSubscribeRequest implements AkariWebsocketListener<AlisaSubscribeRequest> {
+
+    @Override
+    public void onMessage(AkariWebsocket websocket, WsContext connection, AlisaSubscribeRequest subscription) {
+        websocket.subscribe(connection.getSessionId(), subscription);
+    }
+
+    @Override
+    public Class<AlisaSubscribeRequest> accepts() {
+        return AlisaSubscribeRequest.class;
+    }
+}
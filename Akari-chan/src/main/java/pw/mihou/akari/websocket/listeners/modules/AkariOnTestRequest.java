@@ -1,29 +1,23 @@
 package pw.mihou.akari.websocket.listeners.modules;
 
-import io.javalin.websocket.WsMessageContext;
+import io.javalin.websocket.WsContext;
 import pw.mihou.akari.activities.AkariFeeds;
 import pw.mihou.akari.databases.AkariDatabases;
 import pw.mihou.akari.websocket.facade.AkariWebsocket;
 import pw.mihou.akari.websocket.listeners.AkariWebsocketListener;
-import pw.mihou.alisa.AlisaGlobal;
+import pw.mihou.alisa.modules.AlisaFeedPollView;
 import pw.mihou.alisa.modules.database.modules.AlisaIndex;
 import pw.mihou.alisa.modules.exceptions.handler.AlisaExceptionHandler;
 import pw.mihou.alisa.modules.requests.AlisaTestRequest;
 
-import javax.annotation.Nonnull;
-import java.util.Objects;
-
-public class AkariOnTestRequest implements AkariWebsocketListener {
+public class AkariOnTestRequest implements AkariWebsocketListener<AlisaTestRequest> {
 
     @Override
-    public void onMessage(AkariWebsocket websocket, WsMessageContext connection, String data) {
+    public void onMessage(AkariWebsocket websocket, WsContext connection, AlisaTestRequest request) {
         try {
-            @Nonnull AlisaTestRequest request = Objects.requireNonNull(AlisaGlobal.MOSHI
-                    .adapter(AlisaTestRequest.class)
-                    .fromJson(data));
-
             AkariFeeds.peek(AkariDatabases.FEEDS.get(new AlisaIndex("unique", request.unique()))
                             .join()
+                            .map(AlisaFeedPollView::of)
                             .orElseThrow()
                     )
                     .stream()
@@ -35,7 +29,7 @@ public class AkariOnTestRequest implements AkariWebsocketListener {
     }
 
     @Override
-    public String accepts() {
-        return AlisaTestRequest.class.getName();
+    public Class<AlisaTestRequest> accepts() {
+        return AlisaTestRequest.class;
     }
 }
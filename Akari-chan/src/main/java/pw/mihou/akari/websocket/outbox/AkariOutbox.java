@@ -0,0 +1,355 @@
+package pw.mihou.akari.websocket.outbox;
+
+import com.mongodb.WriteConcern;
+import com.mongodb.client.model.IndexModel;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.Projections;
+import com.squareup.moshi.JsonAdapter;
+import org.bson.Document;
+import pw.mihou.akari.Akari;
+import pw.mihou.akari.configuration.AkariConfiguration;
+import pw.mihou.alisa.modules.AlisaMessage;
+import pw.mihou.alisa.modules.AlisaOutboxCursor;
+import pw.mihou.alisa.modules.AlisaOutboxMessage;
+import pw.mihou.alisa.modules.database.AlisaDatabase;
+import pw.mihou.alisa.modules.database.types.AlisaOutboxDatabase;
+import pw.mihou.alisa.modules.exceptions.handler.AlisaExceptionHandler;
+import pw.mihou.alisa.modules.metrics.AlisaMetrics;
+import pw.mihou.alisa.modules.subscriptions.AlisaTopic;
+import pw.mihou.alisa.modules.threadpools.AlisaThreadPool;
+
+import javax.annotation.Nullable;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link AkariOutbox} persists every broadcast under a monotonic sequence number until the clients
+ * have acknowledged it, which lets a client that identifies itself through {@link AkariOutbox#CLIENT_HEADER}
+ * resume from its last acknowledged sequence number after a disconnect or a restart of Akari-chan.
+ * <br><br>
+ * Messages are appended into memory and written to the journal in batches, either once the batch
+ * reaches {@link AkariConfiguration#OUTBOX_FLUSH_SIZE} or every {@link AkariConfiguration#OUTBOX_FLUSH_MILLIS}.
+ * Messages that every known client has acknowledged are removed, the rest expire after
+ * {@link AkariConfiguration#OUTBOX_RETENTION_HOURS} which bounds the size of the outbox.
+ * <br><br>
+ * The sequence numbers are reserved in blocks of {@link AkariOutbox#SEQUENCE_BLOCK} that are persisted under
+ * the cursor of {@link AkariOutbox#SEQUENCE_CURSOR} before they are assigned, a restart continues after the
+ * last reserved block which keeps the sequence numbers from going backwards even when the messages and the
+ * acknowledgements that carried them are gone.
+ */
+public class AkariOutbox {
+
+    public static final String CLIENT_HEADER = "Amelia-Client";
+    public static final String RESUME_HEADER = "Amelia-Resume";
+    public static final String SEQUENCE_CURSOR = "$sequence";
+
+    private static final long SEQUENCE_BLOCK = 1024;
+
+    private static final JsonAdapter<Object> ENCODER = Akari.getMoshi().adapter(Object.class);
+
+    private final AlisaDatabase<AlisaOutboxMessage> database;
+    private final AlisaDatabase<AlisaOutboxCursor> cursors;
+
+    private final AtomicLong sequence = new AtomicLong();
+    private long reserved = 0;
+    private final List<AlisaOutboxMessage> pending = new ArrayList<>();
+    private final Map<String, Long> acknowledged = new ConcurrentHashMap<>();
+    private final Set<String> changed = ConcurrentHashMap.newKeySet();
+
+    private final AtomicBoolean started = new AtomicBoolean(false);
+
+    /**
+     * Creates a new {@link AkariOutbox} that persists into the databases specified.
+     *
+     * @param database  The database that holds the messages.
+     * @param cursors   The database that holds the acknowledged sequence numbers of the clients.
+     */
+    public AkariOutbox(AlisaDatabase<AlisaOutboxMessage> database, AlisaDatabase<AlisaOutboxCursor> cursors) {
+        this.database = database;
+        this.cursors = cursors;
+
+        AlisaMetrics.gauge("akari_outbox_sequence", "The last sequence number of the outbox.", sequence::get);
+        AlisaMetrics.gauge("akari_outbox_pending", "The amount of messages waiting to be written to the outbox.", this::pending);
+    }
+
+    /**
+     * Loads the last sequence number and the cursors of the clients and starts writing the
+     * outbox periodically, this does nothing if the outbox has already started.
+     */
+    public void start() {
+        if (!started.compareAndSet(false, true)) {
+            return;
+        }
+
+        // The retention is configured by Akari, which is why this index is not declared by the database.
+        database.storage().createIndex(new IndexModel(
+                Indexes.ascending("created"),
+                new IndexOptions().expireAfter(AkariConfiguration.OUTBOX_RETENTION_HOURS, TimeUnit.HOURS)
+        ));
+
+        AtomicLong highest = new AtomicLong();
+        cursors.all().map().forEach(cursor -> {
+            if (cursor.client().equals(SEQUENCE_CURSOR)) {
+                highest.accumulateAndGet(cursor.sequence(), Math::max);
+                return;
+            }
+
+            acknowledged.put(cursor.client(), cursor.sequence());
+        });
+
+        // The outbox of an older version has no reserved block, the messages and the cursors
+        // are considered as well for that case.
+        Document last = database.storage()
+                .find(new Document())
+                .projection(Projections.include("sequence"))
+                .sort(AlisaOutboxDatabase.NEWEST)
+                .first();
+        highest.accumulateAndGet(last == null ? 0 : last.getLong("sequence"), Math::max);
+        acknowledged.values().forEach(value -> highest.accumulateAndGet(value, Math::max));
+
+        synchronized (pending) {
+            sequence.set(highest.get());
+            reserved = highest.get();
+        }
+
+        AlisaThreadPool.schedule(
+                this::flush,
+                AkariConfiguration.OUTBOX_FLUSH_MILLIS,
+                AkariConfiguration.OUTBOX_FLUSH_MILLIS,
+                TimeUnit.MILLISECONDS
+        );
+
+        Akari.getLogger().info("The outbox was loaded from the database. [sequence={}, clients={}]",
+                highest.get(),
+                acknowledged.size()
+        );
+    }
+
+    /**
+     * Assigns the next sequence number to the message and queues it to be written into
+     * the outbox. Messages whose data is raw text are not persisted.
+     *
+     * @param message   The message to append.
+     * @param topic     The topic of the message, if it is routed.
+     * @return          The message with its sequence number.
+     */
+    public AlisaMessage append(AlisaMessage message, @Nullable AlisaTopic topic) {
+        if (message.data() instanceof String) {
+            return message;
+        }
+
+        start();
+
+        boolean full;
+        AlisaMessage sequenced;
+        synchronized (pending) {
+            long next = sequence.incrementAndGet();
+
+            if (next > reserved) {
+                reserve(next - 1 + SEQUENCE_BLOCK);
+            }
+
+            sequenced = message.sequence(next);
+            pending.add(new AlisaOutboxMessage(next, message.className(), ENCODER.toJsonValue(message.data()), topic, new Date()));
+            full = pending.size() >= AkariConfiguration.OUTBOX_FLUSH_SIZE;
+        }
+
+        if (full) {
+            AlisaThreadPool.getExecutorService().submit(this::flush);
+        }
+
+        return sequenced;
+    }
+
+    /**
+     * Persists the reservation of every sequence number up to the limit, this is written before
+     * any of the reserved sequence numbers are assigned. A reservation that fails is retried by the
+     * next message instead of holding back the broadcast.
+     *
+     * @param limit The last sequence number to reserve.
+     */
+    private void reserve(long limit) {
+        try {
+            cursors.upsert(new AlisaOutboxCursor(SEQUENCE_CURSOR, limit)).join();
+            reserved = limit;
+        } catch (Exception exception) {
+            AlisaExceptionHandler.accept(exception);
+        }
+    }
+
+    /**
+     * Registers the client as connected from the sequence number that it resumes after, clients
+     * that were already known keep their acknowledged sequence number. Messages after the cursor
+     * of a connected client are kept until it has acknowledged them, even if it never does.
+     *
+     * @param client    The identifier of the client.
+     * @param after     The sequence number that the client resumes after.
+     */
+    public void register(String client, long after) {
+        start();
+
+        if (client.equals(SEQUENCE_CURSOR)) {
+            return;
+        }
+
+        if (acknowledged.putIfAbsent(client, Math.min(after, sequence.get())) == null) {
+            changed.add(client);
+        }
+    }
+
+    /**
+     * Records that the client has received every message up to and including the
+     * sequence number, acknowledgements that go backwards are ignored.
+     *
+     * @param client    The identifier of the client.
+     * @param sequence  The sequence number that was acknowledged.
+     */
+    public void acknowledge(String client, long sequence) {
+        start();
+
+        if (client.equals(SEQUENCE_CURSOR)) {
+            return;
+        }
+
+        acknowledged.merge(client, Math.min(sequence, this.sequence.get()), Math::max);
+        changed.add(client);
+    }
+
+    /**
+     * Gets the last sequence number that the client has acknowledged.
+     *
+     * @param client    The identifier of the client.
+     * @return          The last sequence number that was acknowledged, if the client is known.
+     */
+    @Nullable
+    public Long acknowledged(String client) {
+        start();
+        return acknowledged.get(client);
+    }
+
+    /**
+     * Gets the last sequence number that was assigned.
+     *
+     * @return  The last sequence number.
+     */
+    public long sequence() {
+        return sequence.get();
+    }
+
+    /**
+     * Gets every message that comes after the sequence number, up to and including the last
+     * sequence number that was assigned. This writes the pending messages first to ensure that
+     * none are left out.
+     *
+     * @param after The sequence number to resume after.
+     * @return      The messages after the sequence number, from the oldest to the newest.
+     */
+    public List<AlisaOutboxMessage> replay(long after) {
+        start();
+        flush();
+
+        long until = sequence.get();
+        if (after >= until) {
+            return List.of();
+        }
+
+        List<AlisaOutboxMessage> messages = new ArrayList<>();
+        database.storage()
+                .find(AlisaOutboxDatabase.between(after, until))
+                .sort(AlisaOutboxDatabase.OLDEST)
+                .forEach(document -> messages.add(database.translate(document)));
+
+        return messages;
+    }
+
+    /**
+     * Takes every message out of the outbox, this is how the messages that a drain has left
+     * undelivered while the outbox was disabled are handed over to the next start.
+     *
+     * @return  The messages that were in the outbox, from the oldest to the newest.
+     */
+    public List<AlisaOutboxMessage> unspool() {
+        List<AlisaOutboxMessage> messages = replay(0);
+
+        if (!messages.isEmpty()) {
+            database.storage().deleteMany(AlisaOutboxDatabase.until(messages.get(messages.size() - 1).sequence()));
+        }
+
+        return messages;
+    }
+
+    /**
+     * Writes the pending messages and the changed cursors into the database and removes the
+     * messages that every known client has acknowledged. Messages that fail to be written are
+     * kept and retried on the next flush.
+     */
+    public synchronized void flush() {
+        List<AlisaOutboxMessage> messages;
+        synchronized (pending) {
+            messages = List.copyOf(pending);
+            pending.clear();
+        }
+
+        long start = System.nanoTime();
+        try {
+            if (!messages.isEmpty()) {
+                // The messages that were already written by a flush that failed part of the way are skipped.
+                database.storage()
+                        .withWriteConcern(WriteConcern.JOURNALED)
+                        .insert(messages.stream().map(AlisaOutboxMessage::document).toList());
+                AlisaMetrics.counter("akari_outbox_persisted_total", "The amount of messages written into the outbox.")
+                        .increment(messages.size());
+            }
+        } catch (Exception exception) {
+            synchronized (pending) {
+                pending.addAll(0, messages);
+            }
+
+            AlisaExceptionHandler.accept(exception);
+            return;
+        } finally {
+            AlisaMetrics.histogram("akari_outbox_flush_seconds", "The time taken to write a batch into the outbox.")
+                    .observeSince(start);
+        }
+
+        if (changed.isEmpty()) {
+            return;
+        }
+
+        try {
+            for (String client : List.copyOf(changed)) {
+                changed.remove(client);
+
+                try {
+                    cursors.upsert(new AlisaOutboxCursor(client, acknowledged.get(client))).join();
+                } catch (Exception exception) {
+                    changed.add(client);
+                    throw exception;
+                }
+            }
+
+            acknowledged.values().stream()
+                    .mapToLong(Long::longValue)
+                    .min()
+                    .ifPresent(lowest -> database.storage().deleteMany(AlisaOutboxDatabase.until(lowest)));
+        } catch (Exception exception) {
+            AlisaExceptionHandler.accept(exception);
+        }
+    }
+
+    /**
+     * Gets the amount of messages that are waiting to be written into the outbox.
+     *
+     * @return  The amount of messages waiting to be written.
+     */
+    public int pending() {
+        synchronized (pending) {
+            return pending.size();
+        }
+    }
+
+}
@@ -0,0 +1,186 @@
+package pw.mihou.akari.websocket.routing;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import pw.mihou.akari.configuration.AkariConfiguration;
+import pw.mihou.akari.websocket.core.AkariWebsocketSession;
+import pw.mihou.alisa.modules.requests.AlisaSubscribeRequest;
+import pw.mihou.alisa.modules.subscriptions.AlisaServerRange;
+import pw.mihou.alisa.modules.subscriptions.AlisaTopic;
+
+import javax.annotation.Nullable;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link AkariWebsocketRouter} decides which sessions receive a broadcast based on the topics that
+ * they subscribed to. The subscriptions are compiled into an index whenever they change, which turns
+ * routing a broadcast into a lookup by feed and a floor lookup over the boundaries of the server ranges
+ * instead of checking every subscription of every session.
+ * <br><br>
+ * Subscriptions of clients that resume from the outbox are remembered by their client identifier
+ * and restored when the client reconnects. A client that stays away for longer than the outbox keeps
+ * its messages is forgotten, as are the least recent clients past {@link AkariConfiguration#OUTBOX_REMEMBERED_CLIENTS}.
+ */
+public class AkariWebsocketRouter {
+
+    private final Map<String, AlisaSubscribeRequest> subscriptions = new ConcurrentHashMap<>();
+    private final Cache<String, AlisaSubscribeRequest> remembered = Caffeine.newBuilder()
+            .maximumSize(AkariConfiguration.OUTBOX_REMEMBERED_CLIENTS)
+            .expireAfterWrite(AkariConfiguration.OUTBOX_RETENTION_HOURS, TimeUnit.HOURS)
+            .build();
+
+    private volatile Index index = new Index(List.of(), List.of(), Map.of(), new TreeMap<>());
+
+    /**
+     * Replaces the subscription of the session.
+     *
+     * @param session       The session that subscribed.
+     * @param subscription  The topics that the session subscribed to.
+     */
+    public void subscribe(AkariWebsocketSession session, AlisaSubscribeRequest subscription) {
+        subscriptions.put(session.id(), subscription);
+
+        if (session.client() != null) {
+            remembered.put(session.client(), subscription);
+        }
+    }
+
+    /**
+     * Restores the subscription that the client of the session had during its last connection.
+     *
+     * @param session   The session to restore the subscription of.
+     */
+    public void restore(AkariWebsocketSession session) {
+        if (session.client() == null) {
+            return;
+        }
+
+        AlisaSubscribeRequest subscription = remembered.getIfPresent(session.client());
+        if (subscription != null) {
+            subscriptions.put(session.id(), subscription);
+        }
+    }
+
+    /**
+     * Removes the subscription of the session, the subscription of a client that resumes is
+     * remembered again from the moment it disconnected.
+     *
+     * @param session   The session that disconnected.
+     */
+    public void remove(AkariWebsocketSession session) {
+        AlisaSubscribeRequest subscription = subscriptions.remove(session.id());
+
+        if (subscription != null && session.client() != null) {
+            remembered.put(session.client(), subscription);
+        }
+    }
+
+    /**
+     * Checks whether the session should receive a broadcast of the topic.
+     *
+     * @param session   The session to check.
+     * @param topic     The topic of the broadcast, if any.
+     * @return          Whether the session should receive the broadcast.
+     */
+    public boolean matches(AkariWebsocketSession session, @Nullable AlisaTopic topic) {
+        AlisaSubscribeRequest subscription = subscriptions.get(session.id());
+        return subscription == null || subscription.matches(topic);
+    }
+
+    /**
+     * Gets the sessions that should receive a broadcast of the topic.
+     *
+     * @param topic The topic of the broadcast, broadcasts without a topic go to every session.
+     * @return      The sessions that should receive the broadcast.
+     */
+    public Collection<AkariWebsocketSession> route(@Nullable AlisaTopic topic) {
+        Index current = index;
+
+        if (topic == null) {
+            return current.sessions();
+        }
+
+        Set<AkariWebsocketSession> targets = new LinkedHashSet<>(current.unsubscribed());
+        targets.addAll(current.feeds().getOrDefault(topic.feed(), List.of()));
+
+        Map.Entry<Long, List<AkariWebsocketSession>> servers = current.servers().floorEntry(topic.server());
+        if (servers != null) {
+            targets.addAll(servers.getValue());
+        }
+
+        return targets;
+    }
+
+    /**
+     * Compiles the subscriptions of the sessions into the index that {@link AkariWebsocketRouter#route(AlisaTopic)}
+     * reads from, this should be called whenever a session connects, disconnects or subscribes.
+     *
+     * @param sessions  All the sessions that are connected.
+     */
+    public synchronized void rebuild(Collection<AkariWebsocketSession> sessions) {
+        List<AkariWebsocketSession> unsubscribed = new ArrayList<>();
+        Map<Long, List<AkariWebsocketSession>> feeds = new HashMap<>();
+        Map<AkariWebsocketSession, List<AlisaServerRange>> ranges = new HashMap<>();
+        NavigableSet<Long> boundaries = new TreeSet<>();
+
+        for (AkariWebsocketSession session : sessions) {
+            AlisaSubscribeRequest subscription = subscriptions.get(session.id());
+
+            if (subscription == null) {
+                unsubscribed.add(session);
+                continue;
+            }
+
+            Objects.requireNonNullElse(subscription.feeds(), List.<Long>of())
+                    .forEach(feed -> feeds.computeIfAbsent(feed, key -> new ArrayList<>()).add(session));
+
+            List<AlisaServerRange> servers = Objects.requireNonNullElse(subscription.servers(), List.of());
+            ranges.put(session, servers);
+            for (AlisaServerRange range : servers) {
+                boundaries.add(range.from());
+
+                if (range.to() != Long.MAX_VALUE) {
+                    boundaries.add(range.to() + 1);
+                }
+            }
+        }
+
+        // Every boundary starts a segment of servers that is covered by the same sessions, the
+        // segment of a server is then found by the greatest boundary that is not above it.
+        NavigableMap<Long, List<AkariWebsocketSession>> servers = new TreeMap<>();
+        for (long boundary : boundaries) {
+            List<AkariWebsocketSession> covering = new ArrayList<>();
+
+            ranges.forEach((session, list) -> {
+                if (list.stream().anyMatch(range -> range.contains(boundary))) {
+                    covering.add(session);
+                }
+            });
+
+            servers.put(boundary, List.copyOf(covering));
+        }
+
+        Map<Long, List<AkariWebsocketSession>> frozen = new HashMap<>();
+        feeds.forEach((feed, list) -> frozen.put(feed, List.copyOf(list)));
+
+        index = new Index(List.copyOf(sessions), List.copyOf(unsubscribed), Map.copyOf(frozen), servers);
+    }
+
+    /**
+     * {@link Index} is the compiled form of the subscriptions.
+     *
+     * @param sessions      Every session that is connected.
+     * @param unsubscribed  The sessions that receive every broadcast.
+     * @param feeds         The sessions of every feed that was subscribed to.
+     * @param servers       The sessions of every segment of servers, keyed by the start of the segment.
+     */
+    private record Index(
+            List<AkariWebsocketSession> sessions,
+            List<AkariWebsocketSession> unsubscribed,
+            Map<Long, List<AkariWebsocketSession>> feeds,
+            NavigableMap<Long, List<AkariWebsocketSession>> servers
+    ) {}
+
+}
@@ -0,0 +1,133 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.squareup.moshi.Moshi;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import pw.mihou.akari.Akari;
+import pw.mihou.akari.configuration.AkariConfiguration;
+import pw.mihou.akari.websocket.core.AkariWebsocketCore;
+import pw.mihou.akari.websocket.core.AkariWebsocketFrame;
+import pw.mihou.alisa.modules.AlisaMessage;
+import pw.mihou.alisa.modules.rss.properties.AlisaRssProperty;
+import pw.mihou.alisa.modules.rss.properties.scribblehub.AlisaChapterItem;
+
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.WebSocket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of broadcasting chapters to many connected sessions, this is skipped unless
+ * the benchmark is requested through {@code mvn test -Dakari.benchmark=true}.
+ */
+@EnabledIfSystemProperty(named = "akari.benchmark", matches = "true")
+public class AkariBroadcastBenchmark {
+
+    private static final int SESSIONS = Integer.getInteger("akari.benchmark.sessions", 200);
+    private static final int MESSAGES = Integer.getInteger("akari.benchmark.messages", 500);
+
+    private static AlisaChapterItem chapter(int number) {
+        return new AlisaChapterItem(new AlisaRssProperty("item", null, List.of(
+                new AlisaRssProperty("title", "Chapter " + number, List.of()),
+                new AlisaRssProperty("link", "https://www.scribblehub.com/read/299262-the-vampire-empress/chapter/" + number + "/", List.of()),
+                new AlisaRssProperty("category", "299262", List.of()),
+                new AlisaRssProperty("category", "The Vampire Empress", List.of()),
+                new AlisaRssProperty("dc:creator", "Amelia", List.of()),
+                new AlisaRssProperty("pubDate", "Mon, 7 Feb 2022 10:00:00 +0000", List.of())
+        )));
+    }
+
+    @Test
+    @DisplayName("Encoding once against encoding for every session")
+    public void benchmarkEncoding() {
+        Moshi moshi = Akari.getMoshi();
+        List<AlisaMessage> messages = new ArrayList<>();
+        for (int i = 0; i < MESSAGES; i++) {
+            AlisaChapterItem chapter = chapter(i);
+            messages.add(new AlisaMessage(chapter, chapter.getClass().getName()));
+        }
+
+        // Warms up both paths before measuring.
+        messages.forEach(message -> {
+            message.toMessageable(moshi);
+            AkariWebsocketFrame.of(message).text();
+        });
+
+        long start = System.nanoTime();
+        for (AlisaMessage message : messages) {
+            for (int session = 0; session < SESSIONS; session++) {
+                assertNotNull(message.toMessageable(moshi));
+            }
+        }
+        long perSession = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (AlisaMessage message : messages) {
+            AkariWebsocketFrame frame = AkariWebsocketFrame.of(message);
+            for (int session = 0; session < SESSIONS; session++) {
+                assertNotNull(frame.text());
+            }
+        }
+        long once = System.nanoTime() - start;
+
+        System.out.printf("Encoding %d messages for %d sessions: per-session=%.2fms, once=%.2fms (%.1fx)%n",
+                MESSAGES, SESSIONS, perSession / 1e6, once / 1e6, (double) perSession / once);
+    }
+
+    @Test
+    @DisplayName("Broadcasting to many connected sessions")
+    public void benchmarkBroadcast() throws Exception {
+        Akari.getLogger().setLevel(ch.qos.logback.classic.Level.WARN);
+        try (ServerSocket socket = new ServerSocket(0)) {
+            AkariConfiguration.WEBSOCKET_PORT = socket.getLocalPort();
+        }
+        AkariConfiguration.SECRET = "benchmark";
+        // The benchmark measures the delivery alone, without a database behind the outbox.
+        AkariConfiguration.WEBSOCKET_OUTBOX = false;
+
+        AkariWebsocketCore core = new AkariWebsocketCore();
+        core.start();
+
+        CountDownLatch received = new CountDownLatch(SESSIONS * MESSAGES);
+        HttpClient client = HttpClient.newHttpClient();
+        List<WebSocket> clients = new ArrayList<>();
+
+        for (int i = 0; i < SESSIONS; i++) {
+            clients.add(client.newWebSocketBuilder()
+                    .header("Authorization", "BEARER " + AkariConfiguration.SECRET)
+                    .buildAsync(URI.create("ws://localhost:" + AkariConfiguration.WEBSOCKET_PORT + "/"), new WebSocket.Listener() {
+                        @Override
+                        public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
+                            if (last) {
+                                received.countDown();
+                            }
+
+                            webSocket.request(1);
+                            return null;
+                        }
+                    })
+                    .join());
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < MESSAGES; i++) {
+            core.send(chapter(i));
+        }
+
+        assertTrue(received.await(2, TimeUnit.MINUTES), "Not every session received every message.");
+        long elapsed = System.nanoTime() - start;
+
+        System.out.printf("Broadcasting %d messages to %d sessions: %.2fms, %.0f deliveries/s%n",
+                MESSAGES, SESSIONS, elapsed / 1e6, SESSIONS * MESSAGES / (elapsed / 1e9));
+
+        clients.forEach(webSocket -> webSocket.sendClose(WebSocket.NORMAL_CLOSURE, "").join());
+        core.finishedQueueOnClosing();
+    }
+
+}
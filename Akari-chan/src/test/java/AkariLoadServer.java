@@ -0,0 +1,89 @@
+import pw.mihou.akari.Akari;
+import pw.mihou.akari.configuration.AkariConfiguration;
+import pw.mihou.akari.websocket.core.AkariWebsocketCore;
+import pw.mihou.alisa.modules.rss.properties.AlisaRssProperty;
+import pw.mihou.alisa.modules.rss.properties.scribblehub.AlisaChapterItem;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The server side of {@link AkariLoadTest}, which runs in its own JVM to keep the clients out of the
+ * heap and the threads that are sampled. The server is controlled through its standard input:
+ * <ul>
+ *     <li>{@code broadcast <rate> <seconds>} broadcasts chapters at the rate and answers with {@code injected <nanos> <total>}.</li>
+ *     <li>{@code stop} answers with {@code depth <messages>} and exits.</li>
+ * </ul>
+ * The server answers with {@code ready} once it accepts connections.
+ */
+public class AkariLoadServer {
+
+    // The time at which the chapter was broadcast is carried in its title as microseconds since the
+    // epoch, which both JVMs read from the same clock.
+    public static final String MARKER = "@sent=";
+
+    public static long now() {
+        return ChronoUnit.MICROS.between(Instant.EPOCH, Instant.now());
+    }
+
+    private static AlisaChapterItem chapter(int number) {
+        return new AlisaChapterItem(new AlisaRssProperty("item", null, List.of(
+                new AlisaRssProperty("title", "Chapter " + number + MARKER + now() + ";", List.of()),
+                new AlisaRssProperty("link", "https://www.scribblehub.com/read/299262-the-vampire-empress/chapter/" + number + "/", List.of()),
+                new AlisaRssProperty("category", "299262", List.of()),
+                new AlisaRssProperty("category", "The Vampire Empress", List.of()),
+                new AlisaRssProperty("dc:creator", "Amelia", List.of()),
+                new AlisaRssProperty("pubDate", "Mon, 7 Feb 2022 10:00:00 +0000", List.of())
+        )));
+    }
+
+    public static void main(String[] args) throws Exception {
+        Akari.getLogger().setLevel(ch.qos.logback.classic.Level.WARN);
+        AkariConfiguration.WEBSOCKET_PORT = Integer.parseInt(args[0]);
+        AkariConfiguration.SECRET = args[1];
+
+        // The load test measures the delivery alone, without a database behind the outbox.
+        AkariConfiguration.WEBSOCKET_OUTBOX = false;
+        AkariConfiguration.WEBSOCKET_SPOOL = false;
+
+        AkariWebsocketCore core = new AkariWebsocketCore();
+        core.start();
+        System.out.println("ready");
+
+        BufferedReader input = new BufferedReader(new InputStreamReader(System.in));
+        String line;
+        while ((line = input.readLine()) != null) {
+            String[] command = line.trim().split(" ");
+
+            if (command[0].equals("broadcast")) {
+                int rate = Integer.parseInt(command[1]);
+                int total = rate * Integer.parseInt(command[2]);
+                long period = TimeUnit.SECONDS.toNanos(1) / rate;
+                long start = System.nanoTime();
+
+                // Every broadcast is scheduled against the start instead of the previous broadcast,
+                // a slow broadcast is caught up on instead of lowering the rate.
+                for (int i = 0; i < total; i++) {
+                    long delay = start + i * period - System.nanoTime();
+                    if (delay > 0) {
+                        LockSupport.parkNanos(delay);
+                    }
+
+                    core.send(chapter(i));
+                }
+
+                System.out.println("injected " + (System.nanoTime() - start) + " " + total);
+            } else if (command[0].equals("stop")) {
+                System.out.println("depth " + core.depth());
+                core.finishedQueueOnClosing();
+                System.exit(0);
+            }
+        }
+    }
+
+}
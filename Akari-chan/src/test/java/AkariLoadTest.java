@@ -0,0 +1,296 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import pw.mihou.alisa.modules.AlisaMessage;
+import pw.mihou.alisa.modules.codec.AlisaBinaryCodec;
+import pw.mihou.alisa.modules.codec.AlisaEncoding;
+import pw.mihou.alisa.modules.rss.properties.scribblehub.AlisaChapterItem;
+
+import javax.management.MBeanServerConnection;
+import javax.management.remote.JMXConnector;
+import javax.management.remote.JMXConnectorFactory;
+import javax.management.remote.JMXServiceURL;
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.WebSocket;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Simulates many Ame-chan clients connected to a local Akari while chapters are broadcast at a target
+ * rate, this reports the end-to-end latency percentiles, the throughput and the heap and thread counts
+ * of the server. The server runs without a database in its own JVM, {@link AkariLoadServer}, and is
+ * sampled over JMX which keeps the clients out of its numbers. The test is skipped unless it is requested
+ * through {@code mvn test -Dakari.load=true}.
+ * <br><br>
+ * The load can be shaped through {@code akari.load.clients}, {@code akari.load.rate} (broadcasts per second),
+ * {@code akari.load.seconds} and {@code akari.load.binary} (the share of clients that negotiate MessagePack).
+ */
+@EnabledIfSystemProperty(named = "akari.load", matches = "true")
+public class AkariLoadTest {
+
+    private static final int CLIENTS = Integer.getInteger("akari.load.clients", 500);
+    private static final int RATE = Integer.getInteger("akari.load.rate", 200);
+    private static final int SECONDS = Integer.getInteger("akari.load.seconds", 10);
+    private static final double BINARY = Double.parseDouble(System.getProperty("akari.load.binary", "0.5"));
+
+    private static final String SECRET = "load";
+
+    private static int port() throws Exception {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    @Test
+    @DisplayName("Broadcasting chapters at a target rate to many clients")
+    public void load() throws Exception {
+        int port = port();
+        int jmx = port();
+
+        Process server = new ProcessBuilder(
+                Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                "-cp", System.getProperty("surefire.test.class.path", System.getProperty("java.class.path")),
+                "-Dcom.sun.management.jmxremote.port=" + jmx,
+                "-Dcom.sun.management.jmxremote.rmi.port=" + jmx,
+                "-Dcom.sun.management.jmxremote.authenticate=false",
+                "-Dcom.sun.management.jmxremote.ssl=false",
+                "-Djava.rmi.server.hostname=localhost",
+                AkariLoadServer.class.getName(),
+                String.valueOf(port),
+                SECRET
+        ).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+
+        BufferedReader output = new BufferedReader(new InputStreamReader(server.getInputStream()));
+        PrintWriter input = new PrintWriter(server.getOutputStream(), true);
+
+        try {
+            assertNotNull(answer(output, "ready"), "The server did not start.");
+
+            Sampler sampler = new Sampler(JMXConnectorFactory.connect(
+                    new JMXServiceURL("service:jmx:rmi:///jndi/rmi://localhost:" + jmx + "/jmxrmi")));
+
+            HttpClient http = HttpClient.newHttpClient();
+            List<Client> clients = new ArrayList<>();
+            int binary = (int) Math.round(CLIENTS * BINARY);
+            for (int i = 0; i < CLIENTS; i++) {
+                AlisaEncoding encoding = i < binary ? AlisaEncoding.MSGPACK : AlisaEncoding.JSON;
+                Client client = new Client(encoding);
+                client.socket = http.newWebSocketBuilder()
+                        .header("Authorization", "BEARER " + SECRET)
+                        .header(AlisaEncoding.HEADER, encoding.name())
+                        .buildAsync(URI.create("ws://localhost:" + port + "/"), client)
+                        .join();
+                clients.add(client);
+            }
+
+            // Gives the server the time to register the sessions of the last handshakes.
+            Thread.sleep(500);
+
+            long start = System.nanoTime();
+            input.println("broadcast " + RATE + " " + SECONDS);
+
+            String[] injection = answer(output, "injected").split(" ");
+            long injected = Long.parseLong(injection[1]);
+            int total = Integer.parseInt(injection[2]);
+
+            long expected = (long) total * CLIENTS;
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+            while (received(clients) < expected && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            long elapsed = System.nanoTime() - start;
+            sampler.stop();
+
+            input.println("stop");
+            String depth = answer(output, "depth");
+
+            long received = received(clients);
+            System.out.printf("Load of %d clients (%d msgpack) at %d broadcasts/s for %ds:%n", CLIENTS, binary, RATE, SECONDS);
+            System.out.printf("  injected=%d (%.0f/s), delivered=%d/%d (%.0f/s), lost=%d%n",
+                    total, total / (injected / 1e9), received, expected, received / (elapsed / 1e9), expected - received);
+
+            for (AlisaEncoding encoding : AlisaEncoding.values()) {
+                long[] latencies = clients.stream()
+                        .filter(client -> client.encoding == encoding)
+                        .flatMapToLong(client -> Arrays.stream(client.latencies, 0, client.count))
+                        .sorted()
+                        .toArray();
+
+                System.out.printf("  %s latency p50=%.2fms p90=%.2fms p99=%.2fms p99.9=%.2fms max=%.2fms%n",
+                        encoding, percentile(latencies, 0.5), percentile(latencies, 0.9), percentile(latencies, 0.99),
+                        percentile(latencies, 0.999), percentile(latencies, 1));
+            }
+
+            System.out.printf("  server heap peak=%dMB, threads peak=%d, %s%n",
+                    sampler.heap.get() / 1048576, sampler.threads.get(), depth);
+
+            clients.forEach(client -> client.socket.abort());
+            assertTrue(received > 0, "No client received any broadcast.");
+        } finally {
+            server.destroy();
+            server.waitFor(10, TimeUnit.SECONDS);
+        }
+
+        System.out.println("Load test was performed ✔️");
+    }
+
+    /**
+     * Reads the output of the server until its answer to a command, the server logs onto the
+     * same output which is why the lines in between are skipped.
+     *
+     * @param output    The output of the server.
+     * @param answer    The first word of the answer.
+     * @return          The line of the answer, null when the server exited before answering.
+     */
+    private static String answer(BufferedReader output, String answer) throws Exception {
+        String line;
+        while ((line = output.readLine()) != null) {
+            if (line.equals(answer) || line.startsWith(answer + " ")) {
+                return line;
+            }
+        }
+
+        return null;
+    }
+
+    private static long received(List<Client> clients) {
+        return clients.stream().mapToLong(client -> client.received.get()).sum();
+    }
+
+    private static double percentile(long[] latencies, double percentile) {
+        if (latencies.length == 0) {
+            return Double.NaN;
+        }
+
+        int index = (int) Math.ceil(percentile * latencies.length) - 1;
+        return latencies[Math.max(0, Math.min(latencies.length - 1, index))] / 1e6;
+    }
+
+    /**
+     * A simulated Ame-chan client that records the latency of every chapter it receives, the listener
+     * is never called concurrently for the same websocket which is why the recordings are not guarded.
+     * Clients that negotiated MessagePack decode every frame the way Ame-chan does.
+     */
+    private static class Client implements WebSocket.Listener {
+
+        private final AlisaEncoding encoding;
+        private volatile WebSocket socket;
+        private final AtomicLong received = new AtomicLong();
+        private final StringBuilder partial = new StringBuilder();
+        private final ByteBuffer bytes = ByteBuffer.allocate(64 * 1024);
+        private long[] latencies = new long[1024];
+        private int count;
+
+        Client(AlisaEncoding encoding) {
+            this.encoding = encoding;
+        }
+
+        @Override
+        public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
+            long now = AkariLoadServer.now();
+            partial.append(data);
+
+            if (last) {
+                record(partial, now);
+                partial.setLength(0);
+            }
+
+            webSocket.request(1);
+            return null;
+        }
+
+        @Override
+        public CompletionStage<?> onBinary(WebSocket webSocket, ByteBuffer data, boolean last) {
+            long now = AkariLoadServer.now();
+            bytes.put(data);
+
+            if (last) {
+                try {
+                    AlisaMessage message = AlisaBinaryCodec.decode(bytes.array(), 0, bytes.position());
+
+                    if (message.data() instanceof AlisaChapterItem chapter) {
+                        record(chapter.title(), now);
+                    }
+                } catch (Exception exception) {
+                    exception.printStackTrace();
+                }
+
+                bytes.clear();
+            }
+
+            webSocket.request(1);
+            return null;
+        }
+
+        private void record(CharSequence text, long now) {
+            String value = text.toString();
+            int start = value.indexOf(AkariLoadServer.MARKER);
+
+            if (start == -1) {
+                return;
+            }
+
+            start += AkariLoadServer.MARKER.length();
+            long sent = Long.parseLong(value.substring(start, value.indexOf(";", start)));
+
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+
+            // The latencies are kept in nanoseconds while the clock only reads microseconds.
+            latencies[count++] = (now - sent) * 1000;
+            received.incrementAndGet();
+        }
+
+    }
+
+    /**
+     * Samples the peak heap usage and thread count of the server over its JMX connection.
+     */
+    private static class Sampler {
+
+        private final AtomicLong heap = new AtomicLong();
+        private final AtomicLong threads = new AtomicLong();
+        private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+
+        private final JMXConnector connector;
+
+        Sampler(JMXConnector connector) throws Exception {
+            this.connector = connector;
+
+            MBeanServerConnection connection = connector.getMBeanServerConnection();
+            MemoryMXBean memory = ManagementFactory.newPlatformMXBeanProxy(connection, ManagementFactory.MEMORY_MXBEAN_NAME, MemoryMXBean.class);
+            ThreadMXBean thread = ManagementFactory.newPlatformMXBeanProxy(connection, ManagementFactory.THREAD_MXBEAN_NAME, ThreadMXBean.class);
+
+            executor.scheduleAtFixedRate(() -> {
+                heap.accumulateAndGet(memory.getHeapMemoryUsage().getUsed(), Math::max);
+                threads.accumulateAndGet(thread.getThreadCount(), Math::max);
+            }, 0, 100, TimeUnit.MILLISECONDS);
+        }
+
+        /**
+         * Stops sampling and closes the connection, which has to happen before the server exits.
+         */
+        void stop() throws Exception {
+            executor.shutdownNow();
+            connector.close();
+        }
+
+    }
+
+}
@@ -0,0 +1,90 @@
+package pw.mihou.alisa.modules;
+
+import org.bson.Document;
+import pw.mihou.alisa.interfaces.DatabaseModel;
+import pw.mihou.alisa.modules.database.modules.AlisaIndex;
+import pw.mihou.alisa.modules.rss.properties.scribblehub.AlisaChapterItem;
+import pw.mihou.alisa.modules.rss.properties.scribblehub.modules.AlisaStoryProperty;
+
+import java.util.Date;
+
+/**
+ * {@link AlisaChapter} is one chapter of the chapter history, the chapters are kept by the story
+ * that they belong to no matter which feed they were found in.
+ *
+ * @param url       The url of the feed that the chapter was first found in.
+ * @param title     The title of the chapter.
+ * @param link      The link of the chapter.
+ * @param creator   The creator of the chapter.
+ * @param pubDate   The published date of the chapter.
+ * @param story     The story properties of the chapter.
+ * @param stored    The date the chapter was stored, the chapter expires a while after this date.
+ */
+public record AlisaChapter(
+        String url,
+        String title,
+        String link,
+        String creator,
+        Date pubDate,
+        AlisaStoryProperty story,
+        Date stored
+) implements DatabaseModel {
+
+    /**
+     * Creates a new {@link AlisaChapter} out of a chapter that was found in the feed.
+     *
+     * @param url       The url of the feed.
+     * @param chapter   The chapter that was found.
+     * @return          The chapter to store.
+     */
+    public static AlisaChapter of(String url, AlisaChapterItem chapter) {
+        return new AlisaChapter(url, chapter.title(), chapter.link(), chapter.creator(), chapter.pubDate(), chapter.story(), new Date());
+    }
+
+    /**
+     * Creates a new instance from the {@link Document} collected.
+     *
+     * @param document  The document to reference from.
+     * @return          The new model from the data generated.
+     */
+    public static AlisaChapter from(Document document) {
+        Document story = document.get("story", Document.class);
+
+        return new AlisaChapter(
+                document.getString("url"),
+                document.getString("title"),
+                document.getString("link"),
+                document.getString("creator"),
+                document.getDate("pubDate"),
+                new AlisaStoryProperty(story.getString("name"), story.getInteger("id")),
+                document.getDate("stored")
+        );
+    }
+
+    @Override
+    public Document document() {
+        return new Document().append("_id", identifier())
+                .append("url", url)
+                .append("title", title)
+                .append("link", link)
+                .append("creator", creator)
+                .append("pubDate", pubDate)
+                .append("story", new Document("name", story.name()).append("id", story.id()))
+                .append("stored", stored);
+    }
+
+    @Override
+    public AlisaIndex index() {
+        return new AlisaIndex("_id", identifier());
+    }
+
+    /**
+     * Gets the identifier of this chapter, a chapter is stored once for its story no matter
+     * how many feeds found it.
+     *
+     * @return  The identifier of this chapter.
+     */
+    private Document identifier() {
+        return new Document("story", story.id()).append("link", link);
+    }
+}
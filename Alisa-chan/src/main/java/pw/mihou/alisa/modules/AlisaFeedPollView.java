@@ -0,0 +1,58 @@
+package pw.mihou.alisa.modules;
+
+import org.bson.Document;
+import pw.mihou.alisa.modules.database.modules.AlisaIndex;
+import pw.mihou.alisa.modules.database.modules.AlisaProjection;
+
+import java.util.Date;
+
+/**
+ * {@link AlisaFeedPollView} is the part of an {@link AlisaFeed} that the poller reads, this leaves
+ * out the names, channels, users and mentions of the feed which are never read while polling.
+ *
+ * @param unique    The unique identifier of the feed.
+ * @param url       The url of the feed.
+ * @param server    The server that the feed belongs to.
+ * @param date      The date of the newest chapter that was announced for the feed.
+ */
+public record AlisaFeedPollView(long unique, String url, long server, Date date) {
+
+    public static final AlisaProjection<AlisaFeedPollView> PROJECTION = AlisaProjection.of(
+            AlisaFeedPollView::from, "unique", "url", "server", "date"
+    );
+
+    /**
+     * Creates the view of the feed specified.
+     *
+     * @param feed  The feed to create the view of.
+     * @return      The view of the feed.
+     */
+    public static AlisaFeedPollView of(AlisaFeed feed) {
+        return new AlisaFeedPollView(feed.unique(), feed.url(), feed.server(), feed.date());
+    }
+
+    /**
+     * Creates a new instance from the projected {@link Document} collected.
+     *
+     * @param document  The document to reference from.
+     * @return          The new view from the data generated.
+     */
+    public static AlisaFeedPollView from(Document document) {
+        return new AlisaFeedPollView(
+                document.getLong("unique"),
+                document.getString("url"),
+                document.getLong("server"),
+                document.getDate("date")
+        );
+    }
+
+    /**
+     * Gets the index of the feed of this view, this is the same index as {@link AlisaFeed#index()}.
+     *
+     * @return  The index of the feed.
+     */
+    public AlisaIndex index() {
+        return new AlisaIndex("unique", unique);
+    }
+
+}
@@ -0,0 +1,44 @@
+package pw.mihou.alisa.modules;
+
+import com.mongodb.client.model.Accumulators;
+import com.mongodb.client.model.Aggregates;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+
+import javax.annotation.Nullable;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * {@link AlisaFeedSubscribers} is one url of the feeds collection with every {@link AlisaFeed} that
+ * subscribes to it, the feeds are grouped by the database through {@link #PIPELINE}.
+ *
+ * @param url       The url of the feeds.
+ * @param uniques   The unique identifiers of the feeds that subscribe to the url.
+ * @param date      The oldest date of the newest announced chapter among the feeds, the
+ *                  chapters after this date are new to at least one of the feeds.
+ */
+public record AlisaFeedSubscribers(String url, List<Long> uniques, @Nullable Date date) {
+
+    public static final List<Bson> PIPELINE = List.of(
+            Aggregates.group("$url",
+                    Accumulators.push("uniques", "$unique"),
+                    Accumulators.min("date", "$date")
+            )
+    );
+
+    /**
+     * Creates a new instance from the grouped {@link Document} collected.
+     *
+     * @param document  The document to reference from.
+     * @return          The new group from the data generated.
+     */
+    public static AlisaFeedSubscribers from(Document document) {
+        return new AlisaFeedSubscribers(
+                document.getString("_id"),
+                document.getList("uniques", Number.class).stream().map(Number::longValue).toList(),
+                document.getDate("date")
+        );
+    }
+
+}
@@ -6,7 +6,35 @@ import javax.annotation.Nullable;
 import java.io.IOException;
 import java.util.Optional;
 
-public record AlisaMessage(Object data, String className) {
+/**
+ * {@link AlisaMessage} is the envelope of everything that is sent over the websocket.
+ *
+ * @param data      The data of the message.
+ * @param className The class name of the data.
+ * @param sequence  The sequence number of the message in the outbox of Akari-chan, this is only
+ *                  present on messages that were persisted and should be acknowledged.
+ */
+public record AlisaMessage(Object data, String className, @Nullable Long sequence) {
+
+    /**
+     * Creates a new {@link AlisaMessage} without a sequence number.
+     *
+     * @param data      The data of the message.
+     * @param className The class name of the data.
+     */
+    public AlisaMessage(Object data, String className) {
+        this(data, className, null);
+    }
+
+    /**
+     * Creates a copy of this message with the sequence number specified.
+     *
+     * @param sequence  The sequence number of the message.
+     * @return          The copy of this message with the sequence number.
+     */
+    public AlisaMessage sequence(long sequence) {
+        return new AlisaMessage(data, className, sequence);
+    }
 
     /**
      * Gets the {@link String} equivalent message of this message, this will only work
@@ -0,0 +1,38 @@
+package pw.mihou.alisa.modules;
+
+import org.bson.Document;
+import pw.mihou.alisa.interfaces.DatabaseModel;
+import pw.mihou.alisa.modules.database.modules.AlisaIndex;
+
+/**
+ * {@link AlisaOutboxCursor} is the last sequence number that a client has acknowledged.
+ *
+ * @param client    The identifier of the client.
+ * @param sequence  The last sequence number that was acknowledged.
+ */
+public record AlisaOutboxCursor(String client, long sequence) implements DatabaseModel {
+
+    /**
+     * Creates a new instance from the {@link Document} collected.
+     *
+     * @param document  The document to reference from.
+     * @return          The new model from the data generated.
+     */
+    public static AlisaOutboxCursor from(Document document) {
+        return new AlisaOutboxCursor(
+                document.getString("client"),
+                document.getLong("sequence")
+        );
+    }
+
+    @Override
+    public Document document() {
+        return new Document().append("client", client)
+                .append("sequence", sequence);
+    }
+
+    @Override
+    public AlisaIndex index() {
+        return new AlisaIndex("client", client);
+    }
+}
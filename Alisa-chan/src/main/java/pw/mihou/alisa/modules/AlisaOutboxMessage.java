@@ -0,0 +1,63 @@
+package pw.mihou.alisa.modules;
+
+import org.bson.Document;
+import pw.mihou.alisa.interfaces.DatabaseModel;
+import pw.mihou.alisa.modules.database.modules.AlisaIndex;
+import pw.mihou.alisa.modules.subscriptions.AlisaTopic;
+
+import javax.annotation.Nullable;
+import java.util.Date;
+
+/**
+ * {@link AlisaOutboxMessage} is a message that was persisted into the outbox of Akari-chan
+ * to be delivered again to clients that have not acknowledged it.
+ *
+ * @param sequence  The sequence number of the message.
+ * @param className The class name of the data.
+ * @param data      The data of the message in the same structure as its JSON.
+ * @param topic     The topic of the message, if it was routed.
+ * @param created   The date the message was persisted.
+ */
+public record AlisaOutboxMessage(long sequence, String className, Object data, @Nullable AlisaTopic topic, Date created) implements DatabaseModel {
+
+    /**
+     * Creates a new instance from the {@link Document} collected.
+     *
+     * @param document  The document to reference from.
+     * @return          The new model from the data generated.
+     */
+    public static AlisaOutboxMessage from(Document document) {
+        Document topic = document.get("topic", Document.class);
+
+        return new AlisaOutboxMessage(
+                document.getLong("sequence"),
+                document.getString("className"),
+                document.get("data"),
+                topic == null ? null : new AlisaTopic(topic.getLong("feed"), topic.getLong("server")),
+                document.getDate("created")
+        );
+    }
+
+    /**
+     * Transforms this into the message that is sent to clients.
+     *
+     * @return  The message of this outbox message.
+     */
+    public AlisaMessage message() {
+        return new AlisaMessage(data, className, sequence);
+    }
+
+    @Override
+    public Document document() {
+        return new Document().append("sequence", sequence)
+                .append("className", className)
+                .append("data", data)
+                .append("topic", topic == null ? null : new Document("feed", topic.feed()).append("server", topic.server()))
+                .append("created", created);
+    }
+
+    @Override
+    public AlisaIndex index() {
+        return new AlisaIndex("sequence", sequence);
+    }
+}
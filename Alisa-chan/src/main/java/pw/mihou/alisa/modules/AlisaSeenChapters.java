@@ -0,0 +1,79 @@
+package pw.mihou.alisa.modules;
+
+import org.bson.Document;
+import org.bson.types.Binary;
+import pw.mihou.alisa.interfaces.DatabaseModel;
+import pw.mihou.alisa.modules.database.modules.AlisaIndex;
+
+import javax.annotation.Nullable;
+import java.util.List;
+
+/**
+ * {@link AlisaSeenChapters} is the persisted window of the most recent chapter links
+ * that were announced for a feed, alongside the bits of the filters that remember the
+ * links which have fallen out of the window.
+ */
+public record AlisaSeenChapters(long unique, List<String> links, @Nullable Binary filter, @Nullable Binary previous,
+                                int filtered, AlisaIndex index) implements DatabaseModel {
+
+    /**
+     * Creates a new {@link AlisaSeenChapters} for the feed specified without any filters.
+     *
+     * @param unique    The unique identifier of the feed.
+     * @param links     The links of the window, from the oldest to the newest.
+     */
+    public AlisaSeenChapters(long unique, List<String> links) {
+        this(unique, links, null, null, 0);
+    }
+
+    /**
+     * Creates a new {@link AlisaSeenChapters} for the feed specified.
+     *
+     * @param unique    The unique identifier of the feed.
+     * @param links     The links of the window, from the oldest to the newest.
+     * @param filter    The bits of the current generation of the filter.
+     * @param previous  The bits of the previous generation of the filter.
+     * @param filtered  The amount of links that the current generation has taken in.
+     */
+    public AlisaSeenChapters(long unique, List<String> links, @Nullable Binary filter, @Nullable Binary previous, int filtered) {
+        this(unique, links, filter, previous, filtered, new AlisaIndex("unique", unique));
+    }
+
+    /**
+     * Creates a new instance from the {@link Document} collected.
+     *
+     * @param document  The document to reference from.
+     * @return          The new model from the data generated.
+     */
+    public static AlisaSeenChapters from(Document document) {
+        return new AlisaSeenChapters(
+                document.getLong("unique"),
+                document.getList("links", String.class),
+                document.get("filter", Binary.class),
+                document.get("previous", Binary.class),
+                document.getInteger("filtered", 0)
+        );
+    }
+
+    @Override
+    public Document document() {
+        Document document = new Document().append("unique", unique)
+                .append("links", links)
+                .append("filtered", filtered);
+
+        if (filter != null) {
+            document.append("filter", filter);
+        }
+
+        if (previous != null) {
+            document.append("previous", previous);
+        }
+
+        return document;
+    }
+
+    @Override
+    public AlisaIndex index() {
+        return index;
+    }
+}
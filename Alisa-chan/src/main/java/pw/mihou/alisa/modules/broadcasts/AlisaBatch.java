@@ -0,0 +1,14 @@
+package pw.mihou.alisa.modules.broadcasts;
+
+import pw.mihou.alisa.modules.AlisaMessage;
+
+import java.util.List;
+
+/**
+ * {@link AlisaBatch} is an envelope that Akari-chan uses to coalesce several broadcasts into a
+ * single websocket frame when batching is enabled, every message inside keeps its own class name.
+ *
+ * @param messages  The messages inside this batch, in the order they were sent.
+ */
+public record AlisaBatch(List<AlisaMessage> messages) {
+}
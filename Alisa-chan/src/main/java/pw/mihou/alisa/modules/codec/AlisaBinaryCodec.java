@@ -0,0 +1,257 @@
+package pw.mihou.alisa.modules.codec;
+
+import com.squareup.moshi.JsonAdapter;
+import org.msgpack.core.MessageBufferPacker;
+import org.msgpack.core.MessagePack;
+import org.msgpack.core.MessagePacker;
+import org.msgpack.core.MessageUnpacker;
+import org.msgpack.value.Value;
+import pw.mihou.alisa.AlisaGlobal;
+import pw.mihou.alisa.modules.AlisaMessage;
+import pw.mihou.alisa.modules.broadcasts.AlisaBatch;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link AlisaBinaryCodec} encodes {@link AlisaMessage}s into MessagePack. Every message is an array of
+ * its numeric tag from {@link AlisaMessageTypes} and its data, messages of unknown types carry their
+ * class name in between and messages with a sequence number carry it at the end. The data itself is
+ * the same structure that the JSON encoding produces, which keeps both encodings interchangeable
+ * without writing an encoder for every type.
+ */
+public class AlisaBinaryCodec {
+
+    // Encoding goes through the adapter of Object which picks the adapter of the runtime type, the
+    // same way the data of an AlisaMessage is encoded into JSON.
+    private static final JsonAdapter<Object> ENCODER = AlisaGlobal.MOSHI.adapter(Object.class);
+    private static final Map<Class<?>, JsonAdapter<Object>> adapters = new ConcurrentHashMap<>();
+
+    /**
+     * Encodes the message into MessagePack.
+     *
+     * @param message   The message to encode.
+     * @return          The encoded message.
+     */
+    public static byte[] encode(AlisaMessage message) {
+        try (MessageBufferPacker packer = MessagePack.newDefaultBufferPacker()) {
+            pack(packer, message);
+            return packer.toByteArray();
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    /**
+     * Decodes the message from MessagePack, the data of the message is resolved into its
+     * type if the type is registered.
+     *
+     * @param bytes         The encoded message.
+     * @return              The decoded message.
+     * @throws IOException  If the bytes are not a valid message.
+     */
+    public static AlisaMessage decode(byte[] bytes) throws IOException {
+        return decode(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Decodes the message from a region of the bytes, the data of the message is resolved
+     * into its type if the type is registered.
+     *
+     * @param bytes         The bytes that contain the encoded message.
+     * @param offset        The offset of the message within the bytes.
+     * @param length        The length of the message.
+     * @return              The decoded message.
+     * @throws IOException  If the bytes are not a valid message.
+     */
+    public static AlisaMessage decode(byte[] bytes, int offset, int length) throws IOException {
+        try (MessageUnpacker unpacker = MessagePack.newDefaultUnpacker(bytes, offset, length)) {
+            return unpack(unpacker.unpackValue());
+        }
+    }
+
+    /**
+     * Writes a single message into the packer.
+     *
+     * @param packer        The packer to write into.
+     * @param message       The message to write.
+     * @throws IOException  If the packer fails to write.
+     */
+    private static void pack(MessagePacker packer, AlisaMessage message) throws IOException {
+        int tag = AlisaMessageTypes.tag(message.className());
+        int size = message.sequence() == null ? 2 : 3;
+
+        if (tag == AlisaMessageTypes.UNKNOWN) {
+            packer.packArrayHeader(size + 1).packInt(tag).packString(message.className());
+        } else {
+            packer.packArrayHeader(size).packInt(tag);
+        }
+
+        // Batches are unwrapped so that the messages inside also use their tags instead
+        // of their class names.
+        if (message.data() instanceof AlisaBatch batch) {
+            packer.packArrayHeader(batch.messages().size());
+
+            for (AlisaMessage inner : batch.messages()) {
+                pack(packer, inner);
+            }
+        } else {
+            packValue(packer, ENCODER.toJsonValue(message.data()));
+        }
+
+        if (message.sequence() != null) {
+            packer.packLong(message.sequence());
+        }
+    }
+
+    /**
+     * Writes the structure that Moshi produced into the packer.
+     *
+     * @param packer        The packer to write into.
+     * @param value         The value to write.
+     * @throws IOException  If the packer fails to write.
+     */
+    private static void packValue(MessagePacker packer, Object value) throws IOException {
+        if (value == null) {
+            packer.packNil();
+        } else if (value instanceof String string) {
+            packer.packString(string);
+        } else if (value instanceof Boolean bool) {
+            packer.packBoolean(bool);
+        } else if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            packer.packLong(((Number) value).longValue());
+        } else if (value instanceof Number number) {
+            packer.packDouble(number.doubleValue());
+        } else if (value instanceof Map<?, ?> map) {
+            packer.packMapHeader(map.size());
+
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                packer.packString(String.valueOf(entry.getKey()));
+                packValue(packer, entry.getValue());
+            }
+        } else if (value instanceof List<?> list) {
+            packer.packArrayHeader(list.size());
+
+            for (Object item : list) {
+                packValue(packer, item);
+            }
+        } else {
+            throw new IllegalArgumentException("The value of type " + value.getClass().getName() + " cannot be packed.");
+        }
+    }
+
+    /**
+     * Reads a single message from the value, the envelope is validated before anything
+     * is read from it.
+     *
+     * @param value         The value to read from.
+     * @return              The message that was read.
+     * @throws IOException  If the value is not a valid message.
+     */
+    private static AlisaMessage unpack(Value value) throws IOException {
+        if (!value.isArrayValue()) {
+            throw new IOException("A message must be an array of its tag and its data.");
+        }
+
+        List<Value> envelope = value.asArrayValue().list();
+
+        if (envelope.isEmpty() || !envelope.get(0).isIntegerValue() || !envelope.get(0).asIntegerValue().isInIntRange()) {
+            throw new IOException("A message must start with its tag.");
+        }
+
+        int tag = envelope.get(0).asIntegerValue().toInt();
+        int offset = tag == AlisaMessageTypes.UNKNOWN ? 2 : 1;
+
+        if (envelope.size() < offset + 1 || envelope.size() > offset + 2) {
+            throw new IOException("A message of tag " + tag + " must have " + (offset + 1) + " or " + (offset + 2) + " elements.");
+        }
+
+        if (tag == AlisaMessageTypes.UNKNOWN && !envelope.get(1).isStringValue()) {
+            throw new IOException("A message of an unknown type must carry its class name.");
+        }
+
+        Value data = envelope.get(offset);
+        Long sequence = null;
+
+        if (envelope.size() > offset + 1) {
+            if (!envelope.get(offset + 1).isIntegerValue() || !envelope.get(offset + 1).asIntegerValue().isInLongRange()) {
+                throw new IOException("The sequence number of a message must be an integer.");
+            }
+
+            sequence = envelope.get(offset + 1).asIntegerValue().toLong();
+        }
+
+        Class<?> type = AlisaMessageTypes.type(tag);
+
+        try {
+            if (type == null) {
+                String className = tag == AlisaMessageTypes.UNKNOWN ? envelope.get(1).asStringValue().asString() : String.valueOf(tag);
+                return new AlisaMessage(unpackValue(data), className, sequence);
+            }
+
+            if (type.equals(AlisaBatch.class)) {
+                if (!data.isArrayValue()) {
+                    throw new IOException("The data of a batch must be an array of messages.");
+                }
+
+                List<AlisaMessage> messages = new ArrayList<>();
+
+                for (Value inner : data.asArrayValue()) {
+                    messages.add(unpack(inner));
+                }
+
+                return new AlisaMessage(new AlisaBatch(messages), type.getName(), sequence);
+            }
+
+            return new AlisaMessage(adapter(type).fromJsonValue(unpackValue(data)), type.getName(), sequence);
+        } catch (RuntimeException exception) {
+            // Values that cannot be read and data that does not match the structure of its
+            // type are both invalid messages to the caller.
+            throw new IOException("The message of tag " + tag + " is not valid: " + exception.getMessage(), exception);
+        }
+    }
+
+    /**
+     * Reads the value into the same structure that Moshi reads from.
+     *
+     * @param value The value to read.
+     * @return      The structure of the value.
+     */
+    private static Object unpackValue(Value value) {
+        return switch (value.getValueType()) {
+            case NIL -> null;
+            case BOOLEAN -> value.asBooleanValue().getBoolean();
+            case INTEGER -> value.asIntegerValue().toLong();
+            case FLOAT -> value.asFloatValue().toDouble();
+            case STRING -> value.asStringValue().asString();
+            case ARRAY -> {
+                List<Object> list = new ArrayList<>();
+                value.asArrayValue().forEach(item -> list.add(unpackValue(item)));
+                yield list;
+            }
+            case MAP -> {
+                Map<String, Object> map = new LinkedHashMap<>();
+                value.asMapValue().map().forEach((key, item) -> map.put(key.toString(), unpackValue(item)));
+                yield map;
+            }
+            default -> throw new IllegalArgumentException("The value of type " + value.getValueType() + " cannot be unpacked.");
+        };
+    }
+
+    /**
+     * Gets the cached Moshi adapter that decodes the type specified.
+     *
+     * @param type  The type of the adapter.
+     * @return      The adapter of the type.
+     */
+    @SuppressWarnings("unchecked")
+    private static JsonAdapter<Object> adapter(Class<?> type) {
+        return adapters.computeIfAbsent(type, key -> (JsonAdapter<Object>) AlisaGlobal.MOSHI.adapter(key));
+    }
+
+}
@@ -0,0 +1,31 @@
+package pw.mihou.alisa.modules.codec;
+
+import javax.annotation.Nullable;
+
+/**
+ * {@link AlisaEncoding} is the wire format that a client negotiates with Akari-chan through the
+ * {@link AlisaEncoding#HEADER} header (or the query parameter of the same name) when connecting.
+ */
+public enum AlisaEncoding {
+
+    JSON,
+    MSGPACK;
+
+    public static final String HEADER = "Amelia-Encoding";
+
+    /**
+     * Gets the encoding that matches the name, anything unknown falls back to {@link AlisaEncoding#JSON}
+     * to keep older clients working.
+     *
+     * @param name  The name of the encoding.
+     * @return      The encoding that matches the name.
+     */
+    public static AlisaEncoding of(@Nullable String name) {
+        if (name != null && name.equalsIgnoreCase(MSGPACK.name())) {
+            return MSGPACK;
+        }
+
+        return JSON;
+    }
+
+}
@@ -0,0 +1,76 @@
+package pw.mihou.alisa.modules.codec;
+
+import pw.mihou.alisa.modules.broadcasts.AlisaBatch;
+import pw.mihou.alisa.modules.broadcasts.AlisaFeedUpdate;
+import pw.mihou.alisa.modules.exceptions.AlisaException;
+import pw.mihou.alisa.modules.requests.AlisaAcknowledgement;
+import pw.mihou.alisa.modules.requests.AlisaSubscribeRequest;
+import pw.mihou.alisa.modules.requests.AlisaTestRequest;
+import pw.mihou.alisa.modules.rss.properties.scribblehub.AlisaChapterItem;
+
+import javax.annotation.Nullable;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link AlisaMessageTypes} assigns the small numeric tags that the binary encoding uses instead
+ * of the full class names. The tags are part of the wire format and must never be reused.
+ */
+public class AlisaMessageTypes {
+
+    public static final int UNKNOWN = 0;
+
+    private static final Map<Integer, Class<?>> types = new ConcurrentHashMap<>();
+    private static final Map<String, Integer> tags = new ConcurrentHashMap<>();
+
+    static {
+        register(1, AlisaChapterItem.class);
+        register(2, AlisaException.class);
+        register(3, AlisaTestRequest.class);
+        register(4, AlisaFeedUpdate.class);
+        register(5, AlisaBatch.class);
+        register(6, AlisaAcknowledgement.class);
+        register(7, AlisaSubscribeRequest.class);
+    }
+
+    /**
+     * Registers the tag of the type specified.
+     *
+     * @param tag   The tag of the type.
+     * @param type  The type to register.
+     */
+    public static void register(int tag, Class<?> type) {
+        if (tag == UNKNOWN) {
+            throw new IllegalArgumentException("The tag " + UNKNOWN + " is reserved for unknown types.");
+        }
+
+        Class<?> existing = types.putIfAbsent(tag, type);
+        if (existing != null && !existing.equals(type)) {
+            throw new IllegalArgumentException("The tag " + tag + " is already registered to " + existing.getName() + ".");
+        }
+
+        tags.put(type.getName(), tag);
+    }
+
+    /**
+     * Gets the tag of the class name specified.
+     *
+     * @param className The class name to look up.
+     * @return          The tag of the class name, or {@link AlisaMessageTypes#UNKNOWN}.
+     */
+    public static int tag(String className) {
+        return tags.getOrDefault(className, UNKNOWN);
+    }
+
+    /**
+     * Gets the type of the tag specified.
+     *
+     * @param tag   The tag to look up.
+     * @return      The type of the tag, if registered.
+     */
+    @Nullable
+    public static Class<?> type(int tag) {
+        return types.get(tag);
+    }
+
+}
@@ -1,34 +1,185 @@
 package pw.mihou.alisa.modules.database;
 
+import com.mongodb.Function;
+import com.mongodb.MongoException;
 import com.mongodb.client.FindIterable;
 import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
 import com.mongodb.client.model.Filters;
-import com.mongodb.client.model.ReplaceOptions;
-import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.IndexModel;
+import com.mongodb.client.model.Sorts;
 import com.mongodb.client.result.DeleteResult;
 import com.mongodb.client.result.UpdateResult;
 import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.Codec;
 import org.bson.conversions.Bson;
 import org.jetbrains.annotations.NotNull;
 import pw.mihou.alisa.interfaces.DatabaseModel;
 import pw.mihou.alisa.modules.database.modules.AlisaField;
 import pw.mihou.alisa.modules.database.modules.AlisaIndex;
+import pw.mihou.alisa.modules.database.modules.AlisaProjection;
+import pw.mihou.alisa.modules.database.modules.AlisaQuery;
+import pw.mihou.alisa.modules.database.modules.iterable.AlisaAggregation;
 import pw.mihou.alisa.modules.database.modules.iterable.AlisaIterable;
 import pw.mihou.alisa.modules.database.modules.iterable.AlisaIterableOperations;
+import pw.mihou.alisa.modules.database.modules.iterable.AlisaParallelMapping;
+import pw.mihou.alisa.modules.database.storage.AlisaMongoStorage;
+import pw.mihou.alisa.modules.database.storage.AlisaStorage;
+import pw.mihou.alisa.modules.exceptions.handler.AlisaExceptionHandler;
+import pw.mihou.alisa.modules.metrics.AlisaMetrics;
+import pw.mihou.alisa.modules.threadpools.AlisaDatabaseExecutor;
 
+import javax.annotation.Nullable;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 public interface AlisaDatabase<Type> {
 
     /**
-     * Gets the collection for this database.
+     * Gets the collection for this database, the handle is created once by the database
+     * and reused on every call.
      *
-     * @return  The collection of this database.
+     * @return  The collection of this database, or null if the database keeps its documents elsewhere.
      */
-    MongoCollection<Document> collection();
+    @Nullable
+    default MongoCollection<Document> collection() {
+        return null;
+    }
+
+    /**
+     * Gets the storage that the operations of this database are performed on, this is the
+     * {@link #collection()} unless the database keeps its documents elsewhere, in which case
+     * the database provides its own storage. Every operation goes through the storage, implementations
+     * over a collection should create the storage once and return the same instance here.
+     *
+     * @return  The storage of this database.
+     */
+    default AlisaStorage storage() {
+        return new AlisaMongoStorage(collection());
+    }
+
+    /**
+     * Gets the indexes that the queries of this database rely on, these are created
+     * by {@link #provision()}.
+     *
+     * @return  The indexes of this database.
+     */
+    default List<IndexModel> indexes() {
+        return List.of();
+    }
+
+    /**
+     * Gets the field that every upsert and update of this database stamps with the time of the write,
+     * this lets the documents that were changed since a point in time be found without a change stream.
+     *
+     * @return  The field of the time of the last write, or null if the writes are not stamped.
+     */
+    @Nullable
+    default String modified() {
+        return null;
+    }
+
+    /**
+     * Gets the filter of the documents that were written since the time specified, see {@link #modified()}.
+     *
+     * @param since The time of the earliest write.
+     * @return      The filter of the documents that were written since the time.
+     */
+    default Bson modifiedSince(Date since) {
+        return Filters.gte(modified(), since);
+    }
+
+    /**
+     * Gets the order of the documents from the oldest write to the newest, see {@link #modified()}.
+     *
+     * @return  The order of the documents by their last write.
+     */
+    default Bson modifiedOrder() {
+        return Sorts.ascending(modified());
+    }
+
+    /**
+     * Gets the queries that this database performs, these are checked against the query
+     * planner by {@link AlisaQueryPlans} to confirm that none of them scans the entire collection.
+     *
+     * @return  The queries of this database.
+     */
+    default List<AlisaQuery> queries() {
+        return List.of();
+    }
+
+    /**
+     * Creates the indexes of this database, indexes that already exist are left as-is. Every index
+     * is created on its own so that one index that cannot be created, such as a unique index over
+     * duplicated values, does not hold back the others.
+     */
+    default void provision() {
+        for (IndexModel index : indexes()) {
+            try {
+                storage().createIndex(index);
+            } catch (MongoException exception) {
+                AlisaExceptionHandler.accept(exception);
+            }
+        }
+    }
+
+    /**
+     * Gets the executor that the asynchronous operations of this database run on, this is the
+     * bounded {@link AlisaDatabaseExecutor} unless the database overrides it.
+     *
+     * @return  The executor of this database.
+     */
+    default Executor executor() {
+        return AlisaDatabaseExecutor.getExecutorService();
+    }
+
+    /**
+     * Gets the codec that decodes the documents of this database straight into {@link Type}
+     * without the intermediate {@link Document}.
+     *
+     * @return  The codec of this database, or null if the documents are translated instead.
+     */
+    @Nullable
+    default Codec<Type> codec() {
+        return null;
+    }
+
+    /**
+     * Gets the collection for this database that reads and writes {@link Type} through
+     * the {@link #codec()} of this database.
+     *
+     * @return  The typed collection of this database, or null if the database has no codec.
+     */
+    @Nullable
+    default MongoCollection<Type> typed() {
+        return null;
+    }
+
+    /**
+     * Decodes the raw document into a {@link Type}, this uses the {@link #codec()} of this
+     * database when there is one and falls back to {@link #translate(Document)} otherwise.
+     *
+     * @param document  The raw document to decode.
+     * @return          The {@link Type} instance of the document.
+     */
+    @NotNull
+    default Type decode(RawBsonDocument document) {
+        Codec<Type> codec = codec();
+
+        if (codec != null) {
+            return document.decode(codec);
+        }
+
+        return translate(document.decode(storage().codecRegistry().get(Document.class)));
+    }
 
     /**
      * Translates a {@link Document} into a {@link Type} that is intended for this database.
@@ -46,12 +197,20 @@ public interface AlisaDatabase<Type> {
      * @return      The result of upserting to the database.
      */
     default CompletableFuture<UpdateResult> upsert(DatabaseModel model) {
-        return CompletableFuture.supplyAsync(() -> collection()
-                .replaceOne(
-                        Filters.eq(model.index().key(), model.index().value()),
-                        model.document(),
-                        new ReplaceOptions().upsert(true)
-                ));
+        return CompletableFuture.supplyAsync(() -> timed("upsert", () -> storage().upsert(model.index(), stamped(model.document()))), executor());
+    }
+
+    /**
+     * Inserts the models onto the database in one bulk write, models that already exist in the
+     * database are skipped instead of replaced.
+     *
+     * @param models    The models to insert to the database.
+     * @return          The amount of models that were inserted.
+     */
+    default CompletableFuture<Integer> insert(List<? extends DatabaseModel> models) {
+        return CompletableFuture.supplyAsync(() -> timed("insert", () -> storage().insert(
+                models.stream().map(DatabaseModel::document).toList()
+        )), executor());
     }
 
     /**
@@ -61,8 +220,14 @@ public interface AlisaDatabase<Type> {
      * @return      The received {@link Type} form the database if present.
      */
     default CompletableFuture<Optional<Type>> get(AlisaIndex index) {
-        return CompletableFuture.supplyAsync(() -> {
-            Document document = collection().find(
+        return CompletableFuture.supplyAsync(() -> timed("get", () -> {
+            MongoCollection<Type> typed = typed();
+
+            if (typed != null) {
+                return Optional.ofNullable(typed.find(Filters.eq(index.key(), index.value())).first());
+            }
+
+            Document document = storage().find(
                     Filters.eq(index.key(), index.value())
             ).first();
 
@@ -71,7 +236,7 @@ public interface AlisaDatabase<Type> {
             }
 
             return Optional.of(translate(document));
-        });
+        }), executor());
     }
 
     /**
@@ -81,7 +246,7 @@ public interface AlisaDatabase<Type> {
      * @return      The received {@link Document} form the database if present.
      */
     default AlisaIterable<Type> all(AlisaIndex index) {
-        return new AlisaIterable<Type>(collection().find(
+        return new AlisaIterable<Type>(storage().find(
                 Filters.eq(index.key(), index.value())
         ), new ArrayList<>(), this::translate);
     }
@@ -93,7 +258,7 @@ public interface AlisaDatabase<Type> {
      * @return          The received {@link Document} form the database if present.
      */
     default AlisaIterable<Type> and(AlisaIndex... indexes) {
-        return new AlisaIterable<>(collection().find(
+        return new AlisaIterable<>(storage().find(
                 Filters.and(Arrays.stream(indexes).map(index -> Filters.eq(index.key(), index.value())).toList())
         ), new ArrayList<>(),  this::translate);
     }
@@ -106,7 +271,7 @@ public interface AlisaDatabase<Type> {
      * @return          The received {@link Document} form the database if present.
      */
     default AlisaIterable<Type> all(String field, Object... values) {
-        return new AlisaIterable<>(collection().find(
+        return new AlisaIterable<>(storage().find(
                 Filters.all(field, values)
         ), new ArrayList<>(), this::translate);
     }
@@ -128,7 +293,7 @@ public interface AlisaDatabase<Type> {
      * @return          The received {@link Document} form the database if present.
      */
     default AlisaIterable<Type> or(Bson... filters) {
-        return new AlisaIterable<>(collection().find(
+        return new AlisaIterable<>(storage().find(
                 Filters.and(filters)
         ), new ArrayList<>(), this::translate);
     }
@@ -140,9 +305,7 @@ public interface AlisaDatabase<Type> {
      * @return      The result from deleting the document.
      */
     default CompletableFuture<DeleteResult> delete(DatabaseModel model) {
-        return CompletableFuture.supplyAsync(() -> collection().deleteOne(
-                Filters.eq(model.index().key(), model.index().value())
-        ));
+        return CompletableFuture.supplyAsync(() -> timed("delete", () -> storage().delete(model.index())), executor());
     }
 
     /**
@@ -153,10 +316,7 @@ public interface AlisaDatabase<Type> {
      * @return      The result from updating the model.
      */
     default CompletableFuture<UpdateResult> updateField(AlisaIndex index, AlisaField field) {
-        return CompletableFuture.supplyAsync(() -> collection().updateOne(
-                Filters.eq(index.key(), index.value()),
-                Updates.set(field.key(), field.value())
-        ));
+        return CompletableFuture.supplyAsync(() -> timed("updateField", () -> storage().updateField(index, stamped(field))), executor());
     }
 
     /**
@@ -165,7 +325,51 @@ public interface AlisaDatabase<Type> {
      * @return  All the data of the collection.
      */
     default AlisaIterable<Type> all() {
-        return new AlisaIterable<>(collection().find(), new ArrayList<>(), this::translate);
+        return new AlisaIterable<>(storage().find(new Document()), new ArrayList<>(), this::translate);
+    }
+
+    /**
+     * Gets the view of all the data of the collection, only the fields of the
+     * projection are read from the database.
+     *
+     * @param projection    The projection of the view.
+     * @param <View>        The type of the view.
+     * @return              The view of all the data of the collection.
+     */
+    default <View> AlisaIterable<View> all(AlisaProjection<View> projection) {
+        return all().project(projection);
+    }
+
+    /**
+     * Performs the aggregation pipeline on the database, only the results of the pipeline
+     * are sent back which are then mapped by the mapper.
+     *
+     * @param pipeline  The stages of the aggregation.
+     * @param mapper    The mapper of the results into their intended type.
+     * @param <T>       The type of the results.
+     * @return          The results of the aggregation.
+     */
+    default <T> AlisaAggregation<T> aggregate(List<? extends Bson> pipeline, Function<Document, T> mapper) {
+        return new AlisaAggregation<>(storage().aggregate(pipeline), mapper);
+    }
+
+    /**
+     * Streams the documents that match the filter as raw BSON and decodes them through {@link #decode(RawBsonDocument)}
+     * on several threads while the cursor keeps fetching, see {@link AlisaParallelMapping}. Only the batches that are
+     * being decoded are held in memory, the consumer is called on the calling thread in the order of the cursor.
+     *
+     * @param filter        The filter of the documents, or null for all the documents.
+     * @param batchSize     The amount of documents of every batch of the cursor.
+     * @param parallelism   The maximum amount of chunks that are decoded at once.
+     * @param consumer      The consumer of the decoded documents.
+     */
+    default void scan(@Nullable Bson filter, int batchSize, int parallelism, Consumer<Type> consumer) {
+        FindIterable<RawBsonDocument> iterable = storage().find(filter == null ? new Document() : filter, RawBsonDocument.class)
+                .batchSize(batchSize);
+
+        try (MongoCursor<RawBsonDocument> cursor = iterable.cursor()) {
+            AlisaParallelMapping.forEach(cursor, this::decode, parallelism, consumer);
+        }
     }
 
     /**
@@ -207,4 +411,60 @@ public interface AlisaDatabase<Type> {
         return all().addOperation(AlisaIterableOperations.OLDEST);
     }
 
+    /**
+     * Stamps the document with the time of the write when this database stamps its writes.
+     *
+     * @param document  The document that is written.
+     * @return          The document to write.
+     */
+    default Document stamped(Document document) {
+        String modified = modified();
+
+        if (modified != null) {
+            document.put(modified, new Date());
+        }
+
+        return document;
+    }
+
+    /**
+     * Adds the time of the write to the fields of an update when this database stamps its writes.
+     *
+     * @param field The field that is updated.
+     * @return      The fields to set.
+     */
+    default AlisaField[] stamped(AlisaField field) {
+        String modified = modified();
+
+        if (modified == null) {
+            return new AlisaField[]{field};
+        }
+
+        return new AlisaField[]{field, new AlisaField(modified, new Date())};
+    }
+
+    /**
+     * Performs the operation while recording the time it took into the latency
+     * histogram of this collection.
+     *
+     * @param operation The name of the operation.
+     * @param supplier  The operation to perform.
+     * @param <T>       The result type of the operation.
+     * @return          The result of the operation.
+     */
+    private <T> T timed(String operation, Supplier<T> supplier) {
+        long start = System.nanoTime();
+
+        try {
+            return supplier.get();
+        } finally {
+            AlisaMetrics.histogram(
+                    "alisa_database_operation_seconds",
+                    "The time taken by database operations.",
+                    "collection", storage().name(),
+                    "operation", operation
+            ).observeSince(start);
+        }
+    }
+
 }
@@ -8,6 +8,8 @@ import com.mongodb.client.MongoClients;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoDatabase;
 import org.bson.Document;
+import pw.mihou.alisa.modules.database.listeners.AlisaCommandListener;
+import pw.mihou.alisa.modules.database.listeners.AlisaConnectionPoolListener;
 import pw.mihou.alisa.modules.http.AlisaHttpCall;
 
 import java.util.List;
@@ -15,6 +17,7 @@ import java.util.List;
 public class AlisaDatabaseClient {
 
     private final MongoClient client;
+    private final MongoClientSettings settings;
 
     /**
      * Creates a new {@link MongoClient} and performs a warm startup
@@ -23,19 +26,34 @@ public class AlisaDatabaseClient {
      * @param uri   The URI of the {@link MongoClient}.
      */
     public AlisaDatabaseClient(String uri) {
-        this.client = MongoClients.create(
-                MongoClientSettings.builder()
-                        .applicationName(AlisaHttpCall.USER_AGENT)
-                        .retryWrites(true)
-                        .retryReads(true)
-                        .compressorList(List.of(
-                                MongoCompressor.createZstdCompressor()
-                        ))
-                        .applyConnectionString(new ConnectionString(
-                                uri
-                        ))
-                        .build()
-        );
+        this(uri, AlisaDatabaseClientSettings.DEFAULT);
+    }
+
+    /**
+     * Creates a new {@link MongoClient} with the connection pool and timeouts specified over
+     * the URI and performs a warm startup on the {@link MongoClient}. The commands and the
+     * connection pool of the client are reported to the metrics.
+     *
+     * @param uri           The URI of the {@link MongoClient}.
+     * @param configuration The connection pool and timeouts of the {@link MongoClient}.
+     */
+    public AlisaDatabaseClient(String uri, AlisaDatabaseClientSettings configuration) {
+        MongoClientSettings.Builder builder = MongoClientSettings.builder()
+                .applicationName(AlisaHttpCall.USER_AGENT)
+                .retryWrites(true)
+                .retryReads(true)
+                .compressorList(List.of(
+                        MongoCompressor.createZstdCompressor()
+                ))
+                .applyConnectionString(new ConnectionString(
+                        uri
+                ))
+                .addCommandListener(new AlisaCommandListener())
+                .applyToConnectionPoolSettings(pool -> pool.addConnectionPoolListener(new AlisaConnectionPoolListener()));
+
+        configuration.apply(builder);
+        this.settings = builder.build();
+        this.client = MongoClients.create(settings);
 
         // Drop the database names  on the loop, this is just to cold-start the database.
         client.listDatabaseNames().forEach(s -> {});
@@ -50,6 +68,26 @@ public class AlisaDatabaseClient {
         return client;
     }
 
+    /**
+     * Gets the settings that the {@link MongoClient} was created with, this can be used
+     * to create other clients towards the same deployment.
+     *
+     * @return  The settings of the {@link MongoClient}.
+     */
+    public MongoClientSettings settings() {
+        return settings;
+    }
+
+    /**
+     * Gets the maximum amount of connections that the {@link MongoClient} keeps
+     * towards every server.
+     *
+     * @return  The maximum size of the connection pool.
+     */
+    public int poolSize() {
+        return settings.getConnectionPoolSettings().getMaxSize();
+    }
+
     /**
      * Gets the {@link MongoDatabase} that links with the database name
      * specified using the {@link MongoClient} associated.
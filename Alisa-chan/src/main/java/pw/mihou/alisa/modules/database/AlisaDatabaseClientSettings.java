@@ -0,0 +1,73 @@
+package pw.mihou.alisa.modules.database;
+
+import com.mongodb.MongoClientSettings;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link AlisaDatabaseClientSettings} are the connection pool and timeouts of an {@link AlisaDatabaseClient}, these
+ * are applied over the connection string and every value that is zero or less leaves the value of the connection
+ * string, or the default of the driver, as-is.
+ *
+ * @param maxPoolSize                   The maximum amount of connections towards every server.
+ * @param minPoolSize                   The amount of connections that are kept open towards every server.
+ * @param maxWaitMillis                 The maximum time to wait for a connection from the pool.
+ * @param maxIdleMillis                 The maximum time that a connection can stay idle before it is closed.
+ * @param connectTimeoutMillis          The maximum time to open a connection.
+ * @param socketTimeoutMillis           The maximum time to wait for the response of a command.
+ * @param serverSelectionTimeoutMillis  The maximum time to find a server for an operation.
+ */
+public record AlisaDatabaseClientSettings(
+        int maxPoolSize,
+        int minPoolSize,
+        long maxWaitMillis,
+        long maxIdleMillis,
+        long connectTimeoutMillis,
+        long socketTimeoutMillis,
+        long serverSelectionTimeoutMillis
+) {
+
+    public static final AlisaDatabaseClientSettings DEFAULT = new AlisaDatabaseClientSettings(0, 0, 0, 0, 0, 0, 0);
+
+    /**
+     * Applies the values that were configured onto the settings of the client.
+     *
+     * @param builder   The builder of the settings of the client.
+     */
+    void apply(MongoClientSettings.Builder builder) {
+        builder.applyToConnectionPoolSettings(pool -> {
+            if (maxPoolSize > 0) {
+                pool.maxSize(maxPoolSize);
+            }
+
+            if (minPoolSize > 0) {
+                pool.minSize(minPoolSize);
+            }
+
+            if (maxWaitMillis > 0) {
+                pool.maxWaitTime(maxWaitMillis, TimeUnit.MILLISECONDS);
+            }
+
+            if (maxIdleMillis > 0) {
+                pool.maxConnectionIdleTime(maxIdleMillis, TimeUnit.MILLISECONDS);
+            }
+        });
+
+        builder.applyToSocketSettings(socket -> {
+            if (connectTimeoutMillis > 0) {
+                socket.connectTimeout((int) connectTimeoutMillis, TimeUnit.MILLISECONDS);
+            }
+
+            if (socketTimeoutMillis > 0) {
+                socket.readTimeout((int) socketTimeoutMillis, TimeUnit.MILLISECONDS);
+            }
+        });
+
+        builder.applyToClusterSettings(cluster -> {
+            if (serverSelectionTimeoutMillis > 0) {
+                cluster.serverSelectionTimeout(serverSelectionTimeoutMillis, TimeUnit.MILLISECONDS);
+            }
+        });
+    }
+
+}
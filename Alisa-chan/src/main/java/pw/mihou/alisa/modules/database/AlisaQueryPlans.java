@@ -0,0 +1,79 @@
+package pw.mihou.alisa.modules.database;
+
+import com.mongodb.client.FindIterable;
+import org.bson.Document;
+import pw.mihou.alisa.modules.database.modules.AlisaQuery;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link AlisaQueryPlans} checks the queries of a database against the query planner of its storage,
+ * this is used by the tests to confirm that the indexes of a database cover its queries.
+ */
+public class AlisaQueryPlans {
+
+    /**
+     * Explains every query of the database and collects the queries whose winning plan
+     * scans the entire collection.
+     *
+     * @param database  The database to check.
+     * @return          The queries that scan the entire collection.
+     */
+    public static List<AlisaQuery> collectionScans(AlisaDatabase<?> database) {
+        return database.queries().stream()
+                .filter(query -> scans(explain(database, query)))
+                .toList();
+    }
+
+    /**
+     * Explains the query on the collection of the database, including its order.
+     *
+     * @param database  The database of the query.
+     * @param query     The query to explain.
+     * @return          The result of explaining the query.
+     */
+    private static Document explain(AlisaDatabase<?> database, AlisaQuery query) {
+        FindIterable<Document> iterable = database.storage().find(query.filter());
+
+        if (query.sort() != null) {
+            iterable = iterable.sort(query.sort());
+        }
+
+        return iterable.explain();
+    }
+
+    /**
+     * Checks whether the winning plan of the explained query has a collection scan in any of its
+     * stages, this includes the plans of every shard.
+     *
+     * @param explain   The result of explaining the query.
+     * @return          Whether the winning plan scans the entire collection.
+     */
+    public static boolean scans(Document explain) {
+        Object planner = explain.get("queryPlanner");
+
+        if (planner instanceof Document document && document.containsKey("winningPlan")) {
+            return contains(document.get("winningPlan"));
+        }
+
+        return contains(explain);
+    }
+
+    private static boolean contains(Object value) {
+        if (value instanceof Map<?, ?> map) {
+            if ("COLLSCAN".equals(map.get("stage"))) {
+                return true;
+            }
+
+            return map.values().stream().anyMatch(AlisaQueryPlans::contains);
+        }
+
+        if (value instanceof List<?> list) {
+            return list.stream().anyMatch(AlisaQueryPlans::contains);
+        }
+
+        return false;
+    }
+
+}
@@ -0,0 +1,224 @@
+package pw.mihou.alisa.modules.database.cache;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.IndexModel;
+import com.mongodb.client.result.DeleteResult;
+import com.mongodb.client.result.UpdateResult;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.Codec;
+import org.jetbrains.annotations.NotNull;
+import pw.mihou.alisa.interfaces.DatabaseModel;
+import pw.mihou.alisa.modules.database.AlisaDatabase;
+import pw.mihou.alisa.modules.database.modules.AlisaField;
+import pw.mihou.alisa.modules.database.modules.AlisaIndex;
+import pw.mihou.alisa.modules.database.modules.AlisaQuery;
+import pw.mihou.alisa.modules.database.storage.AlisaStorage;
+import pw.mihou.alisa.modules.metrics.AlisaMetrics;
+
+import javax.annotation.Nullable;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+/**
+ * {@link AlisaCachedDatabase} keeps the results of {@link #get(AlisaIndex)} of another {@link AlisaDatabase}
+ * in memory for a while, repeated lookups of the same index are answered without the database and concurrent
+ * lookups of the same index share one query. The entries of an index are invalidated by every {@link #upsert(DatabaseModel)},
+ * {@link #insert(List)}, {@link #delete(DatabaseModel)} and {@link #updateField(AlisaIndex, AlisaField)} of the same index, writes that are made
+ * elsewhere, such as by another application, are only seen once the entry expires or {@link #invalidate(AlisaIndex)} is called.
+ * <br><br>
+ * The iterables are never cached and are left to the database that is wrapped.
+ *
+ * @param database  The database that is wrapped.
+ * @param cache     The cache of the results of the lookups.
+ * @param <Type>    The type of the models of the database.
+ */
+public record AlisaCachedDatabase<Type>(
+        AlisaDatabase<Type> database,
+        AsyncCache<AlisaIndex, Optional<Type>> cache
+) implements AlisaDatabase<Type> {
+
+    /**
+     * Wraps the database with a cache of the size and lifetime specified, the statistics of
+     * the cache are reported as metrics labelled with the collection of the database.
+     *
+     * @param database      The database to wrap.
+     * @param maximumSize   The maximum amount of lookups to keep.
+     * @param expiry        The time after which a lookup is read from the database again.
+     * @param <Type>        The type of the models of the database.
+     * @return              The database that caches its lookups.
+     */
+    public static <Type> AlisaCachedDatabase<Type> of(AlisaDatabase<Type> database, long maximumSize, Duration expiry) {
+        AlisaCachedDatabase<Type> cached = new AlisaCachedDatabase<>(database, Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expiry)
+                .recordStats()
+                .buildAsync());
+
+        String collection = database.storage().name();
+        gauge("alisa_database_cache_hits", "The amount of lookups that were answered by the cache.", cached, CacheStats::hitCount, collection);
+        gauge("alisa_database_cache_misses", "The amount of lookups that were read from the database.", cached, CacheStats::missCount, collection);
+        gauge("alisa_database_cache_evictions", "The amount of lookups that were evicted from the cache.", cached, CacheStats::evictionCount, collection);
+        AlisaMetrics.gauge("alisa_database_cache_size", "The amount of lookups in the cache.",
+                () -> cached.cache().synchronous().estimatedSize(), "collection", collection);
+
+        return cached;
+    }
+
+    private static void gauge(String name, String help, AlisaCachedDatabase<?> cached, Function<CacheStats, Long> statistic, String collection) {
+        AlisaMetrics.gauge(name, help, () -> statistic.apply(cached.stats()), "collection", collection);
+    }
+
+    /**
+     * Gets the statistics of the cache, this includes the hits, the misses and the evictions.
+     *
+     * @return  The statistics of the cache.
+     */
+    public CacheStats stats() {
+        return cache.synchronous().stats();
+    }
+
+    /**
+     * Removes the lookups of the index from the cache, the lookups by another field are also removed
+     * since they may have found the same document. This is meant for writes that were not made through
+     * this database.
+     *
+     * @param index The index whose lookups should be removed.
+     */
+    public void invalidate(AlisaIndex index) {
+        cache.synchronous().invalidate(normalize(index));
+        cache.synchronous().asMap().keySet().removeIf(key -> !key.key().equals(index.key()));
+    }
+
+    @Override
+    public CompletableFuture<Optional<Type>> get(AlisaIndex index) {
+        return cache.get(normalize(index), (key, executor) -> database.get(index));
+    }
+
+    /**
+     * Normalizes the value of the index into the key of its lookups in the cache. The database matches
+     * numbers by their value regardless of their type, a lookup by an {@link Integer} finds the same document
+     * as a lookup by the {@link Long} of the same value, which is why whole numbers are keyed as a {@link Long}
+     * and the lookups are invalidated by writes of either type.
+     *
+     * @param index The index to normalize.
+     * @return      The key of the lookups of the index.
+     */
+    private static AlisaIndex normalize(AlisaIndex index) {
+        Object value = index.value();
+
+        if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            return new AlisaIndex(index.key(), ((Number) value).longValue());
+        }
+
+        if (value instanceof Number number) {
+            double decimal = number.doubleValue();
+
+            if (decimal == Math.rint(decimal) && !Double.isInfinite(decimal) && Math.abs(decimal) < 0x1p63) {
+                return new AlisaIndex(index.key(), (long) decimal);
+            }
+
+            return new AlisaIndex(index.key(), decimal);
+        }
+
+        return index;
+    }
+
+    @Override
+    public CompletableFuture<UpdateResult> upsert(DatabaseModel model) {
+        return invalidating(model.index(), database.upsert(model));
+    }
+
+    @Override
+    public CompletableFuture<Integer> insert(List<? extends DatabaseModel> models) {
+        models.forEach(model -> invalidate(model.index()));
+        return database.insert(models).whenComplete((result, throwable) -> models.forEach(model -> invalidate(model.index())));
+    }
+
+    @Override
+    public CompletableFuture<DeleteResult> delete(DatabaseModel model) {
+        return invalidating(model.index(), database.delete(model));
+    }
+
+    @Override
+    public CompletableFuture<UpdateResult> updateField(AlisaIndex index, AlisaField field) {
+        return invalidating(index, database.updateField(index, field));
+    }
+
+    /**
+     * Invalidates the index once the write was started and again once it completes, the second
+     * invalidation removes the lookups that read the document while it was being written.
+     *
+     * @param index The index of the document that is written.
+     * @param write The write of the document.
+     * @param <T>   The result type of the write.
+     * @return      The write of the document.
+     */
+    private <T> CompletableFuture<T> invalidating(AlisaIndex index, CompletableFuture<T> write) {
+        invalidate(index);
+        return write.whenComplete((result, throwable) -> invalidate(index));
+    }
+
+    @Override
+    public MongoCollection<Document> collection() {
+        return database.collection();
+    }
+
+    @Override
+    public AlisaStorage storage() {
+        return database.storage();
+    }
+
+    @NotNull
+    @Override
+    public Type translate(Document document) {
+        return database.translate(document);
+    }
+
+    @NotNull
+    @Override
+    public Type decode(RawBsonDocument document) {
+        return database.decode(document);
+    }
+
+    @Nullable
+    @Override
+    public Codec<Type> codec() {
+        return database.codec();
+    }
+
+    @Nullable
+    @Override
+    public MongoCollection<Type> typed() {
+        return database.typed();
+    }
+
+    @Override
+    public List<IndexModel> indexes() {
+        return database.indexes();
+    }
+
+    @Override
+    public List<AlisaQuery> queries() {
+        return database.queries();
+    }
+
+    @Nullable
+    @Override
+    public String modified() {
+        return database.modified();
+    }
+
+    @Override
+    public Executor executor() {
+        return database.executor();
+    }
+
+}
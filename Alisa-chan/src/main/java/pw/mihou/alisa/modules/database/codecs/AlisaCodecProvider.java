@@ -0,0 +1,46 @@
+package pw.mihou.alisa.modules.database.codecs;
+
+import com.mongodb.client.MongoCollection;
+import org.bson.codecs.Codec;
+import org.bson.codecs.configuration.CodecProvider;
+import org.bson.codecs.configuration.CodecRegistries;
+import org.bson.codecs.configuration.CodecRegistry;
+import pw.mihou.alisa.modules.AlisaFeed;
+
+/**
+ * {@link AlisaCodecProvider} provides the codecs of the models that are decoded straight
+ * from BSON instead of through an intermediate {@link org.bson.Document}.
+ */
+public class AlisaCodecProvider implements CodecProvider {
+
+    public static final AlisaFeedCodec FEED = new AlisaFeedCodec();
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> Codec<T> get(Class<T> clazz, CodecRegistry registry) {
+        if (clazz == AlisaFeed.class) {
+            return (Codec<T>) FEED;
+        }
+
+        return null;
+    }
+
+    /**
+     * Creates a handle of the collection that reads and writes the type specified through
+     * the codecs of this provider, every other type is left to the registry of the collection.
+     *
+     * @param collection    The collection to create the handle from.
+     * @param type          The type of the documents of the handle.
+     * @param <T>           The type of the documents of the handle.
+     * @return              The handle of the collection for the type.
+     */
+    public static <T> MongoCollection<T> typed(MongoCollection<?> collection, Class<T> type) {
+        return collection
+                .withCodecRegistry(CodecRegistries.fromRegistries(
+                        CodecRegistries.fromProviders(new AlisaCodecProvider()),
+                        collection.getCodecRegistry()
+                ))
+                .withDocumentClass(type);
+    }
+
+}
@@ -0,0 +1,153 @@
+package pw.mihou.alisa.modules.database.codecs;
+
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonWriter;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import pw.mihou.alisa.modules.AlisaFeed;
+import pw.mihou.alisa.modules.database.modules.AlisaIndex;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * {@link AlisaFeedCodec} reads and writes {@link AlisaFeed} straight from and into BSON without
+ * the intermediate {@link org.bson.Document}, the fields are written in the same shape as
+ * {@link AlisaFeed#document()} and fields that the feed does not know of, such as the {@code _id},
+ * are skipped while reading.
+ */
+public class AlisaFeedCodec implements Codec<AlisaFeed> {
+
+    @Override
+    public AlisaFeed decode(BsonReader reader, DecoderContext decoderContext) {
+        int id = 0;
+        long unique = 0, server = 0, channel = 0, user = 0;
+        String name = null, url = null;
+        List<Long> mentions = null;
+        Date date = null;
+
+        reader.readStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            switch (reader.readName()) {
+                case "id" -> id = (int) number(reader);
+                case "unique" -> unique = number(reader);
+                case "name" -> name = string(reader);
+                case "server" -> server = number(reader);
+                case "channel" -> channel = number(reader);
+                case "user" -> user = number(reader);
+                case "url" -> url = string(reader);
+                case "mentions" -> mentions = numbers(reader);
+                case "date" -> date = date(reader);
+                default -> reader.skipValue();
+            }
+        }
+        reader.readEndDocument();
+
+        return new AlisaFeed(
+                id, unique, name, server,
+                channel, user, url, mentions,
+                date, new AlisaIndex("unique", unique)
+        );
+    }
+
+    @Override
+    public void encode(BsonWriter writer, AlisaFeed feed, EncoderContext encoderContext) {
+        writer.writeStartDocument();
+        writer.writeInt32("id", feed.id());
+        writer.writeInt64("unique", feed.unique());
+        string(writer, "name", feed.name());
+        writer.writeInt64("server", feed.server());
+        writer.writeInt64("channel", feed.channel());
+        writer.writeInt64("user", feed.user());
+        string(writer, "url", feed.url());
+
+        writer.writeName("mentions");
+        if (feed.mentions() == null) {
+            writer.writeNull();
+        } else {
+            writer.writeStartArray();
+            feed.mentions().forEach(writer::writeInt64);
+            writer.writeEndArray();
+        }
+
+        writer.writeName("date");
+        if (feed.date() == null) {
+            writer.writeNull();
+        } else {
+            writer.writeDateTime(feed.date().getTime());
+        }
+
+        writer.writeEndDocument();
+    }
+
+    @Override
+    public Class<AlisaFeed> getEncoderClass() {
+        return AlisaFeed.class;
+    }
+
+    /**
+     * Reads the current value as a number, documents that were written by other clients
+     * may store the numbers as 32-bit integers or doubles.
+     *
+     * @param reader    The reader positioned at the value.
+     * @return          The number, or zero if the value is null.
+     */
+    private static long number(BsonReader reader) {
+        return switch (reader.getCurrentBsonType()) {
+            case INT32 -> reader.readInt32();
+            case INT64 -> reader.readInt64();
+            case DOUBLE -> (long) reader.readDouble();
+            case NULL -> {
+                reader.readNull();
+                yield 0;
+            }
+            default -> throw new IllegalArgumentException("Expected a number but found " + reader.getCurrentBsonType() + ".");
+        };
+    }
+
+    private static String string(BsonReader reader) {
+        if (reader.getCurrentBsonType() == BsonType.NULL) {
+            reader.readNull();
+            return null;
+        }
+
+        return reader.readString();
+    }
+
+    private static List<Long> numbers(BsonReader reader) {
+        if (reader.getCurrentBsonType() == BsonType.NULL) {
+            reader.readNull();
+            return null;
+        }
+
+        List<Long> numbers = new ArrayList<>();
+        reader.readStartArray();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            numbers.add(number(reader));
+        }
+        reader.readEndArray();
+
+        return numbers;
+    }
+
+    private static Date date(BsonReader reader) {
+        if (reader.getCurrentBsonType() == BsonType.NULL) {
+            reader.readNull();
+            return null;
+        }
+
+        return new Date(reader.readDateTime());
+    }
+
+    private static void string(BsonWriter writer, String name, String value) {
+        if (value == null) {
+            writer.writeNull(name);
+        } else {
+            writer.writeString(name, value);
+        }
+    }
+
+}
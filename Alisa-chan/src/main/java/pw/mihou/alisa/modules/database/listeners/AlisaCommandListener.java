@@ -0,0 +1,72 @@
+package pw.mihou.alisa.modules.database.listeners;
+
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import pw.mihou.alisa.modules.metrics.AlisaMetrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link AlisaCommandListener} records the time of every command that the driver sends to the database
+ * by the name of the command and the collection it targets, this is the time of the round trip to the
+ * server which excludes the time spent waiting for a connection or decoding the results.
+ */
+public class AlisaCommandListener implements CommandListener {
+
+    private static final double NANOSECONDS_PER_SECOND = 1_000_000_000.0;
+
+    /**
+     * The collection of every command that was started but has yet to finish, the events that
+     * finish a command do not carry the command itself.
+     */
+    private final Map<Integer, String> collections = new ConcurrentHashMap<>();
+
+    @Override
+    public void commandStarted(CommandStartedEvent event) {
+        collections.put(event.getRequestId(), collection(event.getCommandName(), event.getCommand()));
+    }
+
+    @Override
+    public void commandSucceeded(CommandSucceededEvent event) {
+        String collection = collections.remove(event.getRequestId());
+
+        AlisaMetrics.histogram(
+                "alisa_mongodb_command_seconds",
+                "The time taken by the commands sent to the database.",
+                "command", event.getCommandName(),
+                "collection", collection == null ? "" : collection
+        ).observe(event.getElapsedTime(TimeUnit.NANOSECONDS) / NANOSECONDS_PER_SECOND);
+    }
+
+    @Override
+    public void commandFailed(CommandFailedEvent event) {
+        String collection = collections.remove(event.getRequestId());
+
+        AlisaMetrics.counter(
+                "alisa_mongodb_command_failures_total",
+                "The amount of commands sent to the database that failed.",
+                "command", event.getCommandName(),
+                "collection", collection == null ? "" : collection
+        ).increment();
+    }
+
+    /**
+     * Gets the collection that the command targets, this is the value of the first field for most
+     * commands such as {@code find} and {@code update} and the {@code collection} field of {@code getMore}.
+     *
+     * @param name      The name of the command.
+     * @param command   The command that was sent.
+     * @return          The collection of the command, or an empty string for commands without one.
+     */
+    static String collection(String name, BsonDocument command) {
+        BsonValue value = name.equals("getMore") ? command.get("collection") : command.get(name);
+        return value != null && value.isString() ? value.asString().getValue() : "";
+    }
+
+}
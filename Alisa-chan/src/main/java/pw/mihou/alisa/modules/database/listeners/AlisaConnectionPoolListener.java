@@ -0,0 +1,146 @@
+package pw.mihou.alisa.modules.database.listeners;
+
+import com.mongodb.ServerAddress;
+import com.mongodb.connection.ServerId;
+import com.mongodb.event.*;
+import pw.mihou.alisa.modules.metrics.AlisaMetrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.ToIntFunction;
+
+/**
+ * {@link AlisaConnectionPoolListener} reports the connection pool of every server that the driver connects
+ * to: the connections that are open, in use, available and waited for, the connections that were created and
+ * closed, and the time spent waiting for a connection. Clients that share the listener, such as clients created
+ * from the same settings, are reported together by server.
+ * <br><br>
+ * The wait is measured from the thread that requested the connection, which is every checkout of the synchronous
+ * client. Checkouts that complete on another thread, as the Reactive Streams client may do, are not measured.
+ */
+public class AlisaConnectionPoolListener implements ConnectionPoolListener {
+
+    private static final String[] GAUGES = {
+            "alisa_mongodb_pool_connections",
+            "alisa_mongodb_pool_in_use",
+            "alisa_mongodb_pool_available",
+            "alisa_mongodb_pool_waiting",
+            "alisa_mongodb_pool_max_size"
+    };
+
+    private final Map<ServerId, Pool> pools = new ConcurrentHashMap<>();
+    private final ThreadLocal<Long> checkOutStarted = new ThreadLocal<>();
+
+    /**
+     * The connections of the pool of a server.
+     *
+     * @param open      The connections that are open.
+     * @param inUse     The connections that are checked out.
+     * @param waiting   The checkouts that are waiting for a connection.
+     * @param maxSize   The maximum amount of connections of the pool.
+     */
+    private record Pool(AtomicInteger open, AtomicInteger inUse, AtomicInteger waiting, int maxSize) {}
+
+    @Override
+    public void connectionPoolCreated(ConnectionPoolCreatedEvent event) {
+        ServerAddress address = event.getServerId().getAddress();
+        pools.put(event.getServerId(), new Pool(new AtomicInteger(), new AtomicInteger(), new AtomicInteger(), event.getSettings().getMaxSize()));
+
+        String server = address.toString();
+        AlisaMetrics.gauge("alisa_mongodb_pool_connections", "The amount of connections that are open towards the server.",
+                () -> sum(address, pool -> pool.open().get()), "server", server);
+        AlisaMetrics.gauge("alisa_mongodb_pool_in_use", "The amount of connections that are checked out of the pool.",
+                () -> sum(address, pool -> pool.inUse().get()), "server", server);
+        AlisaMetrics.gauge("alisa_mongodb_pool_available", "The amount of open connections that are idle in the pool.",
+                () -> sum(address, pool -> Math.max(0, pool.open().get() - pool.inUse().get())), "server", server);
+        AlisaMetrics.gauge("alisa_mongodb_pool_waiting", "The amount of checkouts that are waiting for a connection.",
+                () -> sum(address, pool -> pool.waiting().get()), "server", server);
+        AlisaMetrics.gauge("alisa_mongodb_pool_max_size", "The maximum amount of connections towards the server.",
+                () -> sum(address, Pool::maxSize), "server", server);
+    }
+
+    @Override
+    public void connectionPoolClosed(ConnectionPoolClosedEvent event) {
+        ServerAddress address = event.getServerId().getAddress();
+        pools.remove(event.getServerId());
+
+        if (pools.keySet().stream().noneMatch(id -> id.getAddress().equals(address))) {
+            for (String gauge : GAUGES) {
+                AlisaMetrics.remove(gauge, "server", address.toString());
+            }
+        }
+    }
+
+    @Override
+    public void connectionCheckOutStarted(ConnectionCheckOutStartedEvent event) {
+        pool(event.getServerId(), pool -> pool.waiting().incrementAndGet());
+        checkOutStarted.set(System.nanoTime());
+    }
+
+    @Override
+    public void connectionCheckedOut(ConnectionCheckedOutEvent event) {
+        ServerAddress address = event.getConnectionId().getServerId().getAddress();
+        pool(event.getConnectionId().getServerId(), pool -> {
+            pool.waiting().decrementAndGet();
+            pool.inUse().incrementAndGet();
+        });
+
+        Long start = checkOutStarted.get();
+        if (start != null) {
+            checkOutStarted.remove();
+            AlisaMetrics.histogram("alisa_mongodb_pool_wait_seconds", "The time spent waiting for a connection.",
+                    "server", address.toString()).observeSince(start);
+        }
+    }
+
+    @Override
+    public void connectionCheckOutFailed(ConnectionCheckOutFailedEvent event) {
+        ServerAddress address = event.getServerId().getAddress();
+        pool(event.getServerId(), pool -> pool.waiting().decrementAndGet());
+        checkOutStarted.remove();
+
+        AlisaMetrics.counter("alisa_mongodb_pool_checkout_failures_total", "The amount of checkouts that failed to receive a connection.",
+                "server", address.toString(), "reason", event.getReason().name()).increment();
+    }
+
+    @Override
+    public void connectionCheckedIn(ConnectionCheckedInEvent event) {
+        pool(event.getConnectionId().getServerId(), pool -> pool.inUse().decrementAndGet());
+    }
+
+    @Override
+    public void connectionCreated(ConnectionCreatedEvent event) {
+        ServerAddress address = event.getConnectionId().getServerId().getAddress();
+        pool(event.getConnectionId().getServerId(), pool -> pool.open().incrementAndGet());
+
+        AlisaMetrics.counter("alisa_mongodb_pool_connections_created_total", "The amount of connections that were created.",
+                "server", address.toString()).increment();
+    }
+
+    @Override
+    public void connectionClosed(ConnectionClosedEvent event) {
+        ServerAddress address = event.getConnectionId().getServerId().getAddress();
+        pool(event.getConnectionId().getServerId(), pool -> pool.open().decrementAndGet());
+
+        AlisaMetrics.counter("alisa_mongodb_pool_connections_closed_total", "The amount of connections that were closed.",
+                "server", address.toString(), "reason", event.getReason().name()).increment();
+    }
+
+    private void pool(ServerId server, Consumer<Pool> consumer) {
+        Pool pool = pools.get(server);
+
+        if (pool != null) {
+            consumer.accept(pool);
+        }
+    }
+
+    private double sum(ServerAddress address, ToIntFunction<Pool> value) {
+        return pools.entrySet().stream()
+                .filter(entry -> entry.getKey().getAddress().equals(address))
+                .mapToInt(entry -> value.applyAsInt(entry.getValue()))
+                .sum();
+    }
+
+}
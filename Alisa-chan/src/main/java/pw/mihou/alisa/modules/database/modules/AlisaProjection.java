@@ -0,0 +1,62 @@
+package pw.mihou.alisa.modules.database.modules;
+
+import com.mongodb.client.model.Projections;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * {@link AlisaProjection} is a lightweight view over the documents of a collection, only the fields
+ * of the projection are sent by the database and the view is translated from those fields alone.
+ *
+ * @param fields    The names of the fields that the view reads.
+ * @param mapper    The translator of the projected documents into the view.
+ * @param <View>    The type of the view.
+ */
+public record AlisaProjection<View>(List<String> fields, Function<Document, View> mapper) {
+
+    /**
+     * Creates a projection that includes only the fields specified, the {@code _id} is
+     * excluded unless it is one of the fields.
+     *
+     * @param mapper    The translator of the projected documents into the view.
+     * @param fields    The names of the fields that the view reads.
+     * @param <View>    The type of the view.
+     * @return          The projection of the view.
+     */
+    public static <View> AlisaProjection<View> of(Function<Document, View> mapper, String... fields) {
+        return new AlisaProjection<>(List.of(fields), mapper);
+    }
+
+    /**
+     * Creates a projection of the same view that also includes the fields specified, this is for
+     * readers that need a few fields alongside the view such as the {@code _id} of the documents.
+     *
+     * @param fields    The names of the fields to include as well.
+     * @return          The projection with the fields included.
+     */
+    public AlisaProjection<View> with(String... fields) {
+        Set<String> included = new LinkedHashSet<>(this.fields);
+        included.addAll(List.of(fields));
+
+        return new AlisaProjection<>(List.copyOf(included), mapper);
+    }
+
+    /**
+     * Gets the projection that is sent to the database.
+     *
+     * @return  The projection of the fields of this view.
+     */
+    public Bson projection() {
+        if (fields.contains("_id")) {
+            return Projections.include(fields);
+        }
+
+        return Projections.fields(Projections.include(fields), Projections.excludeId());
+    }
+
+}
@@ -0,0 +1,20 @@
+package pw.mihou.alisa.modules.database.modules;
+
+import org.bson.conversions.Bson;
+
+import javax.annotation.Nullable;
+
+/**
+ * {@link AlisaQuery} is the shape of a query that a database performs, the sort is part of the shape
+ * since a query that is filtered through an index can still be sorted in memory.
+ *
+ * @param filter    The filter of the query.
+ * @param sort      The order of the query, or null if the query is not sorted.
+ */
+public record AlisaQuery(Bson filter, @Nullable Bson sort) {
+
+    public AlisaQuery(Bson filter) {
+        this(filter, null);
+    }
+
+}
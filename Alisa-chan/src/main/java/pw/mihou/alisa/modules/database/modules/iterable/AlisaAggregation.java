@@ -0,0 +1,99 @@
+package pw.mihou.alisa.modules.database.modules.iterable;
+
+import com.mongodb.Function;
+import com.mongodb.client.AggregateIterable;
+import com.mongodb.client.MongoCursor;
+import org.bson.Document;
+
+import javax.annotation.Nullable;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * {@link AlisaAggregation} is the {@link AlisaIterable} of an aggregation pipeline, the pipeline is
+ * performed by the database and only its results are sent back.
+ *
+ * @param iterable  The aggregation of the database.
+ * @param mapper    The mapper of the results into their intended type.
+ * @param <Type>    The type of the results.
+ */
+public record AlisaAggregation<Type>(
+        AggregateIterable<Document> iterable,
+        Function<Document, Type> mapper
+) {
+
+    /**
+     * Changes the amount of results that the cursor of this aggregation receives
+     * from the database on every round trip.
+     *
+     * @param size  The amount of results of every batch.
+     * @return      The {@link AlisaAggregation} with the batch size applied.
+     */
+    public AlisaAggregation<Type> batchSize(int size) {
+        return new AlisaAggregation<>(iterable.batchSize(size), mapper);
+    }
+
+    /**
+     * Allows the stages of the pipeline to write to temporary files when they exceed
+     * the memory limit of the database, such as a large {@code $group}.
+     *
+     * @param allow Whether the stages can write to temporary files.
+     * @return      The {@link AlisaAggregation} with the option applied.
+     */
+    public AlisaAggregation<Type> allowDiskUse(boolean allow) {
+        return new AlisaAggregation<>(iterable.allowDiskUse(allow), mapper);
+    }
+
+    /**
+     * Gets the first result of this aggregation.
+     *
+     * @return  The first result in its intended type, or null if there were no results.
+     */
+    @Nullable
+    public Type first() {
+        Document document = iterable.first();
+        return document == null ? null : mapper.apply(document);
+    }
+
+    /**
+     * Streams the results of this aggregation in their intended type as the cursor reads them,
+     * the stream must be closed, which also closes the cursor, when it is not read until the end.
+     *
+     * @return  A stream of the results in their intended type that closes the cursor.
+     */
+    public Stream<Type> stream() {
+        MongoCursor<Document> cursor = iterable.cursor();
+
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(cursor, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .map(mapper::apply)
+                .onClose(cursor::close);
+    }
+
+    /**
+     * Hands every result of this aggregation in its intended type to the consumer as the
+     * cursor reads them, the cursor is closed afterwards even when the consumer fails.
+     *
+     * @param consumer  The consumer of the results.
+     */
+    public void forEach(Consumer<Type> consumer) {
+        try (MongoCursor<Document> cursor = iterable.cursor()) {
+            cursor.forEachRemaining(document -> consumer.accept(mapper.apply(document)));
+        }
+    }
+
+    /**
+     * Maps all the results into their intended type before producing a list of them.
+     *
+     * @return  A list of all the results mapped into their type.
+     */
+    public List<Type> mapAndList() {
+        try (Stream<Type> stream = stream()) {
+            return stream.toList();
+        }
+    }
+
+}
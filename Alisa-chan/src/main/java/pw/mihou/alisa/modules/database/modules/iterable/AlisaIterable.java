@@ -1,13 +1,20 @@
 package pw.mihou.alisa.modules.database.modules.iterable;
 
+import com.mongodb.CursorType;
 import com.mongodb.Function;
 import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoCursor;
 import org.bson.Document;
+import org.bson.conversions.Bson;
+import pw.mihou.alisa.modules.database.modules.AlisaProjection;
 
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
@@ -40,6 +47,90 @@ public record AlisaIterable<Type>(
         return new AlisaIterable<Type>(appliedIterable.get(), Collections.emptyList(), mapper);
     }
 
+    /**
+     * Restricts the documents of this iterable to the fields of the projection, the
+     * database only sends the fields that are included.
+     *
+     * @param fields    The projection of the fields to read.
+     * @return          The {@link AlisaIterable} with the projection applied.
+     */
+    public AlisaIterable<Type> projection(Bson fields) {
+        return new AlisaIterable<>(iterable.projection(fields), operations, mapper);
+    }
+
+    /**
+     * Restricts the documents of this iterable to the fields of the view and translates
+     * them into the view instead of the intended type of this iterable.
+     *
+     * @param projection    The projection of the view.
+     * @param <View>        The type of the view.
+     * @return              The {@link AlisaIterable} of the view.
+     */
+    public <View> AlisaIterable<View> project(AlisaProjection<View> projection) {
+        return new AlisaIterable<>(iterable.projection(projection.projection()), operations, projection.mapper()::apply);
+    }
+
+    /**
+     * Changes the amount of documents that the cursor of this iterable receives
+     * from the database on every round trip.
+     *
+     * @param size  The amount of documents of every batch.
+     * @return      The {@link AlisaIterable} with the batch size applied.
+     */
+    public AlisaIterable<Type> batchSize(int size) {
+        return new AlisaIterable<>(iterable.batchSize(size), operations, mapper);
+    }
+
+    /**
+     * Changes the type of the cursor of this iterable, such as a tailable cursor
+     * over a capped collection.
+     *
+     * @param type  The type of the cursor.
+     * @return      The {@link AlisaIterable} with the cursor type applied.
+     */
+    public AlisaIterable<Type> cursorType(CursorType type) {
+        return new AlisaIterable<>(iterable.cursorType(type), operations, mapper);
+    }
+
+    /**
+     * Streams the documents of this iterable in their intended type as the cursor reads them,
+     * only the current batch is held in memory. The stream must be closed, which also closes
+     * the cursor, when it is not read until the end.
+     *
+     * @return  A stream of the documents in their intended type that closes the cursor.
+     */
+    public Stream<Type> stream() {
+        MongoCursor<Document> cursor = iterable.cursor();
+
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(cursor, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .map(mapper::apply)
+                .onClose(cursor::close);
+    }
+
+    /**
+     * Hands every document of this iterable in its intended type to the consumer as the
+     * cursor reads them, the cursor is closed afterwards even when the consumer fails.
+     *
+     * @param consumer  The consumer of the documents.
+     */
+    public void forEach(Consumer<Type> consumer) {
+        forEach(1, consumer);
+    }
+
+    /**
+     * Hands every document of this iterable in its intended type to the consumer while the documents
+     * are translated on several threads, see {@link AlisaParallelMapping}. The consumer is called on the
+     * calling thread in the order of the cursor and the cursor is closed afterwards.
+     *
+     * @param parallelism   The maximum amount of chunks that are translated at once.
+     * @param consumer      The consumer of the documents.
+     */
+    public void forEach(int parallelism, Consumer<Type> consumer) {
+        try (MongoCursor<Document> cursor = iterable.cursor()) {
+            AlisaParallelMapping.forEach(cursor, mapper::apply, parallelism, consumer);
+        }
+    }
+
     /**
      * Iterates through the {@link FindIterable} and collects them into
      * a single unmodifiable {@link List}.
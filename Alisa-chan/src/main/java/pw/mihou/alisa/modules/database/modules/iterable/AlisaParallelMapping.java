@@ -0,0 +1,102 @@
+package pw.mihou.alisa.modules.database.modules.iterable;
+
+import pw.mihou.alisa.modules.threadpools.AlisaThreadPool;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * {@link AlisaParallelMapping} maps the elements of a cursor on several threads while the calling thread
+ * keeps reading from the cursor, which lets the driver fetch the next batch while the previous one is
+ * still being decoded. The elements are read in chunks and at most {@code parallelism} chunks are held
+ * at once, the mapped elements are handed to the consumer on the calling thread in the order of the cursor.
+ */
+public class AlisaParallelMapping {
+
+    /**
+     * The amount of elements that are mapped together by one thread.
+     */
+    public static final int CHUNK = 128;
+
+    /**
+     * Maps every element of the source and hands the mapped elements to the consumer in the
+     * order of the source, the source is not closed by this method.
+     *
+     * @param source        The elements to map, usually a cursor.
+     * @param mapper        The mapper to run on the other threads.
+     * @param parallelism   The maximum amount of chunks that are mapped at once, one or less maps on the calling thread.
+     * @param consumer      The consumer of the mapped elements, always called on the calling thread.
+     * @param <S>           The type of the elements of the source.
+     * @param <T>           The type of the mapped elements.
+     */
+    public static <S, T> void forEach(Iterator<S> source, Function<S, T> mapper, int parallelism, Consumer<T> consumer) {
+        if (parallelism <= 1) {
+            source.forEachRemaining(element -> consumer.accept(mapper.apply(element)));
+            return;
+        }
+
+        Deque<CompletableFuture<List<T>>> pending = new ArrayDeque<>(parallelism);
+
+        try {
+            while (source.hasNext()) {
+                List<S> chunk = new ArrayList<>(CHUNK);
+                while (chunk.size() < CHUNK && source.hasNext()) {
+                    chunk.add(source.next());
+                }
+
+                pending.add(CompletableFuture.supplyAsync(() -> map(chunk, mapper), AlisaThreadPool.getExecutorService()));
+
+                if (pending.size() >= parallelism) {
+                    join(pending.poll()).forEach(consumer);
+                }
+            }
+
+            while (!pending.isEmpty()) {
+                join(pending.poll()).forEach(consumer);
+            }
+        } finally {
+            pending.forEach(future -> future.cancel(false));
+        }
+    }
+
+    private static <S, T> List<T> map(List<S> chunk, Function<S, T> mapper) {
+        List<T> mapped = new ArrayList<>(chunk.size());
+
+        for (S element : chunk) {
+            mapped.add(mapper.apply(element));
+        }
+
+        return mapped;
+    }
+
+    /**
+     * Waits for the chunk to be mapped, the exceptions of the mapper are thrown as they are.
+     *
+     * @param future    The chunk to wait for.
+     * @param <T>       The type of the mapped elements.
+     * @return          The mapped elements of the chunk.
+     */
+    private static <T> List<T> join(CompletableFuture<List<T>> future) {
+        try {
+            return future.join();
+        } catch (CompletionException exception) {
+            if (exception.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+
+            if (exception.getCause() instanceof Error error) {
+                throw error;
+            }
+
+            throw exception;
+        }
+    }
+
+}
@@ -0,0 +1,228 @@
+package pw.mihou.alisa.modules.database.reactive;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.MongoNamespace;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.IndexModel;
+import com.mongodb.client.model.InsertManyOptions;
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.result.DeleteResult;
+import com.mongodb.client.result.UpdateResult;
+import com.mongodb.reactivestreams.client.MongoClient;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.Codec;
+import org.jetbrains.annotations.NotNull;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import pw.mihou.alisa.interfaces.DatabaseModel;
+import pw.mihou.alisa.modules.database.AlisaDatabase;
+import pw.mihou.alisa.modules.database.modules.AlisaField;
+import pw.mihou.alisa.modules.database.modules.AlisaIndex;
+import pw.mihou.alisa.modules.database.modules.AlisaQuery;
+import pw.mihou.alisa.modules.database.storage.AlisaMongoStorage;
+import pw.mihou.alisa.modules.database.storage.AlisaStorage;
+import pw.mihou.alisa.modules.metrics.AlisaMetrics;
+
+import javax.annotation.Nullable;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * {@link AlisaReactiveDatabase} performs the asynchronous operations of another {@link AlisaDatabase}
+ * through the Reactive Streams driver, the operations complete from the callbacks of the driver and
+ * never hold a thread while waiting for the database, this includes the bulk inserts of {@link #insert(List)}.
+ * Everything else, including the iterables, is left to the synchronous database that is wrapped.
+ * <br><br>
+ * This requires {@code org.mongodb:mongodb-driver-reactivestreams} which is an optional dependency of Alisa.
+ *
+ * @param database  The synchronous database that is wrapped.
+ * @param reactive  The same collection on the Reactive Streams driver.
+ * @param <Type>    The type of the models of the database.
+ */
+public record AlisaReactiveDatabase<Type>(
+        AlisaDatabase<Type> database,
+        com.mongodb.reactivestreams.client.MongoCollection<Document> reactive
+) implements AlisaDatabase<Type> {
+
+    /**
+     * Wraps the database with the same collection on the Reactive Streams client specified.
+     *
+     * @param database  The synchronous database to wrap.
+     * @param client    The Reactive Streams client to perform the operations with.
+     * @param <Type>    The type of the models of the database.
+     * @return          The database that performs its asynchronous operations reactively.
+     */
+    public static <Type> AlisaReactiveDatabase<Type> of(AlisaDatabase<Type> database, MongoClient client) {
+        MongoNamespace namespace = database.collection().getNamespace();
+        return new AlisaReactiveDatabase<>(
+                database,
+                client.getDatabase(namespace.getDatabaseName()).getCollection(namespace.getCollectionName())
+        );
+    }
+
+    @Override
+    public MongoCollection<Document> collection() {
+        return database.collection();
+    }
+
+    @Override
+    public AlisaStorage storage() {
+        return database.storage();
+    }
+
+    @NotNull
+    @Override
+    public Type translate(Document document) {
+        return database.translate(document);
+    }
+
+    @Nullable
+    @Override
+    public Codec<Type> codec() {
+        return database.codec();
+    }
+
+    @Nullable
+    @Override
+    public MongoCollection<Type> typed() {
+        return database.typed();
+    }
+
+    @Override
+    public List<IndexModel> indexes() {
+        return database.indexes();
+    }
+
+    @Override
+    public List<AlisaQuery> queries() {
+        return database.queries();
+    }
+
+    @Nullable
+    @Override
+    public String modified() {
+        return database.modified();
+    }
+
+    @Override
+    public CompletableFuture<UpdateResult> upsert(DatabaseModel model) {
+        return timed("upsert", reactive.replaceOne(
+                Filters.eq(model.index().key(), model.index().value()),
+                stamped(model.document()),
+                new ReplaceOptions().upsert(true)
+        ));
+    }
+
+    @Override
+    public CompletableFuture<Integer> insert(List<? extends DatabaseModel> models) {
+        if (models.isEmpty()) {
+            return CompletableFuture.completedFuture(0);
+        }
+
+        return timed("insert", reactive.insertMany(
+                models.stream().map(DatabaseModel::document).toList(),
+                new InsertManyOptions().ordered(false)
+        )).handle((result, throwable) -> {
+            if (throwable == null) {
+                return result.getInsertedIds().size();
+            }
+
+            // The documents that already exist are skipped the same way as the synchronous insert skips them.
+            Throwable cause = throwable instanceof CompletionException ? throwable.getCause() : throwable;
+            if (cause instanceof MongoBulkWriteException exception) {
+                return AlisaMongoStorage.inserted(exception);
+            }
+
+            throw new CompletionException(cause);
+        });
+    }
+
+    @Override
+    public CompletableFuture<Optional<Type>> get(AlisaIndex index) {
+        // The document is kept as raw BSON so that databases with a codec decode straight into the model.
+        return timed("get", reactive.find(Filters.eq(index.key(), index.value()), RawBsonDocument.class).first())
+                .thenApply(document -> Optional.ofNullable(document).map(this::decode));
+    }
+
+    @Override
+    public CompletableFuture<DeleteResult> delete(DatabaseModel model) {
+        return timed("delete", reactive.deleteOne(
+                Filters.eq(model.index().key(), model.index().value())
+        ));
+    }
+
+    @Override
+    public CompletableFuture<UpdateResult> updateField(AlisaIndex index, AlisaField field) {
+        return timed("updateField", reactive.updateOne(
+                Filters.eq(index.key(), index.value()),
+                Updates.combine(Arrays.stream(stamped(field)).map(update -> Updates.set(update.key(), update.value())).toList())
+        ));
+    }
+
+    /**
+     * Subscribes to the publisher of an operation while recording the time it took into the
+     * same latency histogram as the synchronous operations.
+     *
+     * @param operation The name of the operation.
+     * @param publisher The publisher of the operation.
+     * @param <T>       The result type of the operation.
+     * @return          The first result of the operation, or null if there was none.
+     */
+    private <T> CompletableFuture<T> timed(String operation, Publisher<T> publisher) {
+        long start = System.nanoTime();
+
+        return first(publisher).whenComplete((result, throwable) -> AlisaMetrics.histogram(
+                "alisa_database_operation_seconds",
+                "The time taken by database operations.",
+                "collection", reactive.getNamespace().getCollectionName(),
+                "operation", operation
+        ).observeSince(start));
+    }
+
+    /**
+     * Subscribes to the publisher and completes with the first element that it publishes.
+     *
+     * @param publisher The publisher to subscribe to.
+     * @param <T>       The type of the elements.
+     * @return          The first element, or null if the publisher completed without any.
+     */
+    private static <T> CompletableFuture<T> first(Publisher<T> publisher) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+
+        publisher.subscribe(new Subscriber<T>() {
+            private Subscription subscription;
+
+            @Override
+            public void onSubscribe(Subscription subscription) {
+                this.subscription = subscription;
+                subscription.request(1);
+            }
+
+            @Override
+            public void onNext(T element) {
+                future.complete(element);
+                subscription.cancel();
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                future.completeExceptionally(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+                future.complete(null);
+            }
+        });
+
+        return future;
+    }
+
+}
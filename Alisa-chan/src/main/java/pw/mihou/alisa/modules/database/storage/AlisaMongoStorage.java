@@ -0,0 +1,128 @@
+package pw.mihou.alisa.modules.database.storage;
+
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.WriteConcern;
+import com.mongodb.client.AggregateIterable;
+import com.mongodb.client.ChangeStreamIterable;
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.IndexModel;
+import com.mongodb.client.model.InsertManyOptions;
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.result.DeleteResult;
+import com.mongodb.client.result.UpdateResult;
+import org.bson.Document;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.conversions.Bson;
+import pw.mihou.alisa.modules.database.modules.AlisaField;
+import pw.mihou.alisa.modules.database.modules.AlisaIndex;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * {@link AlisaMongoStorage} keeps the documents in a MongoDB collection, this is the storage
+ * of every database unless the database provides another.
+ *
+ * @param collection    The collection of the documents.
+ */
+public record AlisaMongoStorage(MongoCollection<Document> collection) implements AlisaStorage {
+
+    @Override
+    public String name() {
+        return collection.getNamespace().getCollectionName();
+    }
+
+    @Override
+    public CodecRegistry codecRegistry() {
+        return collection.getCodecRegistry();
+    }
+
+    @Override
+    public <T> FindIterable<T> find(Bson filter, Class<T> type) {
+        return collection.find(filter, type);
+    }
+
+    @Override
+    public AggregateIterable<Document> aggregate(List<? extends Bson> pipeline) {
+        return collection.aggregate(pipeline);
+    }
+
+    @Override
+    public UpdateResult upsert(AlisaIndex index, Document document) {
+        return collection.replaceOne(
+                Filters.eq(index.key(), index.value()),
+                document,
+                new ReplaceOptions().upsert(true)
+        );
+    }
+
+    @Override
+    public int insert(List<Document> documents) {
+        if (documents.isEmpty()) {
+            return 0;
+        }
+
+        try {
+            return collection.insertMany(documents, new InsertManyOptions().ordered(false)).getInsertedIds().size();
+        } catch (MongoBulkWriteException exception) {
+            return inserted(exception);
+        }
+    }
+
+    /**
+     * Gets the amount of documents that an unordered bulk insert has inserted despite the failure, this
+     * is only the case when every document that failed was a duplicate, see {@link AlisaStorage#insert(List)}.
+     *
+     * @param exception The failure of the bulk insert.
+     * @return          The amount of documents that were inserted.
+     * @throws MongoBulkWriteException  If any document failed for another reason than being a duplicate.
+     */
+    public static int inserted(MongoBulkWriteException exception) {
+        boolean duplicates = exception.getWriteConcernError() == null && exception.getWriteErrors().stream()
+                .allMatch(error -> ErrorCategory.fromErrorCode(error.getCode()) == ErrorCategory.DUPLICATE_KEY);
+
+        if (!duplicates) {
+            throw exception;
+        }
+
+        return exception.getWriteResult().getInsertedCount();
+    }
+
+    @Override
+    public DeleteResult delete(AlisaIndex index) {
+        return collection.deleteOne(Filters.eq(index.key(), index.value()));
+    }
+
+    @Override
+    public DeleteResult deleteMany(Bson filter) {
+        return collection.deleteMany(filter);
+    }
+
+    @Override
+    public UpdateResult updateField(AlisaIndex index, AlisaField... fields) {
+        return collection.updateOne(
+                Filters.eq(index.key(), index.value()),
+                Updates.combine(Arrays.stream(fields).map(field -> Updates.set(field.key(), field.value())).toList())
+        );
+    }
+
+    @Override
+    public void createIndex(IndexModel index) {
+        collection.createIndex(index.getKeys(), index.getOptions());
+    }
+
+    @Override
+    public AlisaStorage withWriteConcern(WriteConcern concern) {
+        return new AlisaMongoStorage(collection.withWriteConcern(concern));
+    }
+
+    @Override
+    public ChangeStreamIterable<Document> watch() {
+        return collection.watch();
+    }
+
+}
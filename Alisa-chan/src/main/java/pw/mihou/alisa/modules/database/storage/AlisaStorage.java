@@ -0,0 +1,138 @@
+package pw.mihou.alisa.modules.database.storage;
+
+import com.mongodb.WriteConcern;
+import com.mongodb.client.AggregateIterable;
+import com.mongodb.client.ChangeStreamIterable;
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.model.IndexModel;
+import com.mongodb.client.result.DeleteResult;
+import com.mongodb.client.result.UpdateResult;
+import org.bson.Document;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.conversions.Bson;
+import pw.mihou.alisa.modules.database.AlisaDatabase;
+import pw.mihou.alisa.modules.database.modules.AlisaField;
+import pw.mihou.alisa.modules.database.modules.AlisaIndex;
+
+import java.util.List;
+
+/**
+ * {@link AlisaStorage} is where an {@link AlisaDatabase} keeps its documents, the operations of the
+ * database are performed through its storage which is the collection of the database unless the
+ * database provides another, such as the in-memory storage for tests and benchmarks.
+ */
+public interface AlisaStorage {
+
+    /**
+     * Gets the name of this storage, this is the name of the collection and is
+     * used to label the metrics of the operations.
+     *
+     * @return  The name of this storage.
+     */
+    String name();
+
+    /**
+     * Gets the codecs that the documents of this storage are encoded and decoded with.
+     *
+     * @return  The codecs of this storage.
+     */
+    CodecRegistry codecRegistry();
+
+    /**
+     * Finds the documents that match the filter, decoded into the type specified.
+     *
+     * @param filter    The filter of the documents.
+     * @param type      The type to decode the documents into.
+     * @param <T>       The type to decode the documents into.
+     * @return          The iterable of the documents that match.
+     */
+    <T> FindIterable<T> find(Bson filter, Class<T> type);
+
+    /**
+     * Finds the documents that match the filter.
+     *
+     * @param filter    The filter of the documents.
+     * @return          The iterable of the documents that match.
+     */
+    default FindIterable<Document> find(Bson filter) {
+        return find(filter, Document.class);
+    }
+
+    /**
+     * Performs the aggregation pipeline over the documents of this storage. Storages that cannot
+     * perform a pipeline fail with an {@link UnsupportedOperationException}.
+     *
+     * @param pipeline  The stages of the aggregation.
+     * @return          The iterable of the results of the pipeline.
+     */
+    AggregateIterable<Document> aggregate(List<? extends Bson> pipeline);
+
+    /**
+     * Replaces the document that matches the index, or inserts the document when none does.
+     *
+     * @param index     The index of the document.
+     * @param document  The document to write.
+     * @return          The result of the write.
+     */
+    UpdateResult upsert(AlisaIndex index, Document document);
+
+    /**
+     * Inserts the documents in bulk without any order, documents that would duplicate the _id or a unique
+     * index of another document are skipped while the rest are still inserted.
+     *
+     * @param documents The documents to insert.
+     * @return          The amount of documents that were inserted.
+     */
+    int insert(List<Document> documents);
+
+    /**
+     * Deletes the first document that matches the index.
+     *
+     * @param index The index of the document.
+     * @return      The result of the deletion.
+     */
+    DeleteResult delete(AlisaIndex index);
+
+    /**
+     * Deletes every document that matches the filter.
+     *
+     * @param filter    The filter of the documents.
+     * @return          The result of the deletion.
+     */
+    DeleteResult deleteMany(Bson filter);
+
+    /**
+     * Sets the fields of the first document that matches the index in one write.
+     *
+     * @param index     The index of the document.
+     * @param fields    The fields to set.
+     * @return          The result of the update.
+     */
+    UpdateResult updateField(AlisaIndex index, AlisaField... fields);
+
+    /**
+     * Creates the index, indexes that already exist are left as-is.
+     *
+     * @param index The index to create.
+     */
+    void createIndex(IndexModel index);
+
+    /**
+     * Gets this storage with the write concern applied to its writes, storages that write
+     * without any acknowledgement from a server return themselves.
+     *
+     * @param concern   The write concern of the writes.
+     * @return          The storage with the write concern applied.
+     */
+    AlisaStorage withWriteConcern(WriteConcern concern);
+
+    /**
+     * Opens a change stream over the documents of this storage. Storages that cannot stream their changes
+     * fail the same way as a standalone server does, with a {@link com.mongodb.MongoCommandException} of
+     * the code 40573, which lets the callers fall back the same way for both.
+     *
+     * @return  The change stream of this storage.
+     */
+    ChangeStreamIterable<Document> watch();
+
+}
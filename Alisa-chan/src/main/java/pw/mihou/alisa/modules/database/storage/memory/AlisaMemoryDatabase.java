@@ -0,0 +1,48 @@
+package pw.mihou.alisa.modules.database.storage.memory;
+
+import com.mongodb.client.model.IndexModel;
+import org.bson.Document;
+import org.jetbrains.annotations.NotNull;
+import pw.mihou.alisa.modules.database.AlisaDatabase;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * {@link AlisaMemoryDatabase} is an {@link AlisaDatabase} over an {@link AlisaMemoryStorage}, the operations
+ * of the database behave the same as they do over a collection without a running database. There is no
+ * collection behind this database, which is why {@link #collection()} is null.
+ *
+ * @param storage       The storage of the documents.
+ * @param translator    The translator of the documents into the models.
+ * @param indexes       The indexes of the storage.
+ * @param <Type>        The type of the models of the database.
+ */
+public record AlisaMemoryDatabase<Type>(
+        AlisaMemoryStorage storage,
+        Function<Document, Type> translator,
+        List<IndexModel> indexes
+) implements AlisaDatabase<Type> {
+
+    /**
+     * Creates a new, empty {@link AlisaMemoryDatabase} with the indexes already created.
+     *
+     * @param name          The name of the collection that the database stands in for.
+     * @param translator    The translator of the documents into the models.
+     * @param indexes       The indexes of the database, usually the same as the collection.
+     * @param <Type>        The type of the models of the database.
+     * @return              The new in-memory database.
+     */
+    public static <Type> AlisaMemoryDatabase<Type> of(String name, Function<Document, Type> translator, List<IndexModel> indexes) {
+        AlisaMemoryDatabase<Type> database = new AlisaMemoryDatabase<>(new AlisaMemoryStorage(name), translator, indexes);
+        database.provision();
+        return database;
+    }
+
+    @NotNull
+    @Override
+    public Type translate(Document document) {
+        return translator.apply(document);
+    }
+
+}
@@ -0,0 +1,449 @@
+package pw.mihou.alisa.modules.database.storage.memory;
+
+import org.bson.BsonDocumentReader;
+import org.bson.Document;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.conversions.Bson;
+import org.bson.types.Binary;
+import org.bson.types.Decimal128;
+import org.bson.types.ObjectId;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiPredicate;
+import java.util.regex.Pattern;
+
+/**
+ * {@link AlisaMemoryDocuments} evaluates the filters, sorts and projections of the in-memory storage
+ * the same way that MongoDB does for the operators that Alisa uses. Values are compared by their BSON
+ * type first, numbers of any width are equal when their values are, and arrays match a condition
+ * when any of their elements does.
+ */
+final class AlisaMemoryDocuments {
+
+    /**
+     * The key of missing and null values in the indexes, the maps of the indexes do not accept null.
+     */
+    static final Object NULL = new Object();
+
+    private AlisaMemoryDocuments() {}
+
+    /**
+     * Renders the filter, sort or projection into a {@link Document} of plain Java values.
+     *
+     * @param bson      The filter, sort or projection to render.
+     * @param registry  The codecs to render with.
+     * @return          The rendered document, empty when there was nothing to render.
+     */
+    static Document document(@Nullable Bson bson, CodecRegistry registry) {
+        if (bson == null) {
+            return new Document();
+        }
+
+        return registry.get(Document.class).decode(
+                new BsonDocumentReader(bson.toBsonDocument(Document.class, registry)),
+                DecoderContext.builder().build()
+        );
+    }
+
+    /**
+     * Checks whether the document matches the filter.
+     *
+     * @param document  The document to check.
+     * @param filter    The filter to check against.
+     * @return          Whether the document matches.
+     */
+    static boolean matches(Document document, Document filter) {
+        for (Map.Entry<String, Object> entry : filter.entrySet()) {
+            String key = entry.getKey();
+
+            boolean matches = switch (key) {
+                case "$and" -> filters(entry.getValue()).stream().allMatch(clause -> matches(document, clause));
+                case "$or" -> filters(entry.getValue()).stream().anyMatch(clause -> matches(document, clause));
+                case "$nor" -> filters(entry.getValue()).stream().noneMatch(clause -> matches(document, clause));
+                default -> {
+                    if (key.startsWith("$")) {
+                        throw unsupported(key);
+                    }
+
+                    yield condition(resolve(document, key), entry.getValue());
+                }
+            };
+
+            if (!matches) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Gets the operand of the filter if the filter is an equality over a single value, this is
+     * what the indexes of the in-memory storage can answer.
+     *
+     * @param condition The condition of a field of the filter.
+     * @return          The operand of the equality, or null if the condition is anything else.
+     */
+    @Nullable
+    static Object equality(Object condition) {
+        Object operand = condition;
+
+        if (operator(condition)) {
+            Document document = (Document) condition;
+
+            if (document.size() != 1 || !document.containsKey("$eq")) {
+                return null;
+            }
+
+            operand = document.get("$eq");
+        }
+
+        if (operand instanceof List<?> || operand instanceof Document) {
+            return null;
+        }
+
+        return key(operand);
+    }
+
+    /**
+     * Gets the values at the dotted path of the document, the path continues into every
+     * element of the arrays along the way. The result is empty when the path is missing.
+     *
+     * @param document  The document to read.
+     * @param path      The dotted path of the field.
+     * @return          The values at the path.
+     */
+    static List<Object> resolve(Document document, String path) {
+        List<Object> values = new ArrayList<>();
+        resolve(document, path.split("\\."), 0, values);
+        return values;
+    }
+
+    private static void resolve(Object node, String[] parts, int depth, List<Object> values) {
+        if (depth == parts.length) {
+            values.add(node);
+            return;
+        }
+
+        if (node instanceof Document document) {
+            if (document.containsKey(parts[depth])) {
+                resolve(document.get(parts[depth]), parts, depth + 1, values);
+            }
+        } else if (node instanceof List<?> list) {
+            for (Object element : list) {
+                resolve(element, parts, depth, values);
+            }
+        }
+    }
+
+    /**
+     * Normalizes the value into the key that the indexes use, numbers that are equal
+     * have the same key regardless of their width.
+     *
+     * @param value The value to normalize.
+     * @return      The key of the value.
+     */
+    static Object key(@Nullable Object value) {
+        if (value == null) {
+            return NULL;
+        }
+
+        if (value instanceof Number number && !(value instanceof Decimal128)) {
+            double decimal = number.doubleValue();
+
+            if (integral(number) || decimal == Math.rint(decimal) && !Double.isInfinite(decimal)) {
+                return number.longValue();
+            }
+
+            return decimal;
+        }
+
+        return value;
+    }
+
+    /**
+     * Gets the keys of the field of the document for the indexes, every element of an
+     * array is a key of its own.
+     *
+     * @param document  The document to read.
+     * @param field     The field of the index.
+     * @return          The keys of the field.
+     */
+    static List<Object> keys(Document document, String field) {
+        List<Object> values = resolve(document, field);
+        List<Object> keys = new ArrayList<>();
+
+        if (values.isEmpty()) {
+            keys.add(NULL);
+        }
+
+        for (Object value : values) {
+            if (value instanceof List<?> list) {
+                list.forEach(element -> keys.add(key(element)));
+            } else {
+                keys.add(key(value));
+            }
+        }
+
+        return keys;
+    }
+
+    /**
+     * Creates the comparator of the sort specification.
+     *
+     * @param sort  The sort specification of fields to directions.
+     * @return      The comparator of the documents.
+     */
+    static Comparator<Document> comparator(Document sort) {
+        Comparator<Document> comparator = (first, second) -> 0;
+
+        for (Map.Entry<String, Object> entry : sort.entrySet()) {
+            String field = entry.getKey();
+            boolean ascending = !(entry.getValue() instanceof Number number) || number.intValue() >= 0;
+
+            Comparator<Document> next = (first, second) -> compare(sortable(first, field, ascending), sortable(second, field, ascending));
+            comparator = comparator.thenComparing(ascending ? next : next.reversed());
+        }
+
+        return comparator;
+    }
+
+    /**
+     * Projects the document into the fields of the projection, the _id is kept unless
+     * the projection excludes it.
+     *
+     * @param document      The document to project.
+     * @param projection    The projection of fields to inclusions.
+     * @return              A copy of the document with the fields of the projection.
+     */
+    static Document project(Document document, Document projection) {
+        if (projection.isEmpty()) {
+            return new Document(document);
+        }
+
+        boolean inclusion = projection.entrySet().stream()
+                .anyMatch(entry -> !entry.getKey().equals("_id") && truthy(entry.getValue()));
+        Document projected = new Document();
+
+        for (Map.Entry<String, Object> entry : document.entrySet()) {
+            String key = entry.getKey();
+            boolean included = projection.containsKey(key)
+                    ? truthy(projection.get(key))
+                    : !inclusion || key.equals("_id");
+
+            if (included) {
+                projected.put(key, entry.getValue());
+            }
+        }
+
+        return projected;
+    }
+
+    /**
+     * Compares two values in the sort order of MongoDB, values of different types are
+     * ordered by their type.
+     *
+     * @param first     The first value.
+     * @param second    The second value.
+     * @return          The comparison of the values.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    static int compare(@Nullable Object first, @Nullable Object second) {
+        int order = Integer.compare(order(first), order(second));
+
+        if (order != 0 || first == null) {
+            return order;
+        }
+
+        if (first instanceof Number a && second instanceof Number b) {
+            if (integral(a) && integral(b)) {
+                return Long.compare(a.longValue(), b.longValue());
+            }
+
+            return Double.compare(a.doubleValue(), b.doubleValue());
+        }
+
+        if (first instanceof Document a && second instanceof Document b) {
+            Iterator<Map.Entry<String, Object>> left = a.entrySet().iterator();
+            Iterator<Map.Entry<String, Object>> right = b.entrySet().iterator();
+
+            while (left.hasNext() && right.hasNext()) {
+                Map.Entry<String, Object> x = left.next();
+                Map.Entry<String, Object> y = right.next();
+
+                int comparison = x.getKey().compareTo(y.getKey());
+                if (comparison == 0) {
+                    comparison = compare(x.getValue(), y.getValue());
+                }
+
+                if (comparison != 0) {
+                    return comparison;
+                }
+            }
+
+            return Boolean.compare(left.hasNext(), right.hasNext());
+        }
+
+        if (first instanceof List<?> a && second instanceof List<?> b) {
+            for (int i = 0; i < Math.min(a.size(), b.size()); i++) {
+                int comparison = compare(a.get(i), b.get(i));
+
+                if (comparison != 0) {
+                    return comparison;
+                }
+            }
+
+            return Integer.compare(a.size(), b.size());
+        }
+
+        if (first instanceof Comparable comparable && first.getClass() == second.getClass()) {
+            return comparable.compareTo(second);
+        }
+
+        return first.equals(second) ? 0 : String.valueOf(first).compareTo(String.valueOf(second));
+    }
+
+    private static boolean condition(List<Object> values, Object condition) {
+        if (!operator(condition)) {
+            return equals(values, condition);
+        }
+
+        for (Map.Entry<String, Object> entry : ((Document) condition).entrySet()) {
+            Object operand = entry.getValue();
+
+            boolean matches = switch (entry.getKey()) {
+                case "$eq" -> equals(values, operand);
+                case "$ne" -> !equals(values, operand);
+                case "$gt" -> range(values, operand, (value, bound) -> compare(value, bound) > 0);
+                case "$gte" -> range(values, operand, (value, bound) -> compare(value, bound) >= 0);
+                case "$lt" -> range(values, operand, (value, bound) -> compare(value, bound) < 0);
+                case "$lte" -> range(values, operand, (value, bound) -> compare(value, bound) <= 0);
+                case "$in" -> ((List<?>) operand).stream().anyMatch(element -> equals(values, element));
+                case "$nin" -> ((List<?>) operand).stream().noneMatch(element -> equals(values, element));
+                case "$all" -> ((List<?>) operand).stream().allMatch(element -> equals(values, element));
+                case "$exists" -> !values.isEmpty() == truthy(operand);
+                default -> throw unsupported(entry.getKey());
+            };
+
+            if (!matches) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static boolean equals(List<Object> values, @Nullable Object operand) {
+        if (values.isEmpty()) {
+            return operand == null;
+        }
+
+        for (Object value : values) {
+            if (same(value, operand)) {
+                return true;
+            }
+
+            if (value instanceof List<?> list && list.stream().anyMatch(element -> same(element, operand))) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static boolean range(List<Object> values, Object bound, BiPredicate<Object, Object> predicate) {
+        for (Object value : values) {
+            List<?> candidates = value instanceof List<?> list ? list : List.of(value);
+
+            for (Object candidate : candidates) {
+                if (candidate != null && order(candidate) == order(bound) && predicate.test(candidate, bound)) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    private static boolean same(@Nullable Object value, @Nullable Object operand) {
+        return order(value) == order(operand) && compare(value, operand) == 0;
+    }
+
+    @Nullable
+    private static Object sortable(Document document, String field, boolean ascending) {
+        List<Object> values = resolve(document, field);
+
+        if (values.isEmpty()) {
+            return null;
+        }
+
+        Object value = values.get(0);
+
+        // Arrays sort by their smallest element in ascending order and their largest in descending order.
+        if (value instanceof List<?> list && !list.isEmpty()) {
+            Comparator<Object> comparator = AlisaMemoryDocuments::compare;
+            return ascending ? list.stream().min(comparator).orElse(null) : list.stream().max(comparator).orElse(null);
+        }
+
+        return value;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Document> filters(Object clauses) {
+        return (List<Document>) clauses;
+    }
+
+    private static boolean operator(Object condition) {
+        return condition instanceof Document document
+                && !document.isEmpty()
+                && document.keySet().iterator().next().startsWith("$");
+    }
+
+    private static boolean truthy(Object value) {
+        if (value instanceof Boolean bool) {
+            return bool;
+        }
+
+        if (value instanceof Number number) {
+            return number.doubleValue() != 0;
+        }
+
+        return true;
+    }
+
+    private static boolean integral(Number number) {
+        return number instanceof Long || number instanceof Integer || number instanceof Short || number instanceof Byte;
+    }
+
+    /**
+     * Gets the position of the type of the value in the sort order of MongoDB.
+     *
+     * @param value The value.
+     * @return      The position of its type.
+     */
+    private static int order(@Nullable Object value) {
+        if (value == null) return 1;
+        if (value instanceof Number) return 2;
+        if (value instanceof String) return 3;
+        if (value instanceof Document) return 4;
+        if (value instanceof List<?>) return 5;
+        if (value instanceof Binary || value instanceof byte[]) return 6;
+        if (value instanceof ObjectId) return 7;
+        if (value instanceof Boolean) return 8;
+        if (value instanceof Date) return 9;
+        if (value instanceof Pattern) return 11;
+        return 10;
+    }
+
+    private static UnsupportedOperationException unsupported(String operator) {
+        return new UnsupportedOperationException("The operator is not supported by the in-memory storage. [operator=" + operator + "]");
+    }
+
+}
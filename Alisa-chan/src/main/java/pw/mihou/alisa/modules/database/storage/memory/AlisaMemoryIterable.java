@@ -0,0 +1,274 @@
+package pw.mihou.alisa.modules.database.storage.memory;
+
+import com.mongodb.CursorType;
+import com.mongodb.ExplainVerbosity;
+import com.mongodb.Function;
+import com.mongodb.ServerAddress;
+import com.mongodb.ServerCursor;
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.Collation;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * {@link AlisaMemoryIterable} is the {@link FindIterable} of the in-memory storage, the filter, sort,
+ * skip, limit and projection are applied once a cursor is opened and every other option is accepted
+ * and ignored since it only concerns the server.
+ *
+ * @param <T>   The type of the documents of the iterable.
+ */
+class AlisaMemoryIterable<T> implements FindIterable<T> {
+
+    private static final ServerAddress ADDRESS = new ServerAddress("memory");
+
+    private final AlisaMemoryStorage storage;
+    private final Function<Document, T> converter;
+
+    private Document filter = new Document();
+    private Document sort = new Document();
+    private Document projection = new Document();
+    private int skip = 0;
+    private int limit = 0;
+
+    AlisaMemoryIterable(AlisaMemoryStorage storage, Function<Document, T> converter) {
+        this.storage = storage;
+        this.converter = converter;
+    }
+
+    /**
+     * Finds the documents of the iterable with every option applied, the documents are only
+     * found and converted as the stream is consumed unless they have to be sorted first.
+     *
+     * @return  The documents of the iterable.
+     */
+    private Stream<T> results() {
+        Stream<Document> documents = storage.matching(filter);
+
+        if (!sort.isEmpty()) {
+            documents = documents.sorted(AlisaMemoryDocuments.comparator(sort));
+        }
+
+        documents = documents.skip(skip);
+
+        if (limit != 0) {
+            documents = documents.limit(Math.abs(limit));
+        }
+
+        return documents.map(document -> AlisaMemoryDocuments.project(document, projection))
+                .map(converter::apply);
+    }
+
+    @Override
+    public FindIterable<T> filter(Bson filter) {
+        this.filter = storage.document(filter);
+        return this;
+    }
+
+    @Override
+    public FindIterable<T> limit(int limit) {
+        this.limit = limit;
+        return this;
+    }
+
+    @Override
+    public FindIterable<T> skip(int skip) {
+        this.skip = skip;
+        return this;
+    }
+
+    @Override
+    public FindIterable<T> projection(Bson projection) {
+        this.projection = storage.document(projection);
+        return this;
+    }
+
+    @Override
+    public FindIterable<T> sort(Bson sort) {
+        this.sort = storage.document(sort);
+        return this;
+    }
+
+    @Override
+    public MongoCursor<T> iterator() {
+        return cursor();
+    }
+
+    @Override
+    public MongoCursor<T> cursor() {
+        return new Cursor<>(results().toList().iterator());
+    }
+
+    @Override
+    public T first() {
+        return results().findFirst().orElse(null);
+    }
+
+    @Override
+    public <U> AlisaMemoryIterable<U> map(Function<T, U> mapper) {
+        AlisaMemoryIterable<U> mapped = new AlisaMemoryIterable<>(storage, document -> mapper.apply(converter.apply(document)));
+        mapped.filter = filter;
+        mapped.sort = sort;
+        mapped.projection = projection;
+        mapped.skip = skip;
+        mapped.limit = limit;
+        return mapped;
+    }
+
+    @Override
+    public <A extends Collection<? super T>> A into(A target) {
+        results().forEach(target::add);
+        return target;
+    }
+
+    @Override
+    public Document explain() {
+        return storage.explain(filter);
+    }
+
+    @Override
+    public Document explain(ExplainVerbosity verbosity) {
+        return explain();
+    }
+
+    @Override
+    public <E> E explain(Class<E> type) {
+        return explain(type, ExplainVerbosity.QUERY_PLANNER);
+    }
+
+    @Override
+    public <E> E explain(Class<E> type, ExplainVerbosity verbosity) {
+        return storage.converter(type).apply(explain());
+    }
+
+    @Override
+    public FindIterable<T> batchSize(int batchSize) {
+        return this;
+    }
+
+    @Override
+    public FindIterable<T> maxTime(long maxTime, TimeUnit timeUnit) {
+        return this;
+    }
+
+    @Override
+    public FindIterable<T> maxAwaitTime(long maxAwaitTime, TimeUnit timeUnit) {
+        return this;
+    }
+
+    @Override
+    public FindIterable<T> noCursorTimeout(boolean noCursorTimeout) {
+        return this;
+    }
+
+    @Override
+    @SuppressWarnings("deprecation")
+    public FindIterable<T> oplogReplay(boolean oplogReplay) {
+        return this;
+    }
+
+    @Override
+    public FindIterable<T> partial(boolean partial) {
+        return this;
+    }
+
+    @Override
+    public FindIterable<T> cursorType(CursorType cursorType) {
+        return this;
+    }
+
+    @Override
+    public FindIterable<T> collation(Collation collation) {
+        return this;
+    }
+
+    @Override
+    public FindIterable<T> comment(String comment) {
+        return this;
+    }
+
+    @Override
+    public FindIterable<T> hint(Bson hint) {
+        return this;
+    }
+
+    @Override
+    public FindIterable<T> hintString(String hint) {
+        return this;
+    }
+
+    @Override
+    public FindIterable<T> max(Bson max) {
+        return this;
+    }
+
+    @Override
+    public FindIterable<T> min(Bson min) {
+        return this;
+    }
+
+    @Override
+    public FindIterable<T> returnKey(boolean returnKey) {
+        return this;
+    }
+
+    @Override
+    public FindIterable<T> showRecordId(boolean showRecordId) {
+        return this;
+    }
+
+    @Override
+    public FindIterable<T> allowDiskUse(Boolean allowDiskUse) {
+        return this;
+    }
+
+    /**
+     * The cursor over the results that were found when the cursor was opened.
+     *
+     * @param results   The remaining results.
+     * @param <T>       The type of the results.
+     */
+    private record Cursor<T>(Iterator<T> results) implements MongoCursor<T> {
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public boolean hasNext() {
+            return results.hasNext();
+        }
+
+        @Override
+        public T next() {
+            return results.next();
+        }
+
+        @Override
+        public int available() {
+            return results.hasNext() ? 1 : 0;
+        }
+
+        @Override
+        public T tryNext() {
+            return results.hasNext() ? results.next() : null;
+        }
+
+        @Override
+        public ServerCursor getServerCursor() {
+            return null;
+        }
+
+        @Override
+        public ServerAddress getServerAddress() {
+            return ADDRESS;
+        }
+
+    }
+
+}
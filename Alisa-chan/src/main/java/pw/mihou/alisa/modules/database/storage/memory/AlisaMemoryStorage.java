@@ -0,0 +1,538 @@
+package pw.mihou.alisa.modules.database.storage.memory;
+
+import com.mongodb.Function;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.MongoCommandException;
+import com.mongodb.MongoWriteException;
+import com.mongodb.ServerAddress;
+import com.mongodb.WriteConcern;
+import com.mongodb.WriteError;
+import com.mongodb.client.AggregateIterable;
+import com.mongodb.client.ChangeStreamIterable;
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.IndexModel;
+import com.mongodb.client.result.DeleteResult;
+import com.mongodb.client.result.UpdateResult;
+import org.bson.BsonDocument;
+import org.bson.BsonDouble;
+import org.bson.BsonInt32;
+import org.bson.BsonObjectId;
+import org.bson.BsonString;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.Codec;
+import org.bson.codecs.configuration.CodecRegistries;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+import pw.mihou.alisa.modules.database.codecs.AlisaCodecProvider;
+import pw.mihou.alisa.modules.database.modules.AlisaField;
+import pw.mihou.alisa.modules.database.modules.AlisaIndex;
+import pw.mihou.alisa.modules.database.storage.AlisaStorage;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * {@link AlisaMemoryStorage} keeps the documents in concurrent maps instead of a collection, this is
+ * meant for tests and benchmarks that should not depend on a running database. The documents are keyed
+ * by their _id and every index that is created keeps the identifiers of the documents by the values of
+ * its fields, equality filters over the first field of an index are answered from the index and every
+ * other filter scans all the documents.
+ * <br><br>
+ * Documents are stored as they would be read back from the database, unique indexes are enforced over all
+ * of their fields with the same duplicate key error, and reads never block on writes. The expiry of TTL
+ * indexes is not performed and changes cannot be streamed, the same as a standalone server.
+ */
+public class AlisaMemoryStorage implements AlisaStorage {
+
+    private static final int DUPLICATE_KEY = 11000;
+    private static final int CHANGE_STREAMS_UNSUPPORTED = 40573;
+    private static final ServerAddress ADDRESS = new ServerAddress("memory");
+
+    private final String name;
+    private final CodecRegistry registry;
+    private final Codec<Document> codec;
+
+    private final Map<Object, Document> documents = new ConcurrentHashMap<>();
+    private final Map<String, Index> indexes = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a new, empty {@link AlisaMemoryStorage}.
+     *
+     * @param name  The name of the storage, usually the collection that it stands in for.
+     */
+    public AlisaMemoryStorage(String name) {
+        this.name = name;
+        this.registry = CodecRegistries.fromRegistries(
+                CodecRegistries.fromProviders(new AlisaCodecProvider()),
+                MongoClientSettings.getDefaultCodecRegistry()
+        );
+        this.codec = registry.get(Document.class);
+    }
+
+    /**
+     * The identifiers of the documents by the values of the fields of an index, the entries are grouped
+     * by the value of the first field so that an equality over the first field finds its documents without
+     * knowing the values of the other fields.
+     *
+     * @param name      The name of the index, such as {@code url_1_pubDate_-1}.
+     * @param fields    The fields of the index in order.
+     * @param unique    Whether the values of all the fields together can only belong to one document.
+     * @param entries   The identifiers of the documents by the value of the first field and then by the values of all the fields.
+     */
+    private record Index(String name, List<String> fields, boolean unique, Map<Object, Map<List<Object>, Set<Object>>> entries) {
+
+        /**
+         * Gets the identifiers of the documents whose first field has the value.
+         *
+         * @param key   The value of the first field.
+         * @return      The identifiers of the documents with the value.
+         */
+        Collection<Object> get(Object key) {
+            Map<List<Object>, Set<Object>> values = entries.get(key);
+
+            if (values == null) {
+                return Set.of();
+            }
+
+            if (values.size() == 1) {
+                return values.values().iterator().next();
+            }
+
+            return values.values().stream().flatMap(Set::stream).collect(Collectors.toSet());
+        }
+
+        /**
+         * Gets the values of the fields of the index that another document already holds.
+         *
+         * @param identifier    The identifier of the document.
+         * @param document      The document to check.
+         * @return              The values that another document holds, or null if there are none.
+         */
+        @Nullable
+        List<Object> conflict(Object identifier, Document document) {
+            for (List<Object> key : keys(document)) {
+                Set<Object> identifiers = entries.getOrDefault(key.get(0), Map.of()).get(key);
+
+                if (identifiers != null && identifiers.stream().anyMatch(other -> !other.equals(identifier))) {
+                    return key;
+                }
+            }
+
+            return null;
+        }
+
+        void add(Object identifier, Document document) {
+            keys(document).forEach(key -> entries.computeIfAbsent(key.get(0), ignored -> new ConcurrentHashMap<>())
+                    .computeIfAbsent(key, ignored -> ConcurrentHashMap.newKeySet())
+                    .add(identifier));
+        }
+
+        void remove(Object identifier, Document document) {
+            keys(document).forEach(key -> entries.computeIfPresent(key.get(0), (ignored, values) -> {
+                values.computeIfPresent(key, (unused, identifiers) -> {
+                    identifiers.remove(identifier);
+                    return identifiers.isEmpty() ? null : identifiers;
+                });
+
+                return values.isEmpty() ? null : values;
+            }));
+        }
+
+        /**
+         * Gets every combination of the values of the fields of the document, a field that holds an array
+         * is indexed by every element which is why there can be more than one.
+         *
+         * @param document  The document to index.
+         * @return          The values of the fields of the document.
+         */
+        private List<List<Object>> keys(Document document) {
+            List<List<Object>> keys = List.of(List.of());
+
+            for (String field : fields) {
+                List<List<Object>> expanded = new ArrayList<>();
+
+                for (List<Object> prefix : keys) {
+                    for (Object value : AlisaMemoryDocuments.keys(document, field)) {
+                        List<Object> key = new ArrayList<>(prefix);
+                        key.add(value);
+                        expanded.add(key);
+                    }
+                }
+
+                keys = expanded;
+            }
+
+            return keys;
+        }
+
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public CodecRegistry codecRegistry() {
+        return registry;
+    }
+
+    /**
+     * Gets the amount of documents in this storage.
+     *
+     * @return  The amount of documents.
+     */
+    public int size() {
+        return documents.size();
+    }
+
+    @Override
+    public <T> FindIterable<T> find(Bson filter, Class<T> type) {
+        return new AlisaMemoryIterable<>(this, converter(type)).filter(filter);
+    }
+
+    @Override
+    public synchronized UpdateResult upsert(AlisaIndex index, Document document) {
+        Document replacement = copy(document);
+        Optional<Document> existing = first(index);
+
+        if (existing.isPresent()) {
+            Object identifier = existing.get().get("_id");
+            Document stored = new Document("_id", identifier);
+            replacement.forEach((key, value) -> {
+                if (!key.equals("_id")) {
+                    stored.put(key, value);
+                }
+            });
+
+            replace(identifier, existing.get(), stored);
+            return UpdateResult.acknowledged(1, existing.get().equals(stored) ? 0L : 1L, null);
+        }
+
+        Object identifier = replacement.containsKey("_id") ? replacement.get("_id") : new ObjectId();
+        Document stored = new Document("_id", identifier);
+        stored.putAll(replacement);
+
+        replace(identifier, null, stored);
+        return UpdateResult.acknowledged(0, 0L, identifier instanceof ObjectId id ? new BsonObjectId(id) : null);
+    }
+
+    @Override
+    public synchronized int insert(List<Document> documents) {
+        int inserted = 0;
+
+        for (Document document : documents) {
+            Document stored = copy(document);
+            Object identifier = stored.containsKey("_id") ? stored.get("_id") : new ObjectId();
+
+            if (this.documents.containsKey(identifier)) {
+                continue;
+            }
+
+            Document replacement = new Document("_id", identifier);
+            replacement.putAll(stored);
+
+            try {
+                replace(identifier, null, replacement);
+                inserted++;
+            } catch (MongoWriteException exception) {
+                if (exception.getError().getCode() != DUPLICATE_KEY) {
+                    throw exception;
+                }
+            }
+        }
+
+        return inserted;
+    }
+
+    @Override
+    public synchronized DeleteResult delete(AlisaIndex index) {
+        Optional<Document> existing = first(index);
+
+        if (existing.isEmpty()) {
+            return DeleteResult.acknowledged(0);
+        }
+
+        remove(existing.get());
+        return DeleteResult.acknowledged(1);
+    }
+
+    @Override
+    public synchronized DeleteResult deleteMany(Bson filter) {
+        List<Document> existing = matching(document(filter)).toList();
+        existing.forEach(this::remove);
+
+        return DeleteResult.acknowledged(existing.size());
+    }
+
+    @Override
+    public synchronized UpdateResult updateField(AlisaIndex index, AlisaField... fields) {
+        Optional<Document> existing = first(index);
+
+        if (existing.isEmpty()) {
+            return UpdateResult.acknowledged(0, 0L, null);
+        }
+
+        Document updated = new Document(existing.get());
+        for (AlisaField field : fields) {
+            updated.put(field.key(), field.value());
+        }
+        updated = copy(updated);
+
+        replace(existing.get().get("_id"), existing.get(), updated);
+        return UpdateResult.acknowledged(1, existing.get().equals(updated) ? 0L : 1L, null);
+    }
+
+    @Override
+    public synchronized void createIndex(IndexModel model) {
+        Document keys = document(model.getKeys());
+
+        if (keys.isEmpty()) {
+            return;
+        }
+
+        String name = model.getOptions().getName() != null
+                ? model.getOptions().getName()
+                : keys.entrySet().stream().map(entry -> entry.getKey() + "_" + entry.getValue()).collect(Collectors.joining("_"));
+
+        if (indexes.containsKey(name)) {
+            return;
+        }
+
+        Index index = new Index(name, List.copyOf(keys.keySet()), model.getOptions().isUnique(), new ConcurrentHashMap<>());
+        documents.forEach((identifier, document) -> {
+            List<Object> conflict = index.unique() ? index.conflict(identifier, document) : null;
+
+            if (conflict != null) {
+                throw duplicate(index, conflict);
+            }
+
+            index.add(identifier, document);
+        });
+
+        indexes.put(name, index);
+    }
+
+    @Override
+    public AggregateIterable<Document> aggregate(List<? extends Bson> pipeline) {
+        throw new UnsupportedOperationException("The in-memory storage cannot perform aggregation pipelines.");
+    }
+
+    @Override
+    public AlisaStorage withWriteConcern(WriteConcern concern) {
+        return this;
+    }
+
+    @Override
+    public ChangeStreamIterable<Document> watch() {
+        throw new MongoCommandException(new BsonDocument("ok", new BsonDouble(0))
+                .append("errmsg", new BsonString("The $changeStream stage is only supported on replica sets"))
+                .append("code", new BsonInt32(CHANGE_STREAMS_UNSUPPORTED))
+                .append("codeName", new BsonString("Location" + CHANGE_STREAMS_UNSUPPORTED)), ADDRESS);
+    }
+
+    /**
+     * Finds the documents that match the filter, the documents are the stored instances
+     * and should be copied before they leave the storage.
+     *
+     * @param filter    The filter of the documents.
+     * @return          The stored documents that match the filter.
+     */
+    Stream<Document> matching(Document filter) {
+        Collection<Object> candidates = candidates(filter);
+
+        Stream<Document> documents = candidates == null
+                ? this.documents.values().stream()
+                : candidates.stream().map(this.documents::get).filter(Objects::nonNull);
+
+        return documents.filter(document -> AlisaMemoryDocuments.matches(document, filter));
+    }
+
+    /**
+     * Describes how the filter is answered in the shape of the query planner of MongoDB, this
+     * lets the in-memory storage be checked by the same tools as the collections.
+     *
+     * @param filter    The filter to describe.
+     * @return          The description of the plan.
+     */
+    Document explain(Document filter) {
+        Index index = indexed(filter);
+
+        Document plan = index == null
+                ? new Document("stage", "COLLSCAN")
+                : new Document("stage", "FETCH").append("inputStage", new Document("stage", "IXSCAN").append("indexName", index.name()));
+
+        return new Document("queryPlanner", new Document("namespace", "memory." + name).append("winningPlan", plan));
+    }
+
+    /**
+     * Renders the filter, sort or projection into a document of plain Java values.
+     *
+     * @param bson  The filter, sort or projection to render.
+     * @return      The rendered document.
+     */
+    Document document(@Nullable Bson bson) {
+        return AlisaMemoryDocuments.document(bson, registry);
+    }
+
+    /**
+     * Gets the identifiers of the documents that can match the filter from an index.
+     *
+     * @param filter    The filter of the documents.
+     * @return          The identifiers of the candidates, or null if every document is a candidate.
+     */
+    @Nullable
+    private Collection<Object> candidates(Document filter) {
+        Index index = indexed(filter);
+
+        if (index == null) {
+            return null;
+        }
+
+        return index.get(AlisaMemoryDocuments.equality(condition(filter, index.fields().get(0))));
+    }
+
+    /**
+     * Gets the index whose first field the filter requires an equality of, this looks through
+     * the clauses of {@code $and} as well.
+     *
+     * @param filter    The filter of the documents.
+     * @return          The index, or null if there is none.
+     */
+    @Nullable
+    private Index indexed(Document filter) {
+        for (Map.Entry<String, Object> entry : filter.entrySet()) {
+            if (entry.getKey().equals("$and")) {
+                for (Object clause : (Collection<?>) entry.getValue()) {
+                    Index index = indexed((Document) clause);
+
+                    if (index != null) {
+                        return index;
+                    }
+                }
+            } else if (AlisaMemoryDocuments.equality(entry.getValue()) != null) {
+                for (Index index : indexes.values()) {
+                    if (index.fields().get(0).equals(entry.getKey())) {
+                        return index;
+                    }
+                }
+            }
+        }
+
+        return null;
+    }
+
+    @Nullable
+    private Object condition(Document filter, String field) {
+        if (filter.containsKey(field)) {
+            return filter.get(field);
+        }
+
+        for (Document clause : filter.getList("$and", Document.class, List.of())) {
+            if (indexed(clause) != null) {
+                return condition(clause, field);
+            }
+        }
+
+        return null;
+    }
+
+    private Optional<Document> first(AlisaIndex index) {
+        return matching(document(Filters.eq(index.key(), index.value()))).findFirst();
+    }
+
+    /**
+     * Replaces the stored document while keeping the indexes current, the unique indexes are
+     * checked before anything is changed.
+     *
+     * @param identifier    The identifier of the document.
+     * @param previous      The document that is replaced, or null if the document is new.
+     * @param document      The document to store.
+     */
+    private void replace(Object identifier, @Nullable Document previous, Document document) {
+        for (Index index : indexes.values()) {
+            List<Object> conflict = index.unique() ? index.conflict(identifier, document) : null;
+
+            if (conflict != null) {
+                throw duplicate(index, conflict);
+            }
+        }
+
+        if (previous != null) {
+            unindex(identifier, previous);
+        }
+
+        documents.put(identifier, document);
+        indexes.values().forEach(index -> index.add(identifier, document));
+    }
+
+    private void remove(Document document) {
+        Object identifier = document.get("_id");
+        documents.remove(identifier);
+        unindex(identifier, document);
+    }
+
+    private void unindex(Object identifier, Document document) {
+        indexes.values().forEach(index -> index.remove(identifier, document));
+    }
+
+    /**
+     * Copies the document through the codecs, the copy has the same values and types as the
+     * document would have when it is read back from the database.
+     *
+     * @param document  The document to copy.
+     * @return          The copy of the document.
+     */
+    private Document copy(Document document) {
+        return new RawBsonDocument(document, codec).decode(codec);
+    }
+
+    /**
+     * Gets the conversion of the stored documents into the type, the same as the database
+     * would decode them into the type.
+     *
+     * @param type  The type to decode the documents into.
+     * @param <T>   The type to decode the documents into.
+     * @return      The conversion into the type.
+     */
+    @SuppressWarnings("unchecked")
+    <T> Function<Document, T> converter(Class<T> type) {
+        if (type == Document.class) {
+            return document -> (T) document;
+        }
+
+        if (type == RawBsonDocument.class) {
+            return document -> (T) new RawBsonDocument(document, codec);
+        }
+
+        Codec<T> decoder = registry.get(type);
+        return document -> new RawBsonDocument(document, codec).decode(decoder);
+    }
+
+    private MongoWriteException duplicate(Index index, List<Object> key) {
+        StringBuilder values = new StringBuilder();
+        for (int i = 0; i < index.fields().size(); i++) {
+            Object value = key.get(i);
+            values.append(i == 0 ? "" : ", ").append(index.fields().get(i)).append(": ").append(value == AlisaMemoryDocuments.NULL ? "null" : value);
+        }
+
+        return new MongoWriteException(new WriteError(
+                DUPLICATE_KEY,
+                "E11000 duplicate key error collection: memory." + name + " index: " + index.name() + " dup key: { " + values + " }",
+                new BsonDocument()
+        ), ADDRESS);
+    }
+
+}
@@ -0,0 +1,144 @@
+package pw.mihou.alisa.modules.database.types;
+
+import com.mongodb.MongoCommandException;
+import com.mongodb.MongoException;
+import com.mongodb.MongoNamespace;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.IndexModel;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.Sorts;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.jetbrains.annotations.NotNull;
+import pw.mihou.alisa.modules.AlisaChapter;
+import pw.mihou.alisa.modules.database.AlisaDatabase;
+import pw.mihou.alisa.modules.database.modules.AlisaQuery;
+import pw.mihou.alisa.modules.database.modules.iterable.AlisaIterable;
+import pw.mihou.alisa.modules.database.storage.AlisaMongoStorage;
+import pw.mihou.alisa.modules.exceptions.handler.AlisaExceptionHandler;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link AlisaChaptersDatabase} is the history of the chapters that were found in the feeds, the chapters
+ * of a story are indexed from the newest to the oldest and every chapter expires once the retention has passed
+ * since it was stored. The retention can be changed between restarts, the expiry of the existing index is
+ * then changed in place.
+ *
+ * @param client        The client of the database.
+ * @param collection    The collection of the chapters.
+ * @param retention     The time that a chapter is kept for after it was stored.
+ * @param storage       The storage over the collection of the chapters.
+ */
+public record AlisaChaptersDatabase(MongoClient client, MongoCollection<Document> collection, Duration retention, AlisaMongoStorage storage) implements AlisaDatabase<AlisaChapter> {
+
+    public static final String COLLECTION = "chapters";
+
+    private static final Bson LATEST = Sorts.descending("pubDate");
+    private static final int INDEX_OPTIONS_CONFLICT = 85;
+
+    public AlisaChaptersDatabase(MongoClient client, Duration retention) {
+        this(client, client.getDatabase("amelia").getCollection(COLLECTION), retention);
+    }
+
+    public AlisaChaptersDatabase(MongoClient client, MongoCollection<Document> collection, Duration retention) {
+        this(client, collection, retention, new AlisaMongoStorage(collection));
+    }
+
+    /**
+     * Gets the indexes of the chapter history with the retention specified.
+     *
+     * @param retention The time that a chapter is kept for after it was stored.
+     * @return          The indexes of the chapter history.
+     */
+    public static List<IndexModel> indexes(Duration retention) {
+        return List.of(
+                new IndexModel(Indexes.compoundIndex(Indexes.ascending("story.id"), Indexes.descending("pubDate"))),
+                new IndexModel(Indexes.ascending("stored"), new IndexOptions().expireAfter(retention.toSeconds(), TimeUnit.SECONDS))
+        );
+    }
+
+    @NotNull
+    @Override
+    public AlisaChapter translate(Document document) {
+        return AlisaChapter.from(document);
+    }
+
+    @Override
+    public List<IndexModel> indexes() {
+        return indexes(retention);
+    }
+
+    /**
+     * Creates the indexes of the chapter history. An index cannot be created again with another expiry, which
+     * is why the expiry of a TTL index that already exists is changed through {@code collMod} instead.
+     */
+    @Override
+    public void provision() {
+        for (IndexModel index : indexes()) {
+            try {
+                storage().createIndex(index);
+            } catch (MongoCommandException exception) {
+                Long expiry = index.getOptions().getExpireAfter(TimeUnit.SECONDS);
+
+                if (exception.getErrorCode() != INDEX_OPTIONS_CONFLICT || expiry == null) {
+                    AlisaExceptionHandler.accept(exception);
+                    continue;
+                }
+
+                try {
+                    expire(index.getKeys(), expiry);
+                } catch (MongoException failure) {
+                    AlisaExceptionHandler.accept(failure);
+                }
+            } catch (MongoException exception) {
+                AlisaExceptionHandler.accept(exception);
+            }
+        }
+    }
+
+    /**
+     * Changes the expiry of the existing TTL index over the keys.
+     *
+     * @param keys      The keys of the index.
+     * @param seconds   The expiry of the index in seconds.
+     */
+    private void expire(Bson keys, long seconds) {
+        MongoNamespace namespace = collection.getNamespace();
+
+        client.getDatabase(namespace.getDatabaseName()).runCommand(new Document("collMod", namespace.getCollectionName())
+                .append("index", new Document("keyPattern", keys).append("expireAfterSeconds", seconds)));
+    }
+
+    @Override
+    public List<AlisaQuery> queries() {
+        return List.of(new AlisaQuery(of(0), LATEST));
+    }
+
+    private static Bson of(int story) {
+        return Filters.eq("story.id", story);
+    }
+
+    /**
+     * Gets the newest chapters of the story, from the newest to the oldest. This accepts any database of the
+     * chapter history, such as the in-memory database or the wrappers of this database, since the query only
+     * goes through the storage of the database.
+     *
+     * @param chapters  The database of the chapter history.
+     * @param story     The identifier of the story.
+     * @param limit     The maximum amount of chapters.
+     * @return          The newest chapters of the story.
+     */
+    public static AlisaIterable<AlisaChapter> latest(AlisaDatabase<AlisaChapter> chapters, int story, int limit) {
+        return new AlisaIterable<>(chapters.storage().find(of(story))
+                .sort(LATEST)
+                .limit(limit), new ArrayList<>(), chapters::translate);
+    }
+
+}
@@ -2,16 +2,77 @@ package pw.mihou.alisa.modules.database.types;
 
 import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.IndexModel;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
 import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.codecs.Codec;
 import org.jetbrains.annotations.NotNull;
 import pw.mihou.alisa.modules.AlisaFeed;
+import pw.mihou.alisa.modules.AlisaFeedSubscribers;
 import pw.mihou.alisa.modules.database.AlisaDatabase;
+import pw.mihou.alisa.modules.database.modules.AlisaQuery;
+import pw.mihou.alisa.modules.database.codecs.AlisaCodecProvider;
+import pw.mihou.alisa.modules.database.modules.iterable.AlisaAggregation;
+import pw.mihou.alisa.modules.database.storage.AlisaMongoStorage;
 
-public record AlisaFeedDatabase(MongoClient client) implements AlisaDatabase<AlisaFeed> {
+import java.util.Date;
+import java.util.List;
+
+/**
+ * {@link AlisaFeedDatabase} is the database of the feeds, the feeds are decoded through the {@link AlisaCodecProvider#FEED}
+ * codec on a typed collection that is created once alongside the collection, as is its storage.
+ */
+public class AlisaFeedDatabase implements AlisaDatabase<AlisaFeed> {
+
+    public static final String COLLECTION = "feeds";
+    public static final List<IndexModel> INDEXES = List.of(
+            new IndexModel(Indexes.ascending("unique"), new IndexOptions().unique(true)),
+            new IndexModel(Indexes.ascending("url")),
+            new IndexModel(Indexes.ascending("server")),
+            new IndexModel(Indexes.ascending("modified"))
+    );
+
+    private final MongoClient client;
+    private final MongoCollection<Document> collection;
+    private final MongoCollection<AlisaFeed> typed;
+    private final AlisaMongoStorage storage;
+
+    public AlisaFeedDatabase(MongoClient client) {
+        this(client, client.getDatabase("amelia").getCollection(COLLECTION));
+    }
+
+    public AlisaFeedDatabase(MongoClient client, MongoCollection<Document> collection) {
+        this.client = client;
+        this.collection = collection;
+        this.typed = AlisaCodecProvider.typed(collection, AlisaFeed.class);
+        this.storage = new AlisaMongoStorage(collection);
+    }
+
+    /**
+     * Gets the client that this database was created from.
+     *
+     * @return  The client of this database.
+     */
+    public MongoClient client() {
+        return client;
+    }
 
     @Override
     public MongoCollection<Document> collection() {
-        return client.getDatabase("amelia").getCollection("feeds");
+        return collection;
+    }
+
+    @Override
+    public AlisaMongoStorage storage() {
+        return storage;
+    }
+
+    @Override
+    public MongoCollection<AlisaFeed> typed() {
+        return typed;
     }
 
     @NotNull
@@ -20,4 +81,39 @@ public record AlisaFeedDatabase(MongoClient client) implements AlisaDatabase<Ali
         return AlisaFeed.from(document);
     }
 
+    @Override
+    public Codec<AlisaFeed> codec() {
+        return AlisaCodecProvider.FEED;
+    }
+
+    @Override
+    public List<IndexModel> indexes() {
+        return INDEXES;
+    }
+
+    @Override
+    public List<AlisaQuery> queries() {
+        return List.of(
+                new AlisaQuery(Filters.eq("unique", 0L)),
+                new AlisaQuery(Filters.eq("url", "")),
+                new AlisaQuery(Filters.eq("server", 0L)),
+                new AlisaQuery(modifiedSince(new Date(0)), modifiedOrder())
+        );
+    }
+
+    @Override
+    public String modified() {
+        return "modified";
+    }
+
+    /**
+     * Groups the feeds by their url on the database, every url is read once with the feeds
+     * that subscribe to it and the oldest date among them.
+     *
+     * @return  The subscribers of every url.
+     */
+    public AlisaAggregation<AlisaFeedSubscribers> subscribers() {
+        return aggregate(AlisaFeedSubscribers.PIPELINE, AlisaFeedSubscribers::from);
+    }
+
 }
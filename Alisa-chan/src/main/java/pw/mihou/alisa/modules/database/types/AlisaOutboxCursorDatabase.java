@@ -0,0 +1,49 @@
+package pw.mihou.alisa.modules.database.types;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.IndexModel;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import org.bson.Document;
+import org.jetbrains.annotations.NotNull;
+import pw.mihou.alisa.modules.AlisaOutboxCursor;
+import pw.mihou.alisa.modules.database.AlisaDatabase;
+import pw.mihou.alisa.modules.database.modules.AlisaQuery;
+import pw.mihou.alisa.modules.database.storage.AlisaMongoStorage;
+
+import java.util.List;
+
+public record AlisaOutboxCursorDatabase(MongoClient client, MongoCollection<Document> collection, AlisaMongoStorage storage) implements AlisaDatabase<AlisaOutboxCursor> {
+
+    public static final String COLLECTION = "outbox_cursors";
+    public static final List<IndexModel> INDEXES = List.of(
+            new IndexModel(Indexes.ascending("client"), new IndexOptions().unique(true))
+    );
+
+    public AlisaOutboxCursorDatabase(MongoClient client) {
+        this(client, client.getDatabase("amelia").getCollection(COLLECTION));
+    }
+
+    public AlisaOutboxCursorDatabase(MongoClient client, MongoCollection<Document> collection) {
+        this(client, collection, new AlisaMongoStorage(collection));
+    }
+
+    @NotNull
+    @Override
+    public AlisaOutboxCursor translate(Document document) {
+        return AlisaOutboxCursor.from(document);
+    }
+
+    @Override
+    public List<IndexModel> indexes() {
+        return INDEXES;
+    }
+
+    @Override
+    public List<AlisaQuery> queries() {
+        return List.of(new AlisaQuery(Filters.eq("client", "")));
+    }
+
+}
@@ -0,0 +1,87 @@
+package pw.mihou.alisa.modules.database.types;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.IndexModel;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.Sorts;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.jetbrains.annotations.NotNull;
+import pw.mihou.alisa.modules.AlisaOutboxMessage;
+import pw.mihou.alisa.modules.database.AlisaDatabase;
+import pw.mihou.alisa.modules.database.modules.AlisaQuery;
+import pw.mihou.alisa.modules.database.storage.AlisaMongoStorage;
+
+import java.util.List;
+
+public record AlisaOutboxDatabase(MongoClient client, MongoCollection<Document> collection, AlisaMongoStorage storage) implements AlisaDatabase<AlisaOutboxMessage> {
+
+    public static final String COLLECTION = "outbox";
+    public static final List<IndexModel> INDEXES = List.of(
+            new IndexModel(Indexes.ascending("sequence"), new IndexOptions().unique(true))
+    );
+
+    /**
+     * The order of the messages from the oldest to the newest.
+     */
+    public static final Bson OLDEST = Sorts.ascending("sequence");
+
+    /**
+     * The order of the messages from the newest to the oldest.
+     */
+    public static final Bson NEWEST = Sorts.descending("sequence");
+
+    public AlisaOutboxDatabase(MongoClient client) {
+        this(client, client.getDatabase("amelia").getCollection(COLLECTION));
+    }
+
+    public AlisaOutboxDatabase(MongoClient client, MongoCollection<Document> collection) {
+        this(client, collection, new AlisaMongoStorage(collection));
+    }
+
+    @NotNull
+    @Override
+    public AlisaOutboxMessage translate(Document document) {
+        return AlisaOutboxMessage.from(document);
+    }
+
+    @Override
+    public List<IndexModel> indexes() {
+        return INDEXES;
+    }
+
+    @Override
+    public List<AlisaQuery> queries() {
+        return List.of(
+                new AlisaQuery(Filters.eq("sequence", 0L)),
+                new AlisaQuery(new Document(), NEWEST),
+                new AlisaQuery(between(0L, 0L), OLDEST),
+                new AlisaQuery(until(0L))
+        );
+    }
+
+    /**
+     * Gets the filter of the messages after the sequence number, up to and including the other.
+     *
+     * @param after The sequence number to start after.
+     * @param until The last sequence number to include.
+     * @return      The filter of the messages in between.
+     */
+    public static Bson between(long after, long until) {
+        return Filters.and(Filters.gt("sequence", after), Filters.lte("sequence", until));
+    }
+
+    /**
+     * Gets the filter of the messages up to and including the sequence number.
+     *
+     * @param sequence  The last sequence number to include.
+     * @return          The filter of the messages up to the sequence number.
+     */
+    public static Bson until(long sequence) {
+        return Filters.lte("sequence", sequence);
+    }
+
+}
@@ -0,0 +1,126 @@
+package pw.mihou.alisa.modules.filters;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * {@link AlisaBloomFilter} is a fixed-size probabilistic set of strings which never reports a
+ * false negative but may report a false positive, the memory that it uses never grows regardless
+ * of how many values are added.
+ */
+public class AlisaBloomFilter {
+
+    private final long[] bits;
+    private final int hashes;
+
+    /**
+     * Creates a new {@link AlisaBloomFilter} with the size and amount of hashes specified.
+     *
+     * @param size      The amount of bits in this filter, rounded up to a multiple of 64.
+     * @param hashes    The amount of hashes to use for every value.
+     */
+    public AlisaBloomFilter(int size, int hashes) {
+        this.bits = new long[Math.max(1, (size + 63) / 64)];
+        this.hashes = Math.max(1, hashes);
+    }
+
+    /**
+     * Creates a new {@link AlisaBloomFilter} out of the bits of another filter, see {@link #bytes()}.
+     *
+     * @param bytes     The bits of the filter.
+     * @param hashes    The amount of hashes that the filter used for every value.
+     */
+    public AlisaBloomFilter(byte[] bytes, int hashes) {
+        this(bytes.length * 8, hashes);
+        ByteBuffer.wrap(bytes, 0, bits.length * 8).asLongBuffer().get(bits);
+    }
+
+    /**
+     * Adds the value into this filter.
+     *
+     * @param value The value to add.
+     */
+    public void add(String value) {
+        long first = value.hashCode();
+        long second = mix(first);
+
+        for (int i = 0; i < hashes; i++) {
+            int index = index(first + i * second);
+            bits[index >>> 6] |= 1L << index;
+        }
+    }
+
+    /**
+     * Checks whether the value might have been added into this filter.
+     *
+     * @param value The value to check.
+     * @return      False if the value was never added, true if it might have been added.
+     */
+    public boolean mightContain(String value) {
+        long first = value.hashCode();
+        long second = mix(first);
+
+        for (int i = 0; i < hashes; i++) {
+            int index = index(first + i * second);
+
+            if ((bits[index >>> 6] & (1L << index)) == 0) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Removes every value from this filter.
+     */
+    public void clear() {
+        Arrays.fill(bits, 0L);
+    }
+
+    /**
+     * Replaces the values of this filter with the values of another filter of the same size.
+     *
+     * @param filter    The filter to copy from.
+     */
+    public void copy(AlisaBloomFilter filter) {
+        System.arraycopy(filter.bits, 0, bits, 0, bits.length);
+    }
+
+    /**
+     * Gets the bits of this filter, which is what is persisted of the filter.
+     *
+     * @return  The bits of this filter.
+     */
+    public byte[] bytes() {
+        ByteBuffer buffer = ByteBuffer.allocate(bits.length * 8);
+        buffer.asLongBuffer().put(bits);
+        return buffer.array();
+    }
+
+    /**
+     * Maps the hash into a bit index of this filter.
+     *
+     * @param hash  The hash to map.
+     * @return      The bit index for the hash.
+     */
+    private int index(long hash) {
+        return (int) Math.floorMod(hash, (long) bits.length * 64);
+    }
+
+    /**
+     * Derives a second, independent hash from the first hash.
+     *
+     * @param hash  The hash to derive from.
+     * @return      The derived hash, which is always odd.
+     */
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash | 1;
+    }
+
+}
@@ -0,0 +1,165 @@
+package pw.mihou.alisa.modules.filters;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * {@link AlisaSeenSet} remembers which chapters of a feed were already announced. It keeps an
+ * exact window of the most recent links and two generations of a fixed-size {@link AlisaBloomFilter}
+ * for the links that have fallen out of the window, all of which are persisted.
+ * <br><br>
+ * The current generation takes in every link until it is full, it then becomes the previous generation
+ * and the current generation starts over empty. The filters therefore remember at least the last
+ * {@link #FILTER_CAPACITY} links on top of the window without ever growing in size.
+ * <br><br>
+ * A link in the window is certainly seen and a link that both filters reject is certainly unseen,
+ * anything else has fallen out of the window and is left for the caller to decide.
+ */
+public class AlisaSeenSet {
+
+    public static final int WINDOW = 64;
+    public static final int FILTER_BITS = 4096;
+    public static final int FILTER_CAPACITY = 512;
+    private static final int FILTER_HASHES = 4;
+
+    private final LinkedHashSet<String> window = new LinkedHashSet<>();
+    private final AlisaBloomFilter filter = new AlisaBloomFilter(FILTER_BITS, FILTER_HASHES);
+    private final AlisaBloomFilter previous = new AlisaBloomFilter(FILTER_BITS, FILTER_HASHES);
+    private boolean fresh;
+    private int filtered = 0;
+
+    /**
+     * Creates a new {@link AlisaSeenSet} from the window that was persisted without any filters.
+     *
+     * @param window    The links of the persisted window, from the oldest to the newest.
+     * @param fresh     Whether this set has no persisted history at all.
+     */
+    public AlisaSeenSet(Collection<String> window, boolean fresh) {
+        this(window, null, null, 0, fresh);
+    }
+
+    /**
+     * Creates a new {@link AlisaSeenSet} from the window and the filters that were persisted, filters
+     * that are missing or were persisted with another size are started empty.
+     *
+     * @param window    The links of the persisted window, from the oldest to the newest.
+     * @param filter    The bits of the current generation of the filter.
+     * @param previous  The bits of the previous generation of the filter.
+     * @param filtered  The amount of links that the current generation has taken in.
+     * @param fresh     Whether this set has no persisted history at all.
+     */
+    public AlisaSeenSet(Collection<String> window, @Nullable byte[] filter, @Nullable byte[] previous, int filtered, boolean fresh) {
+        if (filter != null && filter.length == FILTER_BITS / 8) {
+            this.filter.copy(new AlisaBloomFilter(filter, FILTER_HASHES));
+            this.filtered = filtered;
+        }
+
+        if (previous != null && previous.length == FILTER_BITS / 8) {
+            this.previous.copy(new AlisaBloomFilter(previous, FILTER_HASHES));
+        }
+
+        window.forEach(this::add);
+        this.fresh = fresh;
+    }
+
+    /**
+     * Checks whether the link was already seen.
+     *
+     * @param link      The link to check.
+     * @param fallback  The answer to give when the link has fallen out of the window
+     *                  and cannot be decided exactly.
+     * @return          Whether the link was already seen.
+     */
+    public synchronized boolean contains(String link, boolean fallback) {
+        if (window.contains(link)) {
+            return true;
+        }
+
+        if (!filter.mightContain(link) && !previous.mightContain(link)) {
+            return false;
+        }
+
+        return fallback;
+    }
+
+    /**
+     * Marks the link as seen, evicting the oldest link from the window if
+     * the window is full.
+     *
+     * @param link  The link to mark as seen.
+     */
+    public synchronized void add(String link) {
+        fresh = false;
+
+        if (!window.add(link)) {
+            return;
+        }
+
+        if (window.size() > WINDOW) {
+            String oldest = window.iterator().next();
+            window.remove(oldest);
+        }
+
+        // The links of the window are already in the filters, which is why only
+        // new links are counted towards the capacity of the current generation.
+        if (!filter.mightContain(link)) {
+            if (++filtered > FILTER_CAPACITY) {
+                previous.copy(filter);
+                filter.clear();
+                filtered = 1;
+            }
+
+            filter.add(link);
+        }
+    }
+
+    /**
+     * Gets whether this set has no history at all, which means that it cannot tell
+     * which chapters were already announced.
+     *
+     * @return  Whether this set is fresh.
+     */
+    public synchronized boolean fresh() {
+        return fresh;
+    }
+
+    /**
+     * Gets the links of the window, from the oldest to the newest.
+     *
+     * @return  A copy of the window.
+     */
+    public synchronized List<String> window() {
+        return new ArrayList<>(window);
+    }
+
+    /**
+     * Gets the bits of the current generation of the filter.
+     *
+     * @return  A copy of the bits of the current generation.
+     */
+    public synchronized byte[] filter() {
+        return filter.bytes();
+    }
+
+    /**
+     * Gets the bits of the previous generation of the filter.
+     *
+     * @return  A copy of the bits of the previous generation.
+     */
+    public synchronized byte[] previous() {
+        return previous.bytes();
+    }
+
+    /**
+     * Gets the amount of links that the current generation of the filter has taken in.
+     *
+     * @return  The amount of links in the current generation.
+     */
+    public synchronized int filtered() {
+        return filtered;
+    }
+
+}
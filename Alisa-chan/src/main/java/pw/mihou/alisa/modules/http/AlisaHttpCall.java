@@ -5,6 +5,7 @@ import org.jetbrains.annotations.NotNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import pw.mihou.alisa.modules.configuration.AlisaConfiguration;
+import pw.mihou.alisa.modules.metrics.AlisaMetrics;
 
 import java.io.IOException;
 import java.time.Duration;
@@ -153,10 +154,16 @@ public class AlisaHttpCall {
             public void onFailure(@NotNull Call call, @NotNull IOException exception) {
                 if (retries.incrementAndGet() > maximumRetries.get()) {
                     timeTaken.set(System.nanoTime());
+                    record("failure");
                     future.completeExceptionally(exception);
                     return;
                 }
 
+                AlisaMetrics.counter(
+                        "alisa_http_retries_total",
+                        "The amount of HTTP requests that were retried.",
+                        "host", request.url().host()
+                ).increment();
                 exceptions.add(exception);
                 execute();
             }
@@ -164,6 +171,7 @@ public class AlisaHttpCall {
             @Override
             public void onResponse(@NotNull Call call, @NotNull Response response) throws IOException {
                 timeTaken.set(System.nanoTime());
+                record(String.valueOf(response.code()));
 
                 if (contentTransformation.get() && response.body() != null) {
                     content.complete(Objects.requireNonNull(response.body()).string());
@@ -178,4 +186,18 @@ public class AlisaHttpCall {
         });
     }
 
+    /**
+     * Records the elapsed time of this call into the latency histogram of the host.
+     *
+     * @param outcome   The outcome of this call, either the status code or failure.
+     */
+    private void record(String outcome) {
+        AlisaMetrics.histogram(
+                "alisa_http_request_seconds",
+                "The time taken by HTTP calls including all of their retries.",
+                "host", request.url().host(),
+                "outcome", outcome
+        ).observe(elapsed());
+    }
+
 }
@@ -0,0 +1,125 @@
+package pw.mihou.alisa.modules.metrics;
+
+import pw.mihou.alisa.modules.metrics.modules.*;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.DoubleSupplier;
+import java.util.function.Function;
+
+/**
+ * {@link AlisaMetrics} is the shared registry of counters, gauges and histograms for all
+ * the modules of Amelia which can be scraped in the Prometheus text format.
+ */
+public class AlisaMetrics {
+
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private static final Map<String, Family> families = new ConcurrentSkipListMap<>();
+
+    /**
+     * Gets or creates the counter with the name and labels specified.
+     *
+     * @param name      The name of the counter.
+     * @param help      The description of the counter.
+     * @param labels    The labels as alternating keys and values.
+     * @return          The counter with the name and labels.
+     */
+    public static AlisaCounter counter(String name, String help, String... labels) {
+        return (AlisaCounter) family(name, help, "counter")
+                .get(labels, ignored -> new AlisaCounter());
+    }
+
+    /**
+     * Registers a gauge with the name and labels specified, replacing any gauge
+     * that was registered before with the same name and labels.
+     *
+     * @param name      The name of the gauge.
+     * @param help      The description of the gauge.
+     * @param supplier  The supplier of the value of the gauge.
+     * @param labels    The labels as alternating keys and values.
+     * @return          The gauge with the name and labels.
+     */
+    public static AlisaGauge gauge(String name, String help, DoubleSupplier supplier, String... labels) {
+        AlisaGauge gauge = new AlisaGauge(supplier);
+        family(name, help, "gauge").metrics.put(AlisaMetricFormat.labels(labels), gauge);
+        return gauge;
+    }
+
+    /**
+     * Gets or creates the latency histogram with the name and labels specified,
+     * the observations are in seconds.
+     *
+     * @param name      The name of the histogram.
+     * @param help      The description of the histogram.
+     * @param labels    The labels as alternating keys and values.
+     * @return          The histogram with the name and labels.
+     */
+    public static AlisaHistogram histogram(String name, String help, String... labels) {
+        return (AlisaHistogram) family(name, help, "histogram")
+                .get(labels, ignored -> new AlisaHistogram(AlisaHistogram.LATENCY_BUCKETS));
+    }
+
+    /**
+     * Removes the metric with the name and labels specified, this is used for metrics
+     * whose labels belong to something that no longer exists.
+     *
+     * @param name      The name of the metric.
+     * @param labels    The labels as alternating keys and values.
+     */
+    public static void remove(String name, String... labels) {
+        Family family = families.get(name);
+
+        if (family != null) {
+            family.metrics.remove(AlisaMetricFormat.labels(labels));
+        }
+    }
+
+    /**
+     * Renders all the metrics in the Prometheus text format.
+     *
+     * @return  All the metrics in the Prometheus text format.
+     */
+    public static String scrape() {
+        StringBuilder builder = new StringBuilder();
+
+        families.forEach((name, family) -> {
+            builder.append("# HELP ").append(name).append(' ').append(family.help).append('\n');
+            builder.append("# TYPE ").append(name).append(' ').append(family.type).append('\n');
+            family.metrics.forEach((labels, metric) -> metric.write(builder, name, labels));
+        });
+
+        return builder.toString();
+    }
+
+    /**
+     * Gets or creates the family of metrics with the name specified.
+     *
+     * @param name  The name of the family.
+     * @param help  The description of the family.
+     * @param type  The Prometheus type of the family.
+     * @return      The family with the name.
+     */
+    private static Family family(String name, String help, String type) {
+        Family family = families.computeIfAbsent(name, key -> new Family(help, type));
+
+        if (!family.type.equals(type)) {
+            throw new IllegalArgumentException("The metric " + name + " was already registered as a " + family.type + ".");
+        }
+
+        return family;
+    }
+
+    private record Family(String help, String type, Map<String, AlisaMetric> metrics) {
+
+        Family(String help, String type) {
+            this(help, type, new ConcurrentSkipListMap<>());
+        }
+
+        AlisaMetric get(String[] labels, Function<String, AlisaMetric> creator) {
+            return metrics.computeIfAbsent(AlisaMetricFormat.labels(labels), creator);
+        }
+
+    }
+
+}
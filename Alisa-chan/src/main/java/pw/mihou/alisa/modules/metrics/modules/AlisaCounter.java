@@ -0,0 +1,38 @@
+package pw.mihou.alisa.modules.metrics.modules;
+
+import java.util.concurrent.atomic.LongAdder;
+
+public class AlisaCounter implements AlisaMetric {
+
+    private final LongAdder value = new LongAdder();
+
+    /**
+     * Increments this counter by one.
+     */
+    public void increment() {
+        value.increment();
+    }
+
+    /**
+     * Increments this counter by the amount specified.
+     *
+     * @param amount    The amount to increment by.
+     */
+    public void increment(long amount) {
+        value.add(amount);
+    }
+
+    /**
+     * Gets the current value of this counter.
+     *
+     * @return  The current value of this counter.
+     */
+    public long value() {
+        return value.sum();
+    }
+
+    @Override
+    public void write(StringBuilder builder, String name, String labels) {
+        AlisaMetricFormat.sample(builder, name, labels, value.sum());
+    }
+}
@@ -0,0 +1,20 @@
+package pw.mihou.alisa.modules.metrics.modules;
+
+import java.util.function.DoubleSupplier;
+
+public record AlisaGauge(DoubleSupplier supplier) implements AlisaMetric {
+
+    /**
+     * Gets the current value of this gauge.
+     *
+     * @return  The current value of this gauge.
+     */
+    public double value() {
+        return supplier.getAsDouble();
+    }
+
+    @Override
+    public void write(StringBuilder builder, String name, String labels) {
+        AlisaMetricFormat.sample(builder, name, labels, value());
+    }
+}
@@ -0,0 +1,127 @@
+package pw.mihou.alisa.modules.metrics.modules;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+public class AlisaHistogram implements AlisaMetric {
+
+    public static final double[] LATENCY_BUCKETS = {
+            0.001, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30, 60
+    };
+
+    private final double[] buckets;
+    private final LongAdder[] counts;
+    private final LongAdder count = new LongAdder();
+    private final DoubleAdder sum = new DoubleAdder();
+
+    /**
+     * Creates a new {@link AlisaHistogram} with the upper bounds specified.
+     *
+     * @param buckets   The upper bounds of the buckets in ascending order.
+     */
+    public AlisaHistogram(double[] buckets) {
+        this.buckets = buckets;
+        this.counts = new LongAdder[buckets.length];
+
+        for (int i = 0; i < buckets.length; i++) {
+            counts[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Records a single observation into this histogram.
+     *
+     * @param value The value to record.
+     */
+    public void observe(double value) {
+        for (int i = 0; i < buckets.length; i++) {
+            if (value <= buckets[i]) {
+                counts[i].increment();
+                break;
+            }
+        }
+
+        count.increment();
+        sum.add(value);
+    }
+
+    /**
+     * Records a single duration into this histogram in seconds.
+     *
+     * @param duration  The duration to record.
+     */
+    public void observe(Duration duration) {
+        observe(duration.toNanos() / 1_000_000_000.0);
+    }
+
+    /**
+     * Records the time elapsed since the {@link System#nanoTime()} specified
+     * into this histogram in seconds.
+     *
+     * @param start The {@link System#nanoTime()} when the measurement started.
+     */
+    public void observeSince(long start) {
+        observe((System.nanoTime() - start) / 1_000_000_000.0);
+    }
+
+    /**
+     * Gets the total amount of observations of this histogram.
+     *
+     * @return  The amount of observations.
+     */
+    public long count() {
+        return count.sum();
+    }
+
+    /**
+     * Gets the sum of all observations of this histogram.
+     *
+     * @return  The sum of all observations.
+     */
+    public double sum() {
+        return sum.sum();
+    }
+
+    /**
+     * Estimates the value at the quantile specified by taking the upper bound of
+     * the bucket that the quantile falls into.
+     *
+     * @param quantile  The quantile to estimate, between 0 and 1.
+     * @return          The estimated value, or {@link Double#POSITIVE_INFINITY} if it
+     *                  falls beyond the last bucket.
+     */
+    public double quantile(double quantile) {
+        long total = count.sum();
+        if (total == 0) {
+            return 0;
+        }
+
+        long rank = (long) Math.ceil(quantile * total);
+        long cumulative = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            cumulative += counts[i].sum();
+
+            if (cumulative >= rank) {
+                return buckets[i];
+            }
+        }
+
+        return Double.POSITIVE_INFINITY;
+    }
+
+    @Override
+    public void write(StringBuilder builder, String name, String labels) {
+        String separator = labels.isEmpty() ? "" : labels + ",";
+        long cumulative = 0;
+
+        for (int i = 0; i < buckets.length; i++) {
+            cumulative += counts[i].sum();
+            AlisaMetricFormat.sample(builder, name + "_bucket", separator + "le=\"" + AlisaMetricFormat.number(buckets[i]) + "\"", cumulative);
+        }
+
+        AlisaMetricFormat.sample(builder, name + "_bucket", separator + "le=\"+Inf\"", count.sum());
+        AlisaMetricFormat.sample(builder, name + "_sum", labels, sum.sum());
+        AlisaMetricFormat.sample(builder, name + "_count", labels, count.sum());
+    }
+}
@@ -0,0 +1,14 @@
+package pw.mihou.alisa.modules.metrics.modules;
+
+public interface AlisaMetric {
+
+    /**
+     * Writes the samples of this metric in the Prometheus text format.
+     *
+     * @param builder   The builder to write into.
+     * @param name      The name of the metric family.
+     * @param labels    The rendered labels of this metric, without the braces.
+     */
+    void write(StringBuilder builder, String name, String labels);
+
+}
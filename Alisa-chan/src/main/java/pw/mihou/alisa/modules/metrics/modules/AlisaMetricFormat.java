@@ -0,0 +1,76 @@
+package pw.mihou.alisa.modules.metrics.modules;
+
+public class AlisaMetricFormat {
+
+    /**
+     * Writes a single sample line in the Prometheus text format.
+     *
+     * @param builder   The builder to write into.
+     * @param name      The name of the sample.
+     * @param labels    The rendered labels of the sample, without the braces.
+     * @param value     The value of the sample.
+     */
+    public static void sample(StringBuilder builder, String name, String labels, double value) {
+        builder.append(name);
+
+        if (!labels.isEmpty()) {
+            builder.append('{').append(labels).append('}');
+        }
+
+        builder.append(' ').append(number(value)).append('\n');
+    }
+
+    /**
+     * Renders the labels into the Prometheus text format.
+     *
+     * @param labels    The labels as alternating keys and values.
+     * @return          The rendered labels, without the braces.
+     */
+    public static String labels(String... labels) {
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("Labels must be specified as pairs of keys and values.");
+        }
+
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < labels.length; i += 2) {
+            if (i > 0) {
+                builder.append(',');
+            }
+
+            builder.append(labels[i]).append("=\"").append(escape(labels[i + 1])).append('"');
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * Renders the number into the Prometheus text format.
+     *
+     * @param value The number to render.
+     * @return      The rendered number.
+     */
+    public static String number(double value) {
+        if (Double.isInfinite(value)) {
+            return value > 0 ? "+Inf" : "-Inf";
+        }
+
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+
+        return Double.toString(value);
+    }
+
+    /**
+     * Escapes the label value according to the Prometheus text format.
+     *
+     * @param value The value to escape.
+     * @return      The escaped value.
+     */
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\")
+                .replace("\"", "\\\"")
+                .replace("\n", "\\n");
+    }
+
+}
@@ -0,0 +1,10 @@
+package pw.mihou.alisa.modules.requests;
+
+/**
+ * {@link AlisaAcknowledgement} is a request that is sent from Ame-chan to Akari-chan
+ * that acknowledges every message up to and including the sequence number.
+ * <br><br>
+ * Akari-chan will then resume from this sequence number once Ame-chan reconnects.
+ */
+public record AlisaAcknowledgement(long sequence) {
+}
@@ -0,0 +1,40 @@
+package pw.mihou.alisa.modules.requests;
+
+import pw.mihou.alisa.modules.subscriptions.AlisaServerRange;
+import pw.mihou.alisa.modules.subscriptions.AlisaTopic;
+
+import javax.annotation.Nullable;
+import java.util.List;
+
+/**
+ * {@link AlisaSubscribeRequest} is a request that is sent from Ame-chan to Akari-chan
+ * that replaces the topics that the session receives, the session will then only receive
+ * the broadcasts of the feeds and servers listed along with the broadcasts without a topic.
+ * <br><br>
+ * Sessions that never subscribe receive every broadcast.
+ *
+ * @param feeds     The unique identifiers of the feeds to receive.
+ * @param servers   The ranges of the servers to receive.
+ */
+public record AlisaSubscribeRequest(@Nullable List<Long> feeds, @Nullable List<AlisaServerRange> servers) {
+
+    /**
+     * Checks whether the topic is part of this subscription, broadcasts without
+     * a topic are received by every subscription.
+     *
+     * @param topic The topic to check.
+     * @return      Whether the topic is part of this subscription.
+     */
+    public boolean matches(@Nullable AlisaTopic topic) {
+        if (topic == null) {
+            return true;
+        }
+
+        if (feeds != null && feeds.contains(topic.feed())) {
+            return true;
+        }
+
+        return servers != null && servers.stream().anyMatch(range -> range.contains(topic.server()));
+    }
+
+}
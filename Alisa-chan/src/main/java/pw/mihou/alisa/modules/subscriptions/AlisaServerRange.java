@@ -0,0 +1,22 @@
+package pw.mihou.alisa.modules.subscriptions;
+
+/**
+ * {@link AlisaServerRange} is an inclusive range of server identifiers, this is what sharded
+ * instances of Ame-chan subscribe with to receive only the servers that they own.
+ *
+ * @param from  The lowest server identifier of the range.
+ * @param to    The highest server identifier of the range.
+ */
+public record AlisaServerRange(long from, long to) {
+
+    /**
+     * Checks whether the server is within this range.
+     *
+     * @param server    The server identifier to check.
+     * @return          Whether the server is within this range.
+     */
+    public boolean contains(long server) {
+        return server >= from && server <= to;
+    }
+
+}
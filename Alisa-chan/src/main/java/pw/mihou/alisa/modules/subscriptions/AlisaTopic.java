@@ -0,0 +1,35 @@
+package pw.mihou.alisa.modules.subscriptions;
+
+import pw.mihou.alisa.modules.AlisaFeed;
+import pw.mihou.alisa.modules.AlisaFeedPollView;
+
+/**
+ * {@link AlisaTopic} is what a broadcast is about, which is used by Akari-chan to route the
+ * broadcast to the sessions that subscribed to it.
+ *
+ * @param feed      The unique identifier of the feed.
+ * @param server    The server that the feed belongs to.
+ */
+public record AlisaTopic(long feed, long server) {
+
+    /**
+     * Creates the topic of the feed specified.
+     *
+     * @param feed  The feed to create the topic of.
+     * @return      The topic of the feed.
+     */
+    public static AlisaTopic of(AlisaFeed feed) {
+        return new AlisaTopic(feed.unique(), feed.server());
+    }
+
+    /**
+     * Creates the topic of the feed of the view specified.
+     *
+     * @param feed  The view of the feed to create the topic of.
+     * @return      The topic of the feed.
+     */
+    public static AlisaTopic of(AlisaFeedPollView feed) {
+        return new AlisaTopic(feed.unique(), feed.server());
+    }
+
+}
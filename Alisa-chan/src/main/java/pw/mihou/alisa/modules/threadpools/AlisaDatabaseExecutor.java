@@ -0,0 +1,94 @@
+package pw.mihou.alisa.modules.threadpools;
+
+import pw.mihou.alisa.modules.metrics.AlisaMetrics;
+
+import java.util.concurrent.*;
+
+/**
+ * {@link AlisaDatabaseExecutor} runs the blocking database operations of Alisa on threads of their own
+ * instead of the common pool. The executor is bounded in both threads and queued operations, operations
+ * that arrive while the queue is full are executed by the caller which slows the caller down instead of
+ * letting the queue grow. The threads are meant to be sized to the connection pool of the driver since
+ * any more threads would only wait for a connection.
+ */
+public class AlisaDatabaseExecutor {
+
+    private static final int DEFAULT_THREADS = 100;
+    private static final int DEFAULT_CAPACITY = 1024;
+    private static final int KEEP_ALIVE_TIME = 60;
+    private static final TimeUnit TIME_UNIT = TimeUnit.SECONDS;
+
+    private static volatile ThreadPoolExecutor executor = create(DEFAULT_THREADS, DEFAULT_CAPACITY);
+
+    static {
+        AlisaMetrics.gauge("alisa_database_executor_active", "The amount of database operations that are running.",
+                () -> executor.getActiveCount());
+        AlisaMetrics.gauge("alisa_database_executor_queue_depth", "The amount of database operations waiting for a thread.",
+                () -> executor.getQueue().size());
+        AlisaMetrics.gauge("alisa_database_executor_threads", "The maximum amount of threads for database operations.",
+                () -> executor.getMaximumPoolSize());
+    }
+
+    /**
+     * Replaces the executor with one of the size specified, the operations that were already
+     * submitted to the previous executor are left to finish.
+     *
+     * @param threads   The maximum amount of threads, usually the size of the connection pool.
+     * @param capacity  The maximum amount of operations that can wait for a thread.
+     */
+    public static synchronized void configure(int threads, int capacity) {
+        ThreadPoolExecutor previous = executor;
+        executor = create(Math.max(1, threads), Math.max(1, capacity));
+        previous.shutdown();
+    }
+
+    /**
+     * Gets the executor that database operations should run on, the time that every operation
+     * spends waiting for a thread is recorded.
+     *
+     * @return  The executor for database operations.
+     */
+    public static Executor getExecutorService() {
+        return AlisaDatabaseExecutor::execute;
+    }
+
+    /**
+     * Executes the task on the current executor while recording the time it waited.
+     *
+     * @param task  The task to execute.
+     */
+    private static void execute(Runnable task) {
+        long queued = System.nanoTime();
+        executor.execute(() -> {
+            AlisaMetrics.histogram("alisa_database_executor_wait_seconds", "The time database operations waited for a thread.")
+                    .observeSince(queued);
+            task.run();
+        });
+    }
+
+    private static ThreadPoolExecutor create(int threads, int capacity) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                threads,
+                threads,
+                KEEP_ALIVE_TIME,
+                TIME_UNIT,
+                new ArrayBlockingQueue<>(capacity),
+                new AlisaThreadPool.ThreadFactory(
+                        "Alisa - Database - %d",
+                        true
+                ),
+                (task, pool) -> {
+                    AlisaMetrics.counter("alisa_database_executor_rejections_total",
+                            "The amount of database operations that ran on the caller because the queue was full.").increment();
+
+                    // This also covers the operations that raced with a replaced executor.
+                    task.run();
+                }
+        );
+
+        // The threads are only kept while there is work, the pool is sized for bursts.
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+}
@@ -0,0 +1,136 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.result.UpdateResult;
+import org.bson.Document;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import pw.mihou.alisa.interfaces.DatabaseModel;
+import pw.mihou.alisa.modules.AlisaSeenChapters;
+import pw.mihou.alisa.modules.database.AlisaDatabase;
+import pw.mihou.alisa.modules.database.cache.AlisaCachedDatabase;
+import pw.mihou.alisa.modules.database.modules.AlisaIndex;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class AlisaCachedDatabaseTests {
+
+    /**
+     * A database that keeps its models in a map and counts the lookups that reach it.
+     */
+    private static class CountingDatabase implements AlisaDatabase<AlisaSeenChapters> {
+
+        private final Map<AlisaIndex, AlisaSeenChapters> models = new ConcurrentHashMap<>();
+        private final AtomicInteger lookups = new AtomicInteger();
+
+        @Override
+        public MongoCollection<Document> collection() {
+            throw new UnsupportedOperationException();
+        }
+
+        @NotNull
+        @Override
+        public AlisaSeenChapters translate(Document document) {
+            return AlisaSeenChapters.from(document);
+        }
+
+        @Override
+        public CompletableFuture<Optional<AlisaSeenChapters>> get(AlisaIndex index) {
+            lookups.incrementAndGet();
+            return CompletableFuture.completedFuture(Optional.ofNullable(models.get(index)));
+        }
+
+        @Override
+        public CompletableFuture<UpdateResult> upsert(DatabaseModel model) {
+            models.put(model.index(), (AlisaSeenChapters) model);
+            return CompletableFuture.completedFuture(UpdateResult.acknowledged(1, 1L, null));
+        }
+
+    }
+
+    @Test
+    @DisplayName("Cached lookups stay off the database until the index is written")
+    public void testReadThrough() {
+        CountingDatabase database = new CountingDatabase();
+        AlisaCachedDatabase<AlisaSeenChapters> cached = new AlisaCachedDatabase<>(database, Caffeine.newBuilder()
+                .maximumSize(100)
+                .recordStats()
+                .buildAsync());
+
+        AlisaIndex index = new AlisaIndex("unique", 7L);
+        assertEquals(Optional.empty(), cached.get(index).join());
+        assertEquals(Optional.empty(), cached.get(index).join());
+        assertEquals(1, database.lookups.get());
+
+        AlisaSeenChapters seen = new AlisaSeenChapters(7L, List.of("https://example.com/1"));
+        cached.upsert(seen).join();
+        assertEquals(Optional.of(seen), cached.get(index).join());
+        assertEquals(Optional.of(seen), cached.get(index).join());
+        assertEquals(2, database.lookups.get());
+
+        // Writes to another index leave the lookup alone.
+        cached.upsert(new AlisaSeenChapters(8L, List.of())).join();
+        cached.get(index).join();
+        assertEquals(2, database.lookups.get());
+
+        assertEquals(3, cached.stats().hitCount());
+        assertEquals(2, cached.stats().missCount());
+        System.out.println("Cached lookups stay off the database until the index is written ✔️");
+    }
+
+    @Test
+    @DisplayName("Cached lookups are invalidated by writes of any numeric type")
+    public void testNumericTypes() {
+        CountingDatabase database = new CountingDatabase();
+        AlisaCachedDatabase<AlisaSeenChapters> cached = new AlisaCachedDatabase<>(database, Caffeine.newBuilder()
+                .maximumSize(100)
+                .buildAsync());
+
+        // The lookup by an Integer and the lookup by a Long of the same value share one entry.
+        cached.get(new AlisaIndex("unique", 7)).join();
+        cached.get(new AlisaIndex("unique", 7L)).join();
+        assertEquals(1, database.lookups.get());
+
+        // The upsert is indexed by a Long and removes the entry that was read by an Integer.
+        cached.upsert(new AlisaSeenChapters(7L, List.of("https://example.com/1"))).join();
+        cached.get(new AlisaIndex("unique", 7)).join();
+        assertEquals(2, database.lookups.get());
+
+        // The reverse, an entry read by a Long is removed by an invalidation by an Integer.
+        cached.get(new AlisaIndex("unique", 8L)).join();
+        cached.invalidate(new AlisaIndex("unique", 8));
+        cached.get(new AlisaIndex("unique", 8L)).join();
+        assertEquals(4, database.lookups.get());
+
+        cached.get(new AlisaIndex("unique", 9.0)).join();
+        cached.get(new AlisaIndex("unique", 9L)).join();
+        cached.get(new AlisaIndex("unique", 9.5)).join();
+        assertEquals(6, database.lookups.get());
+        System.out.println("Cached lookups are invalidated by writes of any numeric type ✔️");
+    }
+
+    @Test
+    @DisplayName("Cached lookups by other fields are invalidated by every write")
+    public void testOtherFields() {
+        CountingDatabase database = new CountingDatabase();
+        AlisaCachedDatabase<AlisaSeenChapters> cached = new AlisaCachedDatabase<>(database, Caffeine.newBuilder()
+                .maximumSize(100)
+                .buildAsync());
+
+        cached.get(new AlisaIndex("links", "https://example.com/1")).join();
+        cached.get(new AlisaIndex("unique", 9L)).join();
+        cached.invalidate(new AlisaIndex("unique", 7L));
+
+        assertEquals(1, cached.cache().synchronous().estimatedSize());
+        assertTrue(cached.cache().synchronous().asMap().containsKey(new AlisaIndex("unique", 9L)));
+        System.out.println("Cached lookups by other fields are invalidated by every write ✔️");
+    }
+
+}
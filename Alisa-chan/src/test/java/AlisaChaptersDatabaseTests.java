@@ -0,0 +1,144 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoCollection;
+import org.bson.Document;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import pw.mihou.alisa.modules.AlisaChapter;
+import pw.mihou.alisa.modules.database.AlisaDatabase;
+import pw.mihou.alisa.modules.database.cache.AlisaCachedDatabase;
+import pw.mihou.alisa.modules.database.reactive.AlisaReactiveDatabase;
+import pw.mihou.alisa.modules.database.types.AlisaChaptersDatabase;
+import pw.mihou.alisa.modules.rss.properties.scribblehub.modules.AlisaStoryProperty;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+@EnabledIfSystemProperty(named = "alisa.mongodb", matches = "mongodb.*")
+public class AlisaChaptersDatabaseTests {
+
+    private static final Date STORED = new Date(1644228000000L);
+
+    private static AlisaChapter chapter(int story, int number) {
+        return new AlisaChapter("https://example.com/" + story, "Chapter " + number, "https://example.com/" + number, "Mihou",
+                new Date(number), new AlisaStoryProperty("The Vampire Empress", story), STORED);
+    }
+
+    private static MongoCollection<Document> chapters(MongoClient client) {
+        MongoCollection<Document> collection = client.getDatabase("alisa_tests").getCollection("chapters");
+        collection.drop();
+        return collection;
+    }
+
+    @Test
+    @DisplayName("Bulk inserts skip the chapters that are already stored")
+    public void testDuplicates() {
+        try (MongoClient client = MongoClients.create(System.getProperty("alisa.mongodb"))) {
+            MongoCollection<Document> collection = chapters(client);
+            AlisaChaptersDatabase database = new AlisaChaptersDatabase(client, collection, Duration.ofDays(1));
+            database.provision();
+
+            assertEquals(3, database.insert(List.of(
+                    chapter(1, 1),
+                    chapter(1, 2),
+                    chapter(2, 1)
+            )).join());
+
+            // The stored chapters fail with duplicate keys while the new chapter is still inserted.
+            assertEquals(1, database.insert(List.of(
+                    chapter(1, 1),
+                    chapter(1, 3),
+                    chapter(2, 1)
+            )).join());
+
+            assertEquals(0, database.insert(List.of(chapter(1, 3))).join());
+            assertEquals(4, collection.countDocuments());
+            collection.drop();
+        }
+
+        System.out.println("Bulk inserts skip the chapters that are already stored ✔️");
+    }
+
+    @Test
+    @DisplayName("Reactive bulk inserts skip the chapters that are already stored")
+    public void testReactiveDuplicates() {
+        try (MongoClient client = MongoClients.create(System.getProperty("alisa.mongodb"));
+             com.mongodb.reactivestreams.client.MongoClient reactive = com.mongodb.reactivestreams.client.MongoClients.create(System.getProperty("alisa.mongodb"))) {
+            MongoCollection<Document> collection = chapters(client);
+            AlisaChaptersDatabase chapters = new AlisaChaptersDatabase(client, collection, Duration.ofDays(1));
+            chapters.provision();
+
+            AlisaDatabase<AlisaChapter> database = AlisaReactiveDatabase.of(chapters, reactive);
+            assertEquals(2, database.insert(List.of(
+                    chapter(1, 1),
+                    chapter(1, 2)
+            )).join());
+            assertEquals(1, database.insert(List.of(
+                    chapter(1, 2),
+                    chapter(1, 3)
+            )).join());
+            assertEquals(0, database.insert(List.of()).join());
+            assertEquals(3, collection.countDocuments());
+            collection.drop();
+        }
+
+        System.out.println("Reactive bulk inserts skip the chapters that are already stored ✔️");
+    }
+
+    @Test
+    @DisplayName("Latest chapters of a story are read from the newest")
+    public void testLatest() {
+        try (MongoClient client = MongoClients.create(System.getProperty("alisa.mongodb"))) {
+            MongoCollection<Document> collection = chapters(client);
+            AlisaChaptersDatabase database = new AlisaChaptersDatabase(client, collection, Duration.ofDays(1));
+            database.provision();
+
+            database.insert(List.of(
+                    chapter(1, 2),
+                    chapter(1, 1),
+                    chapter(1, 3),
+                    chapter(2, 4)
+            )).join();
+
+            assertEquals(
+                    List.of("Chapter 3", "Chapter 2"),
+                    AlisaChaptersDatabase.latest(database, 1, 2).mapAndList().stream().map(AlisaChapter::title).toList()
+            );
+            assertEquals(chapter(2, 4), AlisaChaptersDatabase.latest(database, 2, 5).mapAndList().get(0));
+            assertTrue(AlisaChaptersDatabase.latest(database, 3, 5).mapAndList().isEmpty());
+
+            // The wrappers of the database answer the same query.
+            AlisaDatabase<AlisaChapter> cached = AlisaCachedDatabase.of(database, 10, Duration.ofMinutes(1));
+            assertEquals(chapter(2, 4), AlisaChaptersDatabase.latest(cached, 2, 5).mapAndList().get(0));
+            collection.drop();
+        }
+
+        System.out.println("Latest chapters of a story are read from the newest ✔️");
+    }
+
+    @Test
+    @DisplayName("Changing the retention changes the expiry of the existing index")
+    public void testRetention() {
+        try (MongoClient client = MongoClients.create(System.getProperty("alisa.mongodb"))) {
+            MongoCollection<Document> collection = chapters(client);
+            new AlisaChaptersDatabase(client, collection, Duration.ofDays(1)).provision();
+            new AlisaChaptersDatabase(client, collection, Duration.ofDays(2)).provision();
+
+            Document index = collection.listIndexes().into(new ArrayList<>()).stream()
+                    .filter(document -> document.get("key", Document.class).containsKey("stored"))
+                    .findFirst()
+                    .orElseThrow();
+
+            assertEquals(Duration.ofDays(2).toSeconds(), index.get("expireAfterSeconds", Number.class).longValue());
+            collection.drop();
+        }
+
+        System.out.println("Changing the retention changes the expiry of the existing index ✔️");
+    }
+
+}
@@ -0,0 +1,144 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.squareup.moshi.JsonAdapter;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import pw.mihou.alisa.AlisaGlobal;
+import pw.mihou.alisa.modules.AlisaMessage;
+import pw.mihou.alisa.modules.broadcasts.AlisaBatch;
+import pw.mihou.alisa.modules.codec.AlisaBinaryCodec;
+import pw.mihou.alisa.modules.rss.properties.AlisaRssProperty;
+import pw.mihou.alisa.modules.rss.properties.scribblehub.AlisaChapterItem;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.stream.IntStream;
+
+public class AlisaCodecTests {
+
+    private static final int ITERATIONS = 20_000;
+
+    private static AlisaMessage chapter(int number) {
+        AlisaChapterItem chapter = new AlisaChapterItem(new AlisaRssProperty("item", null, List.of(
+                new AlisaRssProperty("title", "Chapter " + number, List.of()),
+                new AlisaRssProperty("link", "https://www.scribblehub.com/read/299262-the-vampire-empress/chapter/" + number + "/", List.of()),
+                new AlisaRssProperty("category", "299262", List.of()),
+                new AlisaRssProperty("category", "The Vampire Empress", List.of()),
+                new AlisaRssProperty("dc:creator", "Amelia", List.of()),
+                new AlisaRssProperty("pubDate", "Mon, 7 Feb 2022 10:00:00 +0000", List.of())
+        )));
+
+        return new AlisaMessage(chapter, AlisaChapterItem.class.getName());
+    }
+
+    private static void assertChapterEquals(AlisaChapterItem expected, Object actual) {
+        assertTrue(actual instanceof AlisaChapterItem);
+        AlisaChapterItem chapter = (AlisaChapterItem) actual;
+        assertEquals(expected.title(), chapter.title());
+        assertEquals(expected.link(), chapter.link());
+        assertEquals(expected.creator(), chapter.creator());
+        assertEquals(expected.pubDate(), chapter.pubDate());
+        assertEquals(expected.story().id(), chapter.story().id());
+        assertEquals(expected.story().name(), chapter.story().name());
+    }
+
+    @Test
+    @DisplayName("Binary codec round-trips chapters")
+    public void testChapterRoundTrip() throws IOException {
+        AlisaMessage message = chapter(1).sequence(42);
+        AlisaMessage decoded = AlisaBinaryCodec.decode(AlisaBinaryCodec.encode(message));
+
+        assertEquals(message.className(), decoded.className());
+        assertEquals(42L, decoded.sequence());
+        assertChapterEquals((AlisaChapterItem) message.data(), decoded.data());
+        System.out.println("Binary codec round-trips chapters ✔️");
+    }
+
+    @Test
+    @DisplayName("Binary codec round-trips batches and unknown types")
+    public void testBatchRoundTrip() throws IOException {
+        AlisaMessage batch = new AlisaMessage(new AlisaBatch(List.of(chapter(1), chapter(2))), AlisaBatch.class.getName());
+        AlisaMessage decoded = AlisaBinaryCodec.decode(AlisaBinaryCodec.encode(batch));
+
+        assertTrue(decoded.data() instanceof AlisaBatch);
+        AlisaBatch messages = (AlisaBatch) decoded.data();
+        assertEquals(2, messages.messages().size());
+        assertChapterEquals((AlisaChapterItem) chapter(2).data(), messages.messages().get(1).data());
+
+        AlisaMessage unknown = AlisaBinaryCodec.decode(AlisaBinaryCodec.encode(new AlisaMessage(List.of("a", "b"), "example.Unknown")));
+        assertEquals("example.Unknown", unknown.className());
+        assertEquals(List.of("a", "b"), unknown.data());
+        System.out.println("Binary codec round-trips batches and unknown types ✔️");
+    }
+
+    @Test
+    @DisplayName("Binary codec rejects malformed envelopes")
+    public void testMalformed() {
+        List<byte[]> frames = List.of(
+                new byte[]{(byte) 0x91, 0x01},                          // [1]
+                new byte[]{(byte) 0x90},                                // []
+                new byte[]{(byte) 0x92, (byte) 0xa1, 0x61, 0x01},       // ["a", 1]
+                new byte[]{(byte) 0x93, 0x01, (byte) 0xc0, (byte) 0xa1, 0x61}, // [1, nil, "a"]
+                new byte[]{(byte) 0x94, 0x01, (byte) 0xc0, 0x01, 0x01}, // [1, nil, 1, 1]
+                new byte[]{0x01}                                        // 1
+        );
+
+        frames.forEach(frame -> assertThrows(IOException.class, () -> AlisaBinaryCodec.decode(frame)));
+        System.out.println("Binary codec rejects malformed envelopes ✔️");
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "alisa.benchmark", matches = "true")
+    @DisplayName("Binary codec against the JSON encoding")
+    public void testAgainstJson() throws IOException {
+        JsonAdapter<AlisaMessage> adapter = AlisaGlobal.MOSHI.adapter(AlisaMessage.class);
+        JsonAdapter<AlisaChapterItem> chapters = AlisaGlobal.MOSHI.adapter(AlisaChapterItem.class);
+        List<AlisaMessage> messages = IntStream.range(0, 100).mapToObj(AlisaCodecTests::chapter).toList();
+
+        String json = adapter.toJson(messages.get(0));
+        byte[] binary = AlisaBinaryCodec.encode(messages.get(0));
+        int jsonSize = json.getBytes(StandardCharsets.UTF_8).length;
+        assertTrue(binary.length < jsonSize);
+
+        // Warms up both paths before measuring.
+        for (int i = 0; i < ITERATIONS; i++) {
+            AlisaMessage message = messages.get(i % messages.size());
+            chapters.fromJsonValue(adapter.fromJson(adapter.toJson(message)).data());
+            AlisaBinaryCodec.decode(AlisaBinaryCodec.encode(message));
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            assertNotNull(adapter.toJson(messages.get(i % messages.size())));
+        }
+        long jsonEncode = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            assertNotNull(AlisaBinaryCodec.encode(messages.get(i % messages.size())));
+        }
+        long binaryEncode = System.nanoTime() - start;
+
+        // The JSON frame is decoded the way clients do, into the envelope and then into the type
+        // named by the class name.
+        start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            assertNotNull(chapters.fromJsonValue(adapter.fromJson(json).data()));
+        }
+        long jsonDecode = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            assertNotNull(AlisaBinaryCodec.decode(binary).data());
+        }
+        long binaryDecode = System.nanoTime() - start;
+
+        System.out.printf("Bytes per chapter: json=%d, msgpack=%d (%.0f%%)%n", jsonSize, binary.length, 100.0 * binary.length / jsonSize);
+        System.out.printf("Encode: json=%.0f/s, msgpack=%.0f/s%n", ITERATIONS / (jsonEncode / 1e9), ITERATIONS / (binaryEncode / 1e9));
+        System.out.printf("Decode: json=%.0f/s, msgpack=%.0f/s%n", ITERATIONS / (jsonDecode / 1e9), ITERATIONS / (binaryDecode / 1e9));
+        System.out.println("Binary codec against the JSON encoding ✔️");
+    }
+
+}
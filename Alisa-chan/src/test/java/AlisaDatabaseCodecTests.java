@@ -0,0 +1,146 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.mongodb.MongoClientSettings;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoCollection;
+import org.bson.*;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.DocumentCodec;
+import org.bson.codecs.EncoderContext;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import pw.mihou.alisa.modules.AlisaFeed;
+import pw.mihou.alisa.modules.AlisaFeedSubscribers;
+import pw.mihou.alisa.modules.database.codecs.AlisaCodecProvider;
+import pw.mihou.alisa.modules.database.modules.AlisaIndex;
+import pw.mihou.alisa.modules.database.types.AlisaFeedDatabase;
+
+import java.util.Date;
+import java.util.List;
+
+public class AlisaDatabaseCodecTests {
+
+    private static final int ITERATIONS = 200_000;
+
+    private static AlisaFeed feed(long unique) {
+        return new AlisaFeed(1, unique, "The Vampire Empress", 861700626131451914L,
+                861700626131451917L, 584322030934032393L,
+                "https://www.scribblehub.com/rssfeed.php?type=series&sid=299262",
+                List.of(861700626131451920L, 861700626131451921L),
+                new Date(1644228000000L), new AlisaIndex("unique", unique));
+    }
+
+    private static RawBsonDocument raw(Document document) {
+        Document identified = new Document("_id", new ObjectId());
+        identified.putAll(document);
+
+        return new RawBsonDocument(identified, new DocumentCodec());
+    }
+
+    @Test
+    @DisplayName("Feed codec round-trips feeds")
+    public void testFeedRoundTrip() {
+        AlisaFeed feed = feed(7);
+
+        BsonDocument written = new BsonDocument();
+        AlisaCodecProvider.FEED.encode(new BsonDocumentWriter(written), feed, EncoderContext.builder().build());
+        assertEquals(feed, AlisaCodecProvider.FEED.decode(new BsonDocumentReader(written), DecoderContext.builder().build()));
+
+        // Documents written through the Document path decode the same way, the _id is skipped.
+        RawBsonDocument document = raw(feed.document());
+        assertEquals(feed, document.decode(AlisaCodecProvider.FEED));
+        assertEquals(AlisaFeed.from(document.decode(new DocumentCodec())), document.decode(AlisaCodecProvider.FEED));
+        System.out.println("Feed codec round-trips feeds ✔️");
+    }
+
+    @Test
+    @DisplayName("Feed codec accepts nulls and narrower numbers")
+    public void testFeedLeniency() {
+        RawBsonDocument document = RawBsonDocument.parse(
+                "{\"_id\": 1, \"id\": 3, \"unique\": 12, \"name\": null, \"server\": 5, \"channel\": 6," +
+                " \"user\": 7, \"url\": \"https://example.com\", \"mentions\": [1, 2], \"date\": null, \"extra\": {\"a\": 1}}"
+        );
+        AlisaFeed feed = document.decode(AlisaCodecProvider.FEED);
+
+        assertEquals(12, feed.unique());
+        assertNull(feed.name());
+        assertNull(feed.date());
+        assertEquals(List.of(1L, 2L), feed.mentions());
+        assertEquals(new AlisaIndex("unique", 12L), feed.index());
+        System.out.println("Feed codec accepts nulls and narrower numbers ✔️");
+    }
+
+    @Test
+    @DisplayName("Subscribers are grouped by url")
+    public void testSubscribers() {
+        assertEquals(
+                BsonDocument.parse("{\"$group\": {\"_id\": \"$url\", \"uniques\": {\"$push\": \"$unique\"}, \"date\": {\"$min\": \"$date\"}}}"),
+                AlisaFeedSubscribers.PIPELINE.get(0).toBsonDocument()
+        );
+
+        AlisaFeed feed = feed(7);
+        AlisaFeedSubscribers subscribers = AlisaFeedSubscribers.from(new Document("_id", feed.url())
+                .append("uniques", List.of(7L, 8))
+                .append("date", feed.date()));
+
+        assertEquals(new AlisaFeedSubscribers(feed.url(), List.of(7L, 8L), feed.date()), subscribers);
+        System.out.println("Subscribers are grouped by url ✔️");
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "alisa.mongodb", matches = "mongodb.*")
+    @DisplayName("Subscribers are grouped by the database")
+    public void testSubscribersAggregation() {
+        try (MongoClient client = MongoClients.create(System.getProperty("alisa.mongodb"))) {
+            MongoCollection<Document> collection = client.getDatabase("alisa_tests").getCollection("feeds");
+            collection.drop();
+
+            AlisaFeedDatabase database = new AlisaFeedDatabase(client, collection);
+            database.provision();
+            database.upsert(feed(7)).join();
+            database.upsert(feed(8)).join();
+
+            List<AlisaFeedSubscribers> groups = database.subscribers().mapAndList();
+            assertEquals(1, groups.size());
+            assertEquals(feed(7).url(), groups.get(0).url());
+            assertEquals(List.of(7L, 8L), groups.get(0).uniques().stream().sorted().toList());
+            assertEquals(feed(7).date(), groups.get(0).date());
+            collection.drop();
+        }
+
+        System.out.println("Subscribers are grouped by the database ✔️");
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "alisa.benchmark", matches = "true")
+    @DisplayName("Codec decoding against Document translation")
+    public void testDecodingCost() {
+        RawBsonDocument document = raw(feed(7).document());
+        DocumentCodec codec = new DocumentCodec(MongoClientSettings.getDefaultCodecRegistry());
+
+        for (int i = 0; i < ITERATIONS; i++) {
+            AlisaFeed.from(document.decode(codec));
+            document.decode(AlisaCodecProvider.FEED);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            assertNotNull(AlisaFeed.from(document.decode(codec)));
+        }
+        long translated = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            assertNotNull(document.decode(AlisaCodecProvider.FEED));
+        }
+        long decoded = System.nanoTime() - start;
+
+        System.out.printf("Decoding %d feeds: document=%.2fms, codec=%.2fms (%.1fx)%n",
+                ITERATIONS, translated / 1e6, decoded / 1e6, (double) translated / decoded);
+        System.out.println("Codec decoding against Document translation ✔️");
+    }
+
+}
@@ -0,0 +1,62 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.mongodb.ServerAddress;
+import com.mongodb.connection.*;
+import com.mongodb.event.*;
+import org.bson.BsonDocument;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import pw.mihou.alisa.modules.database.listeners.AlisaCommandListener;
+import pw.mihou.alisa.modules.database.listeners.AlisaConnectionPoolListener;
+import pw.mihou.alisa.modules.metrics.AlisaMetrics;
+
+import java.util.concurrent.TimeUnit;
+
+public class AlisaDatabaseListenerTests {
+
+    @Test
+    @DisplayName("Commands are timed by name and collection")
+    public void testCommands() {
+        AlisaCommandListener listener = new AlisaCommandListener();
+        ConnectionDescription connection = new ConnectionDescription(new ServerId(new ClusterId(), new ServerAddress("commands", 27017)));
+
+        listener.commandStarted(new CommandStartedEvent(1, connection, "amelia", "find", BsonDocument.parse("{\"find\": \"feeds\"}")));
+        listener.commandSucceeded(new CommandSucceededEvent(1, connection, "find", new BsonDocument(), TimeUnit.MILLISECONDS.toNanos(3)));
+
+        listener.commandStarted(new CommandStartedEvent(2, connection, "amelia", "getMore", BsonDocument.parse("{\"getMore\": 7, \"collection\": \"feeds\"}")));
+        listener.commandFailed(new CommandFailedEvent(2, connection, "getMore", 1, new IllegalStateException()));
+
+        assertEquals(1, AlisaMetrics.histogram("alisa_mongodb_command_seconds", "", "command", "find", "collection", "feeds").count());
+        assertTrue(AlisaMetrics.scrape().contains("alisa_mongodb_command_failures_total{command=\"getMore\",collection=\"feeds\"} 1\n"));
+        System.out.println("Commands are timed by name and collection ✔️");
+    }
+
+    @Test
+    @DisplayName("Connection pools are reported by server")
+    public void testPools() {
+        AlisaConnectionPoolListener listener = new AlisaConnectionPoolListener();
+        ServerId server = new ServerId(new ClusterId(), new ServerAddress("pools", 27017));
+        ConnectionId first = new ConnectionId(server);
+        ConnectionId second = new ConnectionId(server);
+
+        listener.connectionPoolCreated(new ConnectionPoolCreatedEvent(server, ConnectionPoolSettings.builder().maxSize(5).build()));
+        listener.connectionCreated(new ConnectionCreatedEvent(first));
+        listener.connectionCreated(new ConnectionCreatedEvent(second));
+        listener.connectionCheckOutStarted(new ConnectionCheckOutStartedEvent(server));
+        listener.connectionCheckedOut(new ConnectionCheckedOutEvent(first));
+        listener.connectionCheckOutStarted(new ConnectionCheckOutStartedEvent(server));
+
+        String scrape = AlisaMetrics.scrape();
+        assertTrue(scrape.contains("alisa_mongodb_pool_connections{server=\"pools:27017\"} 2\n"), scrape);
+        assertTrue(scrape.contains("alisa_mongodb_pool_in_use{server=\"pools:27017\"} 1\n"));
+        assertTrue(scrape.contains("alisa_mongodb_pool_available{server=\"pools:27017\"} 1\n"));
+        assertTrue(scrape.contains("alisa_mongodb_pool_waiting{server=\"pools:27017\"} 1\n"));
+        assertTrue(scrape.contains("alisa_mongodb_pool_max_size{server=\"pools:27017\"} 5\n"));
+        assertEquals(1, AlisaMetrics.histogram("alisa_mongodb_pool_wait_seconds", "", "server", "pools:27017").count());
+
+        listener.connectionPoolClosed(new ConnectionPoolClosedEvent(server));
+        assertFalse(AlisaMetrics.scrape().contains("alisa_mongodb_pool_in_use{server=\"pools:27017\"}"));
+        System.out.println("Connection pools are reported by server ✔️");
+    }
+
+}
@@ -0,0 +1,256 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.mongodb.MongoCommandException;
+import com.mongodb.MongoWriteException;
+import com.mongodb.WriteConcern;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.IndexModel;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.Sorts;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import pw.mihou.alisa.modules.AlisaChapter;
+import pw.mihou.alisa.modules.AlisaFeed;
+import pw.mihou.alisa.modules.AlisaFeedPollView;
+import pw.mihou.alisa.modules.AlisaFeedSubscribers;
+import pw.mihou.alisa.modules.database.AlisaDatabase;
+import pw.mihou.alisa.modules.database.AlisaQueryPlans;
+import pw.mihou.alisa.modules.database.modules.AlisaField;
+import pw.mihou.alisa.modules.database.modules.AlisaIndex;
+import pw.mihou.alisa.modules.database.storage.memory.AlisaMemoryDatabase;
+import pw.mihou.alisa.modules.database.types.AlisaChaptersDatabase;
+import pw.mihou.alisa.modules.database.types.AlisaFeedDatabase;
+import pw.mihou.alisa.modules.rss.properties.scribblehub.modules.AlisaStoryProperty;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
+public class AlisaMemoryDatabaseTests {
+
+    private static final List<IndexModel> INDEXES = List.of(
+            new IndexModel(Indexes.ascending("unique"), new IndexOptions().unique(true)),
+            new IndexModel(Indexes.ascending("url")),
+            new IndexModel(Indexes.ascending("server"))
+    );
+
+    private static AlisaFeed feed(long unique, long server, String url) {
+        return new AlisaFeed(1, unique, "The Vampire Empress", server, 861700626131451917L, 584322030934032393L,
+                url, List.of(861700626131451920L, 861700626131451921L),
+                new Date(1644228000000L + unique), new AlisaIndex("unique", unique));
+    }
+
+    /**
+     * Performs the same operations against the database and collects what was read back, this
+     * is compared between the in-memory database and a collection.
+     *
+     * @param database  The database to operate on.
+     * @return          Everything that was read back.
+     */
+    private static List<Object> operate(AlisaDatabase<AlisaFeed> database) {
+        database.upsert(feed(1, 10, "https://example.com/a")).join();
+        database.upsert(feed(2, 10, "https://example.com/b")).join();
+        database.upsert(feed(3, 20, "https://example.com/a")).join();
+        database.upsert(feed(2, 20, "https://example.com/b")).join();
+        database.updateField(new AlisaIndex("unique", 3L), new AlisaField("date", new Date(1))).join();
+        database.delete(feed(1, 10, "")).join();
+
+        Comparator<AlisaFeed> order = Comparator.comparingLong(AlisaFeed::unique);
+        return List.of(
+                database.get(new AlisaIndex("unique", 2L)).join(),
+                database.get(new AlisaIndex("unique", 2)).join(),
+                database.get(new AlisaIndex("unique", 1L)).join(),
+                database.all(new AlisaIndex("url", "https://example.com/a")).mapAndList(),
+                database.and(new AlisaIndex("server", 20L), new AlisaIndex("url", "https://example.com/b")).mapAndList(),
+                database.or(Filters.gte("unique", 2L)).map().sorted(order).toList(),
+                database.all("mentions", 861700626131451921L).map().sorted(order).toList(),
+                database.latest().map().map(AlisaFeed::unique).toList(),
+                database.all(AlisaFeedPollView.PROJECTION).map().sorted(Comparator.comparingLong(AlisaFeedPollView::unique)).toList()
+        );
+    }
+
+    @Test
+    @DisplayName("In-memory database behaves like a collection")
+    public void testOperations() {
+        AlisaMemoryDatabase<AlisaFeed> database = AlisaMemoryDatabase.of("feeds", AlisaFeed::from, INDEXES);
+        List<Object> results = operate(database);
+
+        AlisaFeed second = feed(2, 20, "https://example.com/b");
+        AlisaFeed third = new AlisaFeed(1, 3, "The Vampire Empress", 20, 861700626131451917L, 584322030934032393L,
+                "https://example.com/a", List.of(861700626131451920L, 861700626131451921L), new Date(1), new AlisaIndex("unique", 3L));
+
+        assertEquals(Optional.of(second), results.get(0));
+        assertEquals(Optional.of(second), results.get(1));
+        assertEquals(Optional.empty(), results.get(2));
+        assertEquals(List.of(third), results.get(3));
+        assertEquals(List.of(second), results.get(4));
+        assertEquals(List.of(second, third), results.get(5));
+        assertEquals(List.of(second, third), results.get(6));
+        assertEquals(List.of(3L, 2L), results.get(7));
+        assertEquals(List.of(AlisaFeedPollView.of(second), AlisaFeedPollView.of(third)), results.get(8));
+        assertEquals(2, database.storage().size());
+        System.out.println("In-memory database behaves like a collection ✔️");
+    }
+
+    @Test
+    @DisplayName("Projected views read only their fields")
+    public void testProjection() {
+        AlisaMemoryDatabase<AlisaFeed> database = AlisaMemoryDatabase.of("feeds", AlisaFeed::from, INDEXES);
+        database.upsert(feed(1, 10, "https://example.com/a")).join();
+
+        Document projected = database.storage().find(new Document())
+                .projection(AlisaFeedPollView.PROJECTION.projection())
+                .first();
+        assertEquals(new Document("unique", 1L).append("server", 10L).append("url", "https://example.com/a").append("date", new Date(1644228000001L)), projected);
+
+        Document identified = database.storage().find(new Document())
+                .projection(AlisaFeedPollView.PROJECTION.with("_id", "unique").projection())
+                .first();
+        assertEquals(List.of("_id", "unique", "server", "url", "date"), List.copyOf(identified.keySet()));
+
+        assertEquals(
+                BsonDocument.parse("{\"unique\": 1, \"url\": 1, \"server\": 1, \"date\": 1, \"_id\": 0}"),
+                AlisaFeedPollView.PROJECTION.projection().toBsonDocument()
+        );
+        assertEquals(List.of(AlisaFeedPollView.of(feed(1, 10, "https://example.com/a"))), database.all(AlisaFeedPollView.PROJECTION).mapAndList());
+        System.out.println("Projected views read only their fields ✔️");
+    }
+
+    @Test
+    @DisplayName("In-memory database enforces unique indexes")
+    public void testUniqueIndexes() {
+        AlisaMemoryDatabase<AlisaFeed> database = AlisaMemoryDatabase.of("feeds", AlisaFeed::from, INDEXES);
+        database.upsert(feed(1, 10, "https://example.com/a")).join();
+
+        // The write finds nothing by its url and inserts a second document with the same unique.
+        MongoWriteException exception = assertThrows(MongoWriteException.class, () -> database.storage().upsert(
+                new AlisaIndex("url", "https://example.com/b"),
+                feed(1, 10, "https://example.com/b").document()
+        ));
+
+        assertEquals(11000, exception.getError().getCode());
+        assertEquals(1, database.storage().size());
+        System.out.println("In-memory database enforces unique indexes ✔️");
+    }
+
+    @Test
+    @DisplayName("In-memory database skips existing documents on bulk inserts")
+    public void testInserts() {
+        AlisaMemoryDatabase<AlisaChapter> database = AlisaMemoryDatabase.of("chapters", AlisaChapter::from, List.of(
+                new IndexModel(Indexes.compoundIndex(Indexes.ascending("story.id"), Indexes.descending("pubDate")))
+        ));
+        AlisaStoryProperty other = new AlisaStoryProperty("The Vampire Empress", 299262);
+        AlisaStoryProperty story = new AlisaStoryProperty("The Vampire Empress", 402089);
+        Date stored = new Date(1644228000000L);
+
+        List<AlisaChapter> chapters = List.of(
+                new AlisaChapter("https://example.com/a", "Chapter 1", "https://example.com/1", "Mihou", new Date(1), story, stored),
+                new AlisaChapter("https://example.com/a", "Chapter 2", "https://example.com/2", "Mihou", new Date(2), story, stored),
+                new AlisaChapter("https://example.com/b", "Chapter 2", "https://example.com/2", "Mihou", new Date(2), other, stored)
+        );
+
+        assertEquals(3, database.insert(chapters).join());
+        assertEquals(1, database.insert(List.of(
+                chapters.get(1),
+                new AlisaChapter("https://example.com/a", "Chapter 3", "https://example.com/3", "Mihou", new Date(3), story, stored)
+        )).join());
+
+        List<AlisaChapter> latest = AlisaChaptersDatabase.latest(database, story.id(), 2).mapAndList();
+
+        assertEquals(List.of("Chapter 3", "Chapter 2"), latest.stream().map(AlisaChapter::title).toList());
+        assertEquals(chapters.get(1), latest.get(1));
+        assertEquals(4, database.storage().size());
+        System.out.println("In-memory database skips existing documents on bulk inserts ✔️");
+    }
+
+    @Test
+    @DisplayName("In-memory database enforces unique indexes over all their fields")
+    public void testCompoundUniqueIndexes() {
+        AlisaMemoryDatabase<AlisaChapter> database = AlisaMemoryDatabase.of("chapters", AlisaChapter::from, List.of(
+                new IndexModel(Indexes.compoundIndex(Indexes.ascending("url"), Indexes.descending("pubDate")), new IndexOptions().unique(true))
+        ));
+        AlisaStoryProperty story = new AlisaStoryProperty("The Vampire Empress", 402089);
+        Date stored = new Date(1644228000000L);
+
+        database.storage().insert(List.of(
+                new AlisaChapter("https://example.com/a", "Chapter 1", "https://example.com/1", "Mihou", new Date(1), story, stored).document(),
+                new AlisaChapter("https://example.com/a", "Chapter 2", "https://example.com/2", "Mihou", new Date(2), story, stored).document(),
+                new AlisaChapter("https://example.com/b", "Chapter 1", "https://example.com/b/1", "Mihou", new Date(1), story, stored).document()
+        ));
+
+        MongoWriteException exception = assertThrows(MongoWriteException.class, () -> database.storage().upsert(
+                new AlisaIndex("title", "Chapter 3"),
+                new AlisaChapter("https://example.com/a", "Chapter 3", "https://example.com/3", "Mihou", new Date(2), story, stored).document()
+        ));
+
+        assertEquals(11000, exception.getError().getCode());
+        assertTrue(exception.getError().getMessage().contains("url_1_pubDate_-1"));
+        assertEquals(3, database.storage().size());
+        assertEquals(2, database.storage().find(Filters.eq("url", "https://example.com/a")).into(new ArrayList<>()).size());
+        assertFalse(AlisaQueryPlans.scans(database.storage().find(Filters.eq("url", "https://example.com/a")).explain()));
+        System.out.println("In-memory database enforces unique indexes over all their fields ✔️");
+    }
+
+    @Test
+    @DisplayName("In-memory storage behaves like a standalone server")
+    public void testStandalone() {
+        AlisaMemoryDatabase<AlisaFeed> database = AlisaMemoryDatabase.of("feeds", AlisaFeed::from, INDEXES);
+        database.upsert(feed(1, 10, "https://example.com/a")).join();
+        database.upsert(feed(2, 10, "https://example.com/b")).join();
+        database.upsert(feed(3, 20, "https://example.com/a")).join();
+
+        MongoCommandException exception = assertThrows(MongoCommandException.class, () -> database.storage().watch());
+        assertEquals(40573, exception.getErrorCode());
+        assertThrows(UnsupportedOperationException.class, () -> database.aggregate(AlisaFeedSubscribers.PIPELINE, AlisaFeedSubscribers::from));
+
+        assertEquals(
+                "IXSCAN",
+                database.storage().find(Filters.eq("url", "")).explain(BsonDocument.class)
+                        .getDocument("queryPlanner").getDocument("winningPlan").getDocument("inputStage").getString("stage").getValue()
+        );
+
+        assertEquals(2, database.storage().withWriteConcern(WriteConcern.JOURNALED).deleteMany(Filters.eq("server", 10L)).getDeletedCount());
+        assertEquals(List.of(3L), database.all().map().map(AlisaFeed::unique).toList());
+        assertNull(database.storage().find(Filters.eq("url", "https://example.com/b")).first());
+        assertNull(database.collection());
+        System.out.println("In-memory storage behaves like a standalone server ✔️");
+    }
+
+    @Test
+    @DisplayName("In-memory database answers indexed equalities from its indexes")
+    public void testPlans() {
+        AlisaMemoryDatabase<AlisaFeed> database = AlisaMemoryDatabase.of("feeds", AlisaFeed::from, INDEXES);
+
+        assertFalse(AlisaQueryPlans.scans(database.storage().find(Filters.eq("url", "")).explain()));
+        assertFalse(AlisaQueryPlans.scans(database.storage().find(Filters.and(Filters.eq("name", ""), Filters.eq("server", 1L))).explain()));
+        assertTrue(AlisaQueryPlans.scans(database.storage().find(Filters.eq("name", "")).explain()));
+        System.out.println("In-memory database answers indexed equalities from its indexes ✔️");
+    }
+
+    @Test
+    @DisplayName("In-memory database reads back the same as a collection")
+    @EnabledIfSystemProperty(named = "alisa.mongodb", matches = "mongodb.*")
+    public void testParity() {
+        try (MongoClient client = MongoClients.create(System.getProperty("alisa.mongodb"))) {
+            MongoCollection<Document> feeds = client.getDatabase("alisa_tests").getCollection("feeds");
+            AlisaFeedDatabase collection = new AlisaFeedDatabase(client, feeds);
+            feeds.drop();
+            collection.provision();
+
+            assertEquals(operate(collection), operate(AlisaMemoryDatabase.of("feeds", AlisaFeed::from, INDEXES)));
+            feeds.drop();
+        }
+
+        System.out.println("In-memory database reads back the same as a collection ✔️");
+    }
+
+}
@@ -0,0 +1,33 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import pw.mihou.alisa.modules.metrics.AlisaMetrics;
+import pw.mihou.alisa.modules.metrics.modules.AlisaHistogram;
+
+import java.time.Duration;
+
+public class AlisaMetricsTests {
+
+    @Test
+    @DisplayName("Prometheus text rendering")
+    public void testScrape() {
+        AlisaMetrics.counter("test_events_total", "Test events.", "kind", "a\"b").increment(3);
+        AlisaMetrics.gauge("test_depth", "Test depth.", () -> 7);
+
+        AlisaHistogram histogram = AlisaMetrics.histogram("test_latency_seconds", "Test latency.");
+        histogram.observe(Duration.ofMillis(3));
+        histogram.observe(Duration.ofMillis(300));
+
+        String scrape = AlisaMetrics.scrape();
+        assertTrue(scrape.contains("# TYPE test_events_total counter\n"));
+        assertTrue(scrape.contains("test_events_total{kind=\"a\\\"b\"} 3\n"));
+        assertTrue(scrape.contains("test_depth 7\n"));
+        assertTrue(scrape.contains("test_latency_seconds_bucket{le=\"0.005\"} 1\n"));
+        assertTrue(scrape.contains("test_latency_seconds_bucket{le=\"+Inf\"} 2\n"));
+        assertTrue(scrape.contains("test_latency_seconds_count 2\n"));
+        assertEquals(0.5, histogram.quantile(0.99));
+        System.out.println("Prometheus text rendering ✔️");
+    }
+
+}
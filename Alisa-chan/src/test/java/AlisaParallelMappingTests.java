@@ -0,0 +1,58 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import pw.mihou.alisa.modules.database.modules.iterable.AlisaParallelMapping;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+public class AlisaParallelMappingTests {
+
+    @Test
+    @DisplayName("Parallel mapping keeps the order of the cursor")
+    public void testOrder() {
+        List<Integer> source = IntStream.range(0, AlisaParallelMapping.CHUNK * 20 + 7).boxed().toList();
+        Set<Thread> threads = ConcurrentHashMap.newKeySet();
+        Thread caller = Thread.currentThread();
+        List<Integer> mapped = new ArrayList<>();
+
+        AlisaParallelMapping.forEach(source.iterator(), element -> {
+            threads.add(Thread.currentThread());
+            return element * 2;
+        }, 4, element -> {
+            assertSame(caller, Thread.currentThread());
+            mapped.add(element);
+        });
+
+        assertEquals(source.stream().map(element -> element * 2).toList(), mapped);
+        assertFalse(threads.contains(caller));
+        System.out.println("Parallel mapping keeps the order of the cursor ✔️");
+    }
+
+    @Test
+    @DisplayName("Parallel mapping throws the exceptions of the mapper")
+    public void testExceptions() {
+        List<Integer> source = IntStream.range(0, AlisaParallelMapping.CHUNK * 4).boxed().toList();
+
+        IllegalStateException exception = assertThrows(IllegalStateException.class, () -> AlisaParallelMapping.forEach(
+                source.iterator(),
+                element -> {
+                    if (element == AlisaParallelMapping.CHUNK * 2) {
+                        throw new IllegalStateException("The document is malformed.");
+                    }
+
+                    return element;
+                },
+                2,
+                element -> {}
+        ));
+
+        assertEquals("The document is malformed.", exception.getMessage());
+        System.out.println("Parallel mapping throws the exceptions of the mapper ✔️");
+    }
+
+}
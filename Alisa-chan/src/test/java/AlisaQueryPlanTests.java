@@ -0,0 +1,90 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoDatabase;
+import org.bson.Document;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import pw.mihou.alisa.modules.database.AlisaDatabase;
+import pw.mihou.alisa.modules.database.AlisaQueryPlans;
+import pw.mihou.alisa.modules.database.modules.AlisaQuery;
+import pw.mihou.alisa.modules.database.types.AlisaChaptersDatabase;
+import pw.mihou.alisa.modules.database.types.AlisaFeedDatabase;
+import pw.mihou.alisa.modules.database.types.AlisaOutboxCursorDatabase;
+import pw.mihou.alisa.modules.database.types.AlisaOutboxDatabase;
+import pw.mihou.alisa.modules.database.types.AlisaSeenChaptersDatabase;
+
+import java.time.Duration;
+import java.util.List;
+
+public class AlisaQueryPlanTests {
+
+    @Test
+    @DisplayName("Collection scans are found in winning plans")
+    public void testCollectionScans() {
+        assertTrue(AlisaQueryPlans.scans(Document.parse(
+                "{\"queryPlanner\": {\"winningPlan\": {\"stage\": \"COLLSCAN\", \"filter\": {\"url\": {\"$eq\": \"\"}}}}}"
+        )));
+        assertFalse(AlisaQueryPlans.scans(Document.parse(
+                "{\"queryPlanner\": {\"winningPlan\": {\"stage\": \"FETCH\", \"inputStage\": {\"stage\": \"IXSCAN\", \"indexName\": \"unique_1\"}}," +
+                " \"rejectedPlans\": [{\"stage\": \"COLLSCAN\"}]}}"
+        )));
+        assertTrue(AlisaQueryPlans.scans(Document.parse(
+                "{\"queryPlanner\": {\"winningPlan\": {\"stage\": \"SINGLE_SHARD\", \"shards\": [" +
+                "{\"shardName\": \"a\", \"winningPlan\": {\"stage\": \"SHARDING_FILTER\", \"inputStage\": {\"stage\": \"COLLSCAN\"}}}]}}}"
+        )));
+        System.out.println("Collection scans are found in winning plans ✔️");
+    }
+
+    @Test
+    @DisplayName("Databases keep one storage over their collection")
+    public void testStorageIsKept() {
+        // The client connects lazily, none of the databases below reach a server.
+        try (MongoClient client = MongoClients.create("mongodb://localhost:27017")) {
+            List<AlisaDatabase<?>> databases = List.of(
+                    new AlisaFeedDatabase(client),
+                    new AlisaSeenChaptersDatabase(client),
+                    new AlisaOutboxDatabase(client),
+                    new AlisaOutboxCursorDatabase(client),
+                    new AlisaChaptersDatabase(client, Duration.ofDays(1))
+            );
+
+            databases.forEach(database -> {
+                assertSame(database.storage(), database.storage());
+                assertEquals(database.collection().getNamespace().getCollectionName(), database.storage().name());
+            });
+        }
+
+        System.out.println("Databases keep one storage over their collection ✔️");
+    }
+
+    @Test
+    @DisplayName("Queries of the databases are covered by their indexes")
+    @EnabledIfSystemProperty(named = "alisa.mongodb", matches = "mongodb.*")
+    public void testQueriesAreIndexed() {
+        try (MongoClient client = MongoClients.create(System.getProperty("alisa.mongodb"))) {
+            MongoDatabase tests = client.getDatabase("alisa_tests");
+            List<AlisaDatabase<?>> databases = List.of(
+                    new AlisaFeedDatabase(client, tests.getCollection("feeds")),
+                    new AlisaSeenChaptersDatabase(client, tests.getCollection("seen")),
+                    new AlisaChaptersDatabase(client, tests.getCollection("chapters"), Duration.ofDays(1)),
+                    new AlisaOutboxDatabase(client, tests.getCollection("outbox")),
+                    new AlisaOutboxCursorDatabase(client, tests.getCollection("outbox_cursors"))
+            );
+
+            for (AlisaDatabase<?> database : databases) {
+                database.collection().drop();
+                database.provision();
+
+                List<AlisaQuery> scans = AlisaQueryPlans.collectionScans(database);
+                assertTrue(scans.isEmpty(), "The collection " + database.collection().getNamespace() + " is scanned by " + scans);
+                database.collection().drop();
+            }
+        }
+
+        System.out.println("Queries of the databases are covered by their indexes ✔️");
+    }
+
+}
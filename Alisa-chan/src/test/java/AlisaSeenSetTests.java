@@ -0,0 +1,83 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.bson.types.Binary;
+import pw.mihou.alisa.modules.AlisaSeenChapters;
+import pw.mihou.alisa.modules.filters.AlisaBloomFilter;
+import pw.mihou.alisa.modules.filters.AlisaSeenSet;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+public class AlisaSeenSetTests {
+
+    private static String link(int chapter) {
+        return "https://www.scribblehub.com/read/299262-the-vampire-empress/chapter/" + chapter + "/";
+    }
+
+    @Test
+    @DisplayName("Bloom filter never reports false negatives")
+    public void testBloomFilter() {
+        AlisaBloomFilter filter = new AlisaBloomFilter(4096, 4);
+        IntStream.range(0, 400).forEach(i -> filter.add(link(i)));
+
+        IntStream.range(0, 400).forEach(i -> assertTrue(filter.mightContain(link(i))));
+        System.out.println("Bloom filter never reports false negatives ✔️");
+    }
+
+    @Test
+    @DisplayName("Seen set is exact within the window")
+    public void testSeenSetWindow() {
+        AlisaSeenSet set = new AlisaSeenSet(List.of(link(1), link(2)), false);
+
+        assertFalse(set.fresh());
+        assertTrue(set.contains(link(1), false));
+        assertTrue(set.contains(link(2), false));
+        assertFalse(set.contains(link(3), true));
+
+        IntStream.rangeClosed(3, AlisaSeenSet.WINDOW + 2).forEach(i -> set.add(link(i)));
+        assertEquals(AlisaSeenSet.WINDOW, set.window().size());
+        assertEquals(link(3), set.window().get(0));
+
+        // The first link has fallen out of the window and is decided by the fallback.
+        assertTrue(set.contains(link(1), true));
+        assertFalse(set.contains(link(1), false));
+        System.out.println("Seen set is exact within the window ✔️");
+    }
+
+    @Test
+    @DisplayName("Fresh seen set stops being fresh once seeded")
+    public void testSeenSetFresh() {
+        AlisaSeenSet set = new AlisaSeenSet(List.of(), true);
+        assertTrue(set.fresh());
+
+        set.add(link(1));
+        assertFalse(set.fresh());
+        System.out.println("Fresh seen set stops being fresh once seeded ✔️");
+    }
+
+    @Test
+    @DisplayName("Seen set remembers links past the window after a restart")
+    public void testSeenSetPersistence() {
+        AlisaSeenSet set = new AlisaSeenSet(List.of(), true);
+        IntStream.range(0, AlisaSeenSet.FILTER_CAPACITY + 100).forEach(i -> set.add(link(i)));
+
+        AlisaSeenChapters persisted = AlisaSeenChapters.from(new AlisaSeenChapters(1L, set.window(),
+                new Binary(set.filter()), new Binary(set.previous()), set.filtered()).document());
+        AlisaSeenSet restored = new AlisaSeenSet(persisted.links(), persisted.filter().getData(),
+                persisted.previous().getData(), persisted.filtered(), false);
+
+        assertEquals(set.filtered(), restored.filtered());
+        assertArrayEquals(set.filter(), restored.filter());
+        assertArrayEquals(set.previous(), restored.previous());
+
+        // Links from both generations have fallen out of the window but are still left to the fallback
+        // instead of being rejected, which a set restored from the window alone would do.
+        IntStream.range(0, AlisaSeenSet.FILTER_CAPACITY + 100)
+                .forEach(i -> assertTrue(restored.contains(link(i), true)));
+        assertFalse(new AlisaSeenSet(persisted.links(), false).contains(link(0), true));
+        System.out.println("Seen set remembers links past the window after a restart ✔️");
+    }
+
+}